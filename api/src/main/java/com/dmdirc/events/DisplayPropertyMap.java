@@ -22,6 +22,8 @@
 
 package com.dmdirc.events;
 
+import com.google.common.collect.ImmutableMap;
+
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -34,7 +36,15 @@ public class DisplayPropertyMap {
 
     public static final DisplayPropertyMap EMPTY = new ReadOnlyDisplayPropertyMap();
 
-    private final Map<DisplayProperty<?>, Object> properties = new ConcurrentHashMap<>();
+    private final Map<DisplayProperty<?>, Object> properties;
+
+    public DisplayPropertyMap() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private DisplayPropertyMap(final Map<DisplayProperty<?>, Object> properties) {
+        this.properties = properties;
+    }
 
     /**
      * Gets the value of the specified property, if present.
@@ -87,11 +97,59 @@ public class DisplayPropertyMap {
         return Collections.unmodifiableMap(properties);
     }
 
+    /**
+     * Returns a compact, read-only snapshot of this map's current properties. Snapshots of maps
+     * with the same properties are equal, so they may be safely shared between holders.
+     *
+     * @return A read-only copy of this map.
+     */
+    public DisplayPropertyMap toReadOnly() {
+        if (properties.isEmpty()) {
+            return EMPTY;
+        }
+        return new ReadOnlyDisplayPropertyMap(ImmutableMap.copyOf(properties));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof DisplayPropertyMap
+                && properties.equals(((DisplayPropertyMap) obj).properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return properties.hashCode();
+    }
+
     private static class ReadOnlyDisplayPropertyMap extends DisplayPropertyMap {
+
+        ReadOnlyDisplayPropertyMap() {
+            super(ImmutableMap.of());
+        }
+
+        ReadOnlyDisplayPropertyMap(final Map<DisplayProperty<?>, Object> properties) {
+            super(properties);
+        }
+
         @Override
         public <T> void put(final DisplayProperty<T> property, final T value) {
             throw new UnsupportedOperationException("Read only");
         }
+
+        @Override
+        public void putAll(final DisplayPropertyMap other) {
+            throw new UnsupportedOperationException("Read only");
+        }
+
+        @Override
+        public <T> void remove(final DisplayProperty<T> property) {
+            throw new UnsupportedOperationException("Read only");
+        }
+
+        @Override
+        public DisplayPropertyMap toReadOnly() {
+            return this;
+        }
     }
 
 }
@@ -24,6 +24,20 @@ public interface Document {
      */
     Line getLine(int lineNumber);
 
+    /**
+     * Returns the absolute line number of the first line currently held in this document. This
+     * increases as lines are trimmed or cleared, and can be combined with a line's index to
+     * produce a number that uniquely identifies it within this document.
+     *
+     * <p>Documents that don't track this always return 0, in which case callers cannot rely on
+     * the offset to detect trimmed lines.
+     *
+     * @return The absolute line number of line 0
+     */
+    default long getLineOffset() {
+        return 0;
+    }
+
     /**
      * Adds the stylised string to the canvas.
      *
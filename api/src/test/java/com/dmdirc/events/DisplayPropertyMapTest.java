@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.dmdirc.events;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DisplayPropertyMapTest {
+
+    @Test
+    public void testEmptyMapIsReadOnlyAsEmpty() {
+        assertSame(DisplayPropertyMap.EMPTY, new DisplayPropertyMap().toReadOnly());
+    }
+
+    @Test
+    public void testReadOnlyCopyHasSameProperties() {
+        final DisplayPropertyMap map = new DisplayPropertyMap();
+        map.put(DisplayProperty.NO_TIMESTAMPS, true);
+        final DisplayPropertyMap readOnly = map.toReadOnly();
+        assertTrue(readOnly.get(DisplayProperty.NO_TIMESTAMPS).get());
+        assertEquals(map, readOnly);
+        assertEquals(map.hashCode(), readOnly.hashCode());
+    }
+
+    @Test
+    public void testReadOnlyCopyIsSnapshot() {
+        final DisplayPropertyMap map = new DisplayPropertyMap();
+        map.put(DisplayProperty.NO_TIMESTAMPS, true);
+        final DisplayPropertyMap readOnly = map.toReadOnly();
+        map.put(DisplayProperty.DO_NOT_DISPLAY, true);
+        assertTrue(!readOnly.get(DisplayProperty.DO_NOT_DISPLAY).isPresent());
+        assertNotEquals(map, readOnly);
+    }
+
+    @Test
+    public void testReadOnlyOfReadOnlyIsSame() {
+        final DisplayPropertyMap map = new DisplayPropertyMap();
+        map.put(DisplayProperty.NO_TIMESTAMPS, true);
+        final DisplayPropertyMap readOnly = map.toReadOnly();
+        assertSame(readOnly, readOnly.toReadOnly());
+    }
+
+    @Test
+    public void testEqualityIsByValue() {
+        final DisplayPropertyMap map1 = new DisplayPropertyMap();
+        final DisplayPropertyMap map2 = new DisplayPropertyMap();
+        map1.put(DisplayProperty.NO_TIMESTAMPS, true);
+        map2.put(DisplayProperty.NO_TIMESTAMPS, true);
+        assertEquals(map1, map2);
+        assertEquals(map1.hashCode(), map2.hashCode());
+        map2.put(DisplayProperty.NO_TIMESTAMPS, false);
+        assertNotEquals(map1, map2);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlyRejectsPut() {
+        DisplayPropertyMap.EMPTY.put(DisplayProperty.NO_TIMESTAMPS, true);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlyRejectsPutAll() {
+        final DisplayPropertyMap map = new DisplayPropertyMap();
+        map.put(DisplayProperty.NO_TIMESTAMPS, true);
+        DisplayPropertyMap.EMPTY.putAll(map);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnlyRejectsRemove() {
+        DisplayPropertyMap.EMPTY.remove(DisplayProperty.NO_TIMESTAMPS);
+    }
+
+}
@@ -33,10 +33,22 @@ public class MBassadorEventBus implements EventBus {
     private final MBassador<BaseEvent> bus;
 
     public MBassadorEventBus() {
+        this(1);
+    }
+
+    /**
+     * Creates a new event bus with the given number of asynchronous dispatcher threads.
+     *
+     * @param dispatchers The number of threads to start for {@link #publishAsync(BaseEvent)}. This
+     *                    may be zero if asynchronous events are dispatched by a wrapping bus that
+     *                    only ever calls {@link #publish(BaseEvent)}.
+     */
+    public MBassadorEventBus(final int dispatchers) {
         bus = new MBassador<>(new BusConfiguration()
                 .addFeature(Feature.SyncPubSub.Default())
                 .addFeature(Feature.AsynchronousHandlerInvocation.Default(1, 1))
-                .addFeature(Feature.AsynchronousMessageDispatch.Default().setNumberOfMessageDispatchers(1))
+                .addFeature(Feature.AsynchronousMessageDispatch.Default()
+                        .setNumberOfMessageDispatchers(dispatchers))
                 .addPublicationErrorHandler(e -> LOG.error("Unhandled exception while publishing event", e)));
     }
 
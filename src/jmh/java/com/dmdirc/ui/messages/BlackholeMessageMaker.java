@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.util.colours.Colour;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A styled message maker that discards everything it is given into a {@link Blackhole}, so that
+ * benchmarks measure only the work done to style a message.
+ */
+public class BlackholeMessageMaker implements StyledMessageMaker<Void> {
+
+    private final Blackhole blackhole;
+
+    public BlackholeMessageMaker(final Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    @Override
+    public Void getStyledMessage() {
+        return null;
+    }
+
+    @Override
+    public void resetAllStyles() {
+        blackhole.consume(0);
+    }
+
+    @Override
+    public void resetColours() {
+        blackhole.consume(1);
+    }
+
+    @Override
+    public void appendString(final String text) {
+        blackhole.consume(text);
+    }
+
+    @Override
+    public void toggleBold() {
+        blackhole.consume(2);
+    }
+
+    @Override
+    public void toggleUnderline() {
+        blackhole.consume(3);
+    }
+
+    @Override
+    public void toggleItalic() {
+        blackhole.consume(4);
+    }
+
+    @Override
+    public void startHyperlink(final String url) {
+        blackhole.consume(url);
+    }
+
+    @Override
+    public void endHyperlink() {
+        blackhole.consume(5);
+    }
+
+    @Override
+    public void toggleHyperlinkStyle(final Colour colour) {
+        blackhole.consume(colour);
+    }
+
+    @Override
+    public void startChannelLink(final String channel) {
+        blackhole.consume(channel);
+    }
+
+    @Override
+    public void endChannelLink() {
+        blackhole.consume(6);
+    }
+
+    @Override
+    public void toggleChannelLinkStyle(final Colour colour) {
+        blackhole.consume(colour);
+    }
+
+    @Override
+    public void startNicknameLink(final String nickname) {
+        blackhole.consume(nickname);
+    }
+
+    @Override
+    public void endNicknameLink() {
+        blackhole.consume(7);
+    }
+
+    @Override
+    public void toggleFixedWidth() {
+        blackhole.consume(8);
+    }
+
+    @Override
+    public void setForeground(final Colour colour) {
+        blackhole.consume(colour);
+    }
+
+    @Override
+    public void setDefaultForeground(final Colour colour) {
+        blackhole.consume(colour);
+    }
+
+    @Override
+    public void setBackground(final Colour colour) {
+        blackhole.consume(colour);
+    }
+
+    @Override
+    public void setDefaultBackground(final Colour colour) {
+        blackhole.consume(colour);
+    }
+
+    @Override
+    public void startSmilie(final String smilie) {
+        blackhole.consume(smilie);
+    }
+
+    @Override
+    public void endSmilie() {
+        blackhole.consume(9);
+    }
+
+    @Override
+    public void startToolTip(final String tooltip) {
+        blackhole.consume(tooltip);
+    }
+
+    @Override
+    public void endToolTip() {
+        blackhole.consume(10);
+    }
+
+    @Override
+    public void setDefaultFont(final String fontName, final int fontSize) {
+        blackhole.consume(fontName);
+        blackhole.consume(fontSize);
+    }
+
+    @Override
+    public int getMaximumFontSize() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+        blackhole.consume(11);
+    }
+
+}
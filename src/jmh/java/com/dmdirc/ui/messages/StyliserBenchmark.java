@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.GroupChatManager;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares styling a corpus of typical IRC lines using the {@link Styliser}'s tokenizer with
+ * styling them using the regular expressions it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StyliserBenchmark {
+
+    /** Lines as they are passed to the styliser, after the formatter has marked up nicknames. */
+    private static final String[] CORPUS = {
+            "<\u0010Greboid\u0010> anyone seen the build failing on master?",
+            "<\u0010MD87\u0010> yeah, see https://github.com/DMDirc/DMDirc/pull/712 for the fix",
+            "* \u0010Demented-Idiot\u0010 has joined #DMDirc",
+            "* \u0010shane\u0010 has quit IRC (Ping timeout: 240 seconds)",
+            "<\u0010ChanServ\u0010> \u00034,1[\u00038Topic\u00034]\u0003 Welcome to \u0002#DMDirc"
+                    + "\u0002 | Latest: \u000312http://www.dmdirc.com/\u0003 | Be nice :)",
+            "<\u0010Bot\u0010> \u000303[\u000307build\u000303]\u0003 \u000306#1234\u0003 "
+                    + "\u000309passed\u0003 in 4m 12s \u000314(\u000312master\u000314)\u0003",
+            "<\u0010Bot\u0010> \u000303[\u000307build\u000303]\u0003 \u000306#1235\u0003 "
+                    + "\u000304\u0002failed\u0002\u0003: \u001fcompileJava\u001f "
+                    + "\u000314https://ci.example.com/job/dmdirc/1235/console\u0003",
+            "<\u0010Rainbow\u0010> \u00034h\u00037e\u00038l\u00039l\u000311o \u000312w\u00032o"
+                    + "\u00036r\u000313l\u00034d\u0003 <3",
+            "<\u0010art\u0010> \u00031,1 \u00034,4 \u00037,7 \u00038,8 \u00039,9 \u000311,11 "
+                    + "\u000312,12 \u00032,2 \u00036,6 \u000313,13 \u0003",
+            "<\u0010Hex\u0010> \u0004FF8000orange\u0004 and \u00040080FF,202020blue on grey\u0004",
+            "<\u0010user\u0010> we moved to &local and #dmdirc-dev, also try www.dmdirc.com.",
+            "<\u0010user\u0010> \u0002\u001d\u001fall the styles\u000f and none of them :(",
+            "<\u0010quote\u0010> he said \"see (http://example.com/wiki/Foo_(bar))\" and left",
+            "-\u0010NickServ\u0010- This nickname is registered. Please choose a different "
+                    + "nickname, or identify via \u0002/msg NickServ identify <password>\u0002.",
+            "<\u0010user\u0010> plain text with no styling at all, which is the common case",
+            "<\u0010user\u0010> :) :( <3 ;)",
+    };
+
+    private Styliser styliser;
+
+    @Setup
+    public void setUp() {
+        final AggregateConfigProvider configManager = mock(AggregateConfigProvider.class);
+        when(configManager.getOptionBool("ui", "stylelinks")).thenReturn(true);
+        when(configManager.getOptionBool("ui", "stylechannels")).thenReturn(true);
+        when(configManager.getOptions("icon")).thenReturn(ImmutableMap.of(
+                "smilie-:)", "smile.png", "smilie-:(", "sad.png", "smilie-<3", "heart.png"));
+
+        final GroupChatManager groupChatManager = mock(GroupChatManager.class);
+        when(groupChatManager.getChannelPrefixes()).thenReturn("#&");
+        final Connection connection = mock(Connection.class);
+        when(connection.getGroupChatManager()).thenReturn(groupChatManager);
+
+        styliser = new Styliser(connection, configManager, new ColourManagerImpl(configManager));
+    }
+
+    @Benchmark
+    public void tokenizer(final Blackhole blackhole) {
+        style(blackhole, true);
+    }
+
+    @Benchmark
+    public void regexes(final Blackhole blackhole) {
+        style(blackhole, false);
+    }
+
+    private void style(final Blackhole blackhole, final boolean tokenize) {
+        final StyledMessageMaker<Void> maker = new BlackholeMessageMaker(blackhole);
+        for (String line : CORPUS) {
+            styliser.addStyledString(maker, tokenize, line);
+        }
+    }
+
+}
@@ -35,7 +35,6 @@ import com.dmdirc.config.provider.ConfigProviderMigrator;
 import com.dmdirc.parser.common.ChannelListModeItem;
 import com.dmdirc.parser.interfaces.ChannelClientInfo;
 import com.dmdirc.parser.interfaces.ChannelInfo;
-import com.dmdirc.parser.interfaces.Parser;
 import com.dmdirc.ui.core.components.WindowComponent;
 import com.dmdirc.ui.input.TabCompletionType;
 import com.dmdirc.ui.messages.BackBufferFactory;
@@ -118,6 +117,15 @@ public class Channel extends FrameContainer implements GroupChat {
         return channelInfo;
     }
 
+    /**
+     * Gets the handler which processes parser events for this channel.
+     *
+     * @return This channel's event handler.
+     */
+    ChannelEventHandler getEventHandler() {
+        return eventHandler;
+    }
+
     @Override
     public boolean isOnChannel() {
         return isOnChannel;
@@ -248,6 +256,7 @@ public class Channel extends FrameContainer implements GroupChat {
         }
 
         setIcon("channel-inactive");
+        groupChatUserManager.removeUsers(this);
 
         // Needs to be published synchronously so that nicklists are cleared before the parser
         // is disconnected (which happens synchronously after this method returns).
@@ -262,9 +271,6 @@ public class Channel extends FrameContainer implements GroupChat {
         // Remove any callbacks or listeners
         eventHandler.unregisterCallbacks();
 
-        connection.getParser().map(Parser::getCallbackManager)
-                .ifPresent(cm -> cm.unsubscribe(eventHandler));
-
         // Trigger any actions neccessary
         if (isOnChannel && connection.getState() != ServerState.CLOSING) {
             part(getConfigManager().getOption("general", "partmessage"));
@@ -272,6 +278,8 @@ public class Channel extends FrameContainer implements GroupChat {
 
         // Trigger action for the window closing
         getEventBus().publish(new ChannelClosedEvent(this));
+
+        groupChatUserManager.removeUsers(this);
     }
 
     /**
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc;
+
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.parser.events.ChannelActionEvent;
+import com.dmdirc.parser.events.ChannelCTCPEvent;
+import com.dmdirc.parser.events.ChannelJoinEvent;
+import com.dmdirc.parser.events.ChannelKickEvent;
+import com.dmdirc.parser.events.ChannelListModeEvent;
+import com.dmdirc.parser.events.ChannelMessageEvent;
+import com.dmdirc.parser.events.ChannelModeChangeEvent;
+import com.dmdirc.parser.events.ChannelModeNoticeEvent;
+import com.dmdirc.parser.events.ChannelNamesEvent;
+import com.dmdirc.parser.events.ChannelNickChangeEvent;
+import com.dmdirc.parser.events.ChannelNoticeEvent;
+import com.dmdirc.parser.events.ChannelPartEvent;
+import com.dmdirc.parser.events.ChannelQuitEvent;
+import com.dmdirc.parser.events.ChannelTopicEvent;
+import com.dmdirc.parser.events.ChannelUserModeChangeEvent;
+import com.dmdirc.parser.events.OtherAwayStateEvent;
+import com.dmdirc.parser.interfaces.ChannelInfo;
+
+import java.util.Optional;
+
+import javax.annotation.Nonnull;
+
+import net.engio.mbassy.listener.Handler;
+
+/**
+ * Receives channel events from a connection's parser and routes each one to the
+ * {@link ChannelEventHandler} of the channel it relates to.
+ *
+ * <p>A single dispatcher is registered per connection, so the cost of delivering a channel event
+ * does not depend on the number of channels that are open.
+ */
+public class ChannelEventDispatcher extends EventHandler {
+
+    /** The connection that this dispatcher handles events for. */
+    private final Connection connection;
+    /** The channels to route events to. */
+    private final ChannelMap channels;
+
+    public ChannelEventDispatcher(final Connection connection, final ChannelMap channels) {
+        this.connection = connection;
+        this.channels = channels;
+    }
+
+    @Nonnull
+    @Override
+    protected Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Finds the event handler of the channel corresponding to the given parser channel.
+     *
+     * @param channelInfo The parser's channel object
+     *
+     * @return The event handler of the matching channel, if one is open.
+     */
+    private Optional<ChannelEventHandler> getHandler(final ChannelInfo channelInfo) {
+        return channels.get(channelInfo.getName()).map(Channel::getEventHandler);
+    }
+
+    @Handler
+    public void onChannelMessage(final ChannelMessageEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelMessage(event));
+    }
+
+    @Handler
+    public void onChannelGotNames(final ChannelNamesEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelGotNames(event));
+    }
+
+    @Handler
+    public void onChannelTopic(final ChannelTopicEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelTopic(event));
+    }
+
+    @Handler
+    public void onChannelJoin(final ChannelJoinEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelJoin(event));
+    }
+
+    @Handler
+    public void onChannelPart(final ChannelPartEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelPart(event));
+    }
+
+    @Handler
+    public void onChannelKick(final ChannelKickEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelKick(event));
+    }
+
+    @Handler
+    public void onChannelQuit(final ChannelQuitEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelQuit(event));
+    }
+
+    @Handler
+    public void onChannelAction(final ChannelActionEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelAction(event));
+    }
+
+    @Handler
+    public void onChannelNickChanged(final ChannelNickChangeEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelNickChanged(event));
+    }
+
+    @Handler
+    public void onChannelUserModeChanged(final ChannelUserModeChangeEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelUserModeChanged(event));
+    }
+
+    @Handler
+    public void onChannelModeChanged(final ChannelModeChangeEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelModeChanged(event));
+    }
+
+    @Handler
+    public void onChannelCTCP(final ChannelCTCPEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelCTCP(event));
+    }
+
+    @Handler
+    public void onAwayStateOther(final OtherAwayStateEvent event) {
+        // Away state changes aren't tied to a channel; each channel checks for the user itself.
+        channels.getAll().forEach(c -> c.getEventHandler().onAwayStateOther(event));
+    }
+
+    @Handler
+    public void onChannelNotice(final ChannelNoticeEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelNotice(event));
+    }
+
+    @Handler
+    public void onChannelModeNotice(final ChannelModeNoticeEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelModeNotice(event));
+    }
+
+    @Handler
+    public void onChannelGotListModes(final ChannelListModeEvent event) {
+        getHandler(event.getChannel()).ifPresent(h -> h.onChannelGotListModes(event));
+    }
+
+}
@@ -64,10 +64,11 @@ import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 
-import net.engio.mbassy.listener.Handler;
-
 /**
  * Handles events for channel objects.
+ *
+ * <p>Parser events are delivered to this handler by the connection's
+ * {@link ChannelEventDispatcher}, rather than it being registered with the parser directly.
  */
 public class ChannelEventHandler extends EventHandler {
 
@@ -76,6 +77,8 @@ public class ChannelEventHandler extends EventHandler {
     /** Event bus to send events on. */
     private final EventBus eventBus;
     private final GroupChatUserManager groupChatUserManager;
+    /** Whether this handler is currently accepting events. */
+    private volatile boolean registered;
 
     public ChannelEventHandler(final Channel owner, final EventBus eventBus,
             final GroupChatUserManager groupChatUserManager) {
@@ -90,6 +93,22 @@ public class ChannelEventHandler extends EventHandler {
         return owner.getConnection().get();
     }
 
+    /**
+     * Starts handling events dispatched to this channel.
+     */
+    @Override
+    public void registerCallbacks() {
+        registered = true;
+    }
+
+    /**
+     * Stops handling events dispatched to this channel.
+     */
+    @Override
+    public void unregisterCallbacks() {
+        registered = false;
+    }
+
     /**
      * Determines if the specified client represents us.
      *
@@ -102,7 +121,6 @@ public class ChannelEventHandler extends EventHandler {
                 .map(c -> client.getClient().equals(c)).orElse(false);
     }
 
-    @Handler
     public void onChannelMessage(final com.dmdirc.parser.events.ChannelMessageEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -114,7 +132,6 @@ public class ChannelEventHandler extends EventHandler {
                 event.getMessage()));
     }
 
-    @Handler
     public void onChannelGotNames(final ChannelNamesEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -126,7 +143,6 @@ public class ChannelEventHandler extends EventHandler {
         eventBus.publishAsync(new ChannelGotNamesEvent(event.getDate(), owner));
     }
 
-    @Handler
     public void onChannelTopic(final ChannelTopicEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -172,7 +188,6 @@ public class ChannelEventHandler extends EventHandler {
         }
     }
 
-    @Handler
     public void onChannelJoin(final com.dmdirc.parser.events.ChannelJoinEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -184,7 +199,6 @@ public class ChannelEventHandler extends EventHandler {
         owner.addClient(groupChatUserManager.getUserFromClient(event.getClient(), owner));
     }
 
-    @Handler
     public void onChannelPart(final com.dmdirc.parser.events.ChannelPartEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -202,9 +216,9 @@ public class ChannelEventHandler extends EventHandler {
                     groupChatUserManager.getUserFromClient(client, owner), reason));
         }
         owner.removeClient(groupChatUserManager.getUserFromClient(client, owner));
+        groupChatUserManager.removeUser(client, owner);
     }
 
-    @Handler
     public void onChannelKick(final com.dmdirc.parser.events.ChannelKickEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -216,9 +230,9 @@ public class ChannelEventHandler extends EventHandler {
                 groupChatUserManager.getUserFromClient(event.getClient(), owner),
                 groupChatUserManager.getUserFromClient(kickedClient, owner), event.getReason()));
         owner.removeClient(groupChatUserManager.getUserFromClient(kickedClient, owner));
+        groupChatUserManager.removeUser(kickedClient, owner);
     }
 
-    @Handler
     public void onChannelQuit(final com.dmdirc.parser.events.ChannelQuitEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -229,9 +243,9 @@ public class ChannelEventHandler extends EventHandler {
                 groupChatUserManager.getUserFromClient(event.getClient(), owner),
                 event.getReason()));
         owner.removeClient(groupChatUserManager.getUserFromClient(event.getClient(), owner));
+        groupChatUserManager.removeUser(event.getClient(), owner);
     }
 
-    @Handler
     public void onChannelAction(final com.dmdirc.parser.events.ChannelActionEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -243,7 +257,6 @@ public class ChannelEventHandler extends EventHandler {
                 event.getMessage()));
     }
 
-    @Handler
     public void onChannelNickChanged(final com.dmdirc.parser.events.ChannelNickChangeEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -267,7 +280,6 @@ public class ChannelEventHandler extends EventHandler {
         }
     }
 
-    @Handler
     public void onChannelUserModeChanged(final com.dmdirc.parser.events.ChannelUserModeChangeEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -280,7 +292,6 @@ public class ChannelEventHandler extends EventHandler {
         eventBus.publishAsync(new ChannelUserModeChangeEvent(date, owner, client, targetClient, event.getMode()));
     }
 
-    @Handler
     public void onChannelModeChanged(final com.dmdirc.parser.events.ChannelModeChangeEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -309,7 +320,6 @@ public class ChannelEventHandler extends EventHandler {
         owner.refreshClients();
     }
 
-    @Handler
     public void onChannelCTCP(final ChannelCTCPEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -328,8 +338,11 @@ public class ChannelEventHandler extends EventHandler {
         }
     }
 
-    @Handler
     public void onAwayStateOther(final OtherAwayStateEvent event) {
+        if (!registered) {
+            return;
+        }
+
         owner.getUser(owner.getConnection().get().getUser(event.getClient().getNickname()))
                 .ifPresent(c -> {
                     if (event.getNewState() == AwayState.AWAY) {
@@ -342,7 +355,6 @@ public class ChannelEventHandler extends EventHandler {
                 });
     }
 
-    @Handler
     public void onChannelNotice(final com.dmdirc.parser.events.ChannelNoticeEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -354,7 +366,6 @@ public class ChannelEventHandler extends EventHandler {
                 event.getMessage()));
     }
 
-    @Handler
     public void onChannelModeNotice(final com.dmdirc.parser.events.ChannelModeNoticeEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -366,7 +377,6 @@ public class ChannelEventHandler extends EventHandler {
                 (event.getPrefix()), event.getMessage()));
     }
 
-    @Handler
     public void onChannelGotListModes(final ChannelListModeEvent event) {
         if (!checkChannel(event.getChannel())) {
             return;
@@ -377,7 +387,7 @@ public class ChannelEventHandler extends EventHandler {
     }
 
     private boolean checkChannel(final ChannelInfo channelInfo) {
-        return owner.getChannelInfo().equals(channelInfo);
+        return registered && owner.getChannelInfo().equals(channelInfo);
     }
 
 }
@@ -26,10 +26,14 @@ import com.dmdirc.parser.interfaces.ClientInfo;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Implementation of a {@link User}.
+ *
+ * <p>Clients hold no state of their own, so two clients for the same connection and parser
+ * {@link ClientInfo} are equal.
  */
 public class Client implements User {
 
@@ -103,4 +107,18 @@ public class Client implements User {
     public ClientInfo getClientInfo() {
         return clientInfo;
     }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof Client)) {
+            return false;
+        }
+        final Client other = (Client) obj;
+        return connection.equals(other.connection) && clientInfo.equals(other.clientInfo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connection, clientInfo);
+    }
 }
@@ -37,20 +37,26 @@ import com.dmdirc.util.system.LifecycleController;
 import com.dmdirc.config.provider.AggregateConfigProvider;
 import com.dmdirc.interfaces.config.IdentityController;
 import com.dmdirc.plugins.PluginModule;
+import com.dmdirc.ui.input.TabCompleterFactory;
 import com.dmdirc.ui.messages.ColourManager;
 import com.dmdirc.ui.messages.ColourManagerFactory;
 import com.dmdirc.ui.messages.UiMessagesModule;
 import com.dmdirc.ui.themes.ThemeManager;
 import com.dmdirc.updater.UpdaterModule;
+import com.dmdirc.util.ClientMetrics;
+import com.dmdirc.util.HashedWheelTimer;
 import com.dmdirc.util.LoggingExecutorService;
+import com.dmdirc.util.ShardedEventBus;
+import com.dmdirc.util.SharedScheduledExecutorService;
 import com.dmdirc.util.io.Downloader;
 import com.dmdirc.util.system.SystemInfo;
+import com.dmdirc.util.system.SystemLifecycleComponent;
 import dagger.Module;
 import dagger.ObjectGraph;
 import dagger.Provides;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Named;
-import javax.inject.Provider;
 import javax.inject.Singleton;
 
 /**
@@ -95,8 +101,43 @@ public class ClientModule {
 
     @Provides
     @Singleton
-    public EventBus getMBassador() {
-        return new MBassadorEventBus();
+    public EventBus getMBassador(final ClientMetrics metrics) {
+        // The sharded bus only ever publishes synchronously on the delegate, so MBassador does
+        // not need any dispatcher threads of its own. One shard is used per processor by default;
+        // the com.dmdirc.eventbus.threads system property overrides this, and setting it to 1
+        // restores strictly sequential delivery of asynchronous events.
+        final ShardedEventBus eventBus = new ShardedEventBus(new MBassadorEventBus(0),
+                Integer.getInteger("com.dmdirc.eventbus.threads",
+                        Runtime.getRuntime().availableProcessors()));
+        metrics.registerGauge("eventbus.shards", eventBus::getShardCount);
+        metrics.registerGauge("eventbus.queue.depth", eventBus::getQueueDepth);
+        metrics.registerGauge("eventbus.dispatched", eventBus::getDispatchedEventCount);
+        metrics.registerGauge("eventbus.dispatch.mean.ns", eventBus::getMeanDispatchTime);
+        metrics.registerGauge("eventbus.dispatch.max.ns", eventBus::getMaxDispatchTime);
+        return eventBus;
+    }
+
+    @Provides
+    @Singleton
+    public HashedWheelTimer getTimer() {
+        return new HashedWheelTimer(100, TimeUnit.MILLISECONDS, 512, "Timeout timer");
+    }
+
+    @Provides
+    @Singleton
+    public SharedScheduledExecutorService getServerScheduler(final ClientMetrics metrics) {
+        final SharedScheduledExecutorService scheduler = new SharedScheduledExecutorService(
+                Integer.getInteger("com.dmdirc.servers.threads", 2), 1, TimeUnit.SECONDS,
+                "server-timer");
+        metrics.registerGauge("scheduler.pending", scheduler::getPendingTaskCount);
+        metrics.registerGauge("scheduler.late", scheduler::getLateTaskCount);
+        metrics.registerGauge("scheduler.lateness.max.ns", scheduler::getMaxLateness);
+        return scheduler;
+    }
+
+    @Provides(type = Provides.Type.SET)
+    public SystemLifecycleComponent getMetricsLifecycleComponent(final ClientMetrics metrics) {
+        return metrics;
     }
 
     @Provides
@@ -107,10 +148,9 @@ public class ClientModule {
     @Provides
     @Singleton
     public CommandManager getCommandManager(
-            final ConnectionManager connectionManager,
-            final Provider<GlobalWindow> globalWindowProvider,
+            final TabCompleterFactory tabCompleterFactory,
             @GlobalConfig final AggregateConfigProvider globalConfig) {
-        final CommandManager manager = new CommandManager(connectionManager, globalWindowProvider);
+        final CommandManager manager = new CommandManager(tabCompleterFactory);
         manager.initialise(globalConfig);
         return manager;
     }
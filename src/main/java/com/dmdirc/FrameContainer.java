@@ -65,7 +65,7 @@ public class FrameContainer implements WindowModel {
     /** Event bus to dispatch events to. */
     private final EventBus eventBus;
     /** The manager handling this frame's unread status. */
-    private final UnreadStatusManager unreadStatusManager;
+    private final UnreadStatusManagerImpl unreadStatusManager;
     /** The back buffer factory. */
     private final BackBufferFactory backBufferFactory;
     /** The back buffer for this container. */
@@ -96,7 +96,6 @@ public class FrameContainer implements WindowModel {
 
         this.eventBus = eventBus;
         this.unreadStatusManager = new UnreadStatusManagerImpl(this);
-        this.eventBus.subscribe(unreadStatusManager);
         configManager.getBinder().bind(unreadStatusManager, UnreadStatusManagerImpl.class);
 
         setIcon(icon);
@@ -105,6 +104,7 @@ public class FrameContainer implements WindowModel {
     protected void initBackBuffer() {
         backBuffer = backBufferFactory.getBackBuffer(this);
         backBuffer.startAddingEvents();
+        backBufferFactory.getEventRouter().addUnreadStatusManager(this, unreadStatusManager);
     }
 
     @Override
@@ -202,7 +202,7 @@ public class FrameContainer implements WindowModel {
 
     @Override
     public void close() {
-        eventBus.unsubscribe(unreadStatusManager);
+        backBufferFactory.getEventRouter().removeUnreadStatusManager(this);
         configManager.getBinder().unbind(unreadStatusManager);
         eventBus.publish(new FrameClosingEvent(this));
         backBuffer.stopAddingEvents();
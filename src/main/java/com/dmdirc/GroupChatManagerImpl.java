@@ -56,12 +56,30 @@ public class GroupChatManagerImpl implements GroupChatManager {
     /** A set of channels we want to join without focusing. */
     private final Collection<String> backgroundChannels = new HashSet<>();
 
+    /** Dispatcher that routes parser channel events to the relevant channel. */
+    private final ChannelEventDispatcher eventDispatcher;
+
     public GroupChatManagerImpl(final Connection connection,
             final IdentityFactory identityFactory,
             final ChannelFactory channelFactory) {
         this.connection = connection;
         this.identityFactory = identityFactory;
         this.channelFactory = channelFactory;
+        this.eventDispatcher = new ChannelEventDispatcher(connection, channels);
+    }
+
+    /**
+     * Registers the channel event dispatcher with the connection's parser.
+     */
+    public void registerCallbacks() {
+        eventDispatcher.registerCallbacks();
+    }
+
+    /**
+     * Unregisters the channel event dispatcher from the connection's parser.
+     */
+    public void unregisterCallbacks() {
+        eventDispatcher.unregisterCallbacks();
     }
 
     @Override
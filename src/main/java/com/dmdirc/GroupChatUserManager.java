@@ -21,33 +21,50 @@ import com.dmdirc.interfaces.GroupChat;
 import com.dmdirc.interfaces.GroupChatUser;
 import com.dmdirc.interfaces.User;
 import com.dmdirc.parser.interfaces.ChannelClientInfo;
+import com.dmdirc.parser.interfaces.ClientInfo;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
+ * Caches the {@link GroupChatUser}s created for each parser {@link ChannelClientInfo}, so that
+ * the same client in a channel is always represented by the same user.
  *
+ * <p>Users are created the first time they are requested, and are released when the client
+ * leaves the channel or the channel is reset or closed. Each group chat user retains the client's
+ * {@link User} in the {@link UserManager}, which releases it once no channel retains it.
  */
 @Singleton
 public class GroupChatUserManager {
 
     private final GroupChatUserFactory groupChatUserFactory;
     private final UserManager userManager;
-    private final Map<ChannelClientInfo, GroupChatUser> userCache;
+    /** Cached users, keyed on group chat and then client. */
+    private final Map<GroupChat, Map<ChannelClientInfo, GroupChatUser>> userCache =
+            new ConcurrentHashMap<>();
+    /** The number of lookups that found a cached user. */
+    private final LongAdder hits = new LongAdder();
+    /** The number of lookups that had to create a user. */
+    private final LongAdder misses = new LongAdder();
 
     @Inject
     public GroupChatUserManager(final GroupChatUserFactory groupChatUserFactory,
             final UserManager userManager) {
         this.groupChatUserFactory = groupChatUserFactory;
         this.userManager = userManager;
-        userCache = new HashMap<>();
     }
 
     public GroupChatUser getUserFromClient(final ChannelClientInfo client,
             final GroupChat groupChat) {
+        final GroupChatUser user = getCachedUser(client, groupChat);
+        if (user != null) {
+            return user;
+        }
+
         return getUserFromClient(client,
                 userManager.getUserFromClientInfo(client.getClient(),
                         groupChat.getConnection().get()), groupChat);
@@ -55,7 +72,84 @@ public class GroupChatUserManager {
 
     public GroupChatUser getUserFromClient(final ChannelClientInfo client,
             final User user, final GroupChat groupChat) {
-        userCache.putIfAbsent(client, groupChatUserFactory.getGroupChatUser(user, groupChat, client));
-        return userCache.get(client);
+        final GroupChatUser cached = getCachedUser(client, groupChat);
+        if (cached != null) {
+            return cached;
+        }
+
+        return userCache.computeIfAbsent(groupChat, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(client, k -> {
+                    misses.increment();
+                    groupChat.getConnection().ifPresent(
+                            c -> userManager.retainUser(client.getClient(), c));
+                    return groupChatUserFactory.getGroupChatUser(user, groupChat, client);
+                });
+    }
+
+    /**
+     * Releases the cached user for a client that has left a group chat.
+     *
+     * @param client    The client that left.
+     * @param groupChat The group chat that the client left.
+     */
+    public void removeUser(final ChannelClientInfo client, final GroupChat groupChat) {
+        final Map<ChannelClientInfo, GroupChatUser> users = userCache.get(groupChat);
+        if (users != null && users.remove(client) != null) {
+            release(client.getClient(), groupChat);
+        }
+    }
+
+    /**
+     * Releases all cached users for a group chat that has been reset or closed.
+     *
+     * @param groupChat The group chat whose users should be released.
+     */
+    public void removeUsers(final GroupChat groupChat) {
+        final Map<ChannelClientInfo, GroupChatUser> users = userCache.remove(groupChat);
+        if (users != null) {
+            users.keySet().forEach(client -> release(client.getClient(), groupChat));
+        }
+    }
+
+    /**
+     * Gets the number of users currently cached.
+     *
+     * @return The number of cached users across all group chats.
+     */
+    public int getCacheSize() {
+        return userCache.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Gets the number of lookups that returned an existing user.
+     *
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that created a new user.
+     *
+     * @return The number of cache misses.
+     */
+    public long getCacheMisses() {
+        return misses.sum();
     }
+
+    private GroupChatUser getCachedUser(final ChannelClientInfo client,
+            final GroupChat groupChat) {
+        final Map<ChannelClientInfo, GroupChatUser> users = userCache.get(groupChat);
+        final GroupChatUser user = users == null ? null : users.get(client);
+        if (user != null) {
+            hits.increment();
+        }
+        return user;
+    }
+
+    private void release(final ClientInfo client, final GroupChat groupChat) {
+        groupChat.getConnection().ifPresent(c -> userManager.releaseUser(client, c));
+    }
+
 }
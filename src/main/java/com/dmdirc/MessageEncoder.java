@@ -17,14 +17,24 @@
 
 package com.dmdirc;
 
+import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.config.provider.ConfigChangeListener;
 import com.dmdirc.interfaces.Connection;
 import com.dmdirc.interfaces.GroupChat;
-import com.dmdirc.interfaces.WindowModel;
 import com.dmdirc.parser.interfaces.Encoder;
 import com.dmdirc.parser.interfaces.Parser;
 import com.dmdirc.util.LogUtils;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,14 +42,30 @@ import org.slf4j.LoggerFactory;
 /**
  * An {@link Encoder} implementation that reads the desired encoding from the relevant target's
  * config file.
+ *
+ * <p>Resolved charsets are cached for the connection and for each channel the connection is on,
+ * and are refreshed when the relevant "general.encoding" setting changes. The encoder listens to
+ * the config of the connection and of each cached channel, so it must be {@link #close() closed}
+ * once its parser is no longer in use.
  */
 public class MessageEncoder implements Encoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(MessageEncoder.class);
+    /** The most recently used decoder on each thread. */
+    private static final ThreadLocal<CharsetDecoder> DECODERS = new ThreadLocal<>();
     /** The connection that owns this encoder. */
     private final Connection connection;
     /** The parser that this encoder will work for. */
     private final Parser parser;
+    /** Cached charsets for channel targets, keyed on the parser's lower-cased channel name. */
+    private final Map<String, ChannelCharset> channelCharsets = new ConcurrentHashMap<>();
+    /** Cached charset for the connection, or {@code null} if it needs resolving. */
+    @Nullable private volatile Charset connectionCharset;
+    /** Listener that discards the cached connection charset when the encoding changes. */
+    private final ConfigChangeListener connectionListener =
+            (domain, key) -> connectionCharset = null;
+    /** Whether this encoder has been closed. */
+    private boolean closed;
 
     /**
      * Creates a new instance of {@link MessageEncoder}.
@@ -50,28 +76,192 @@ public class MessageEncoder implements Encoder {
     public MessageEncoder(final Connection connection, final Parser parser) {
         this.connection = connection;
         this.parser = parser;
+
+        connection.getWindowModel().getConfigManager().addChangeListener("general", "encoding",
+                connectionListener);
+    }
+
+    /**
+     * Removes all of the config listeners this encoder has registered, and discards its cached
+     * charsets. The encoder can still be used afterwards, but will no longer cache channel
+     * charsets.
+     */
+    public synchronized void close() {
+        closed = true;
+        connection.getWindowModel().getConfigManager().removeListener(connectionListener);
+        channelCharsets.values().forEach(ChannelCharset::removeListener);
+        channelCharsets.clear();
     }
 
     @Override
     public String encode(final String source, final String target,
             final byte[] message, final int offset, final int length) {
-        String encoding = connection.getWindowModel().getConfigManager()
-                .getOption("general", "encoding");
-
-        if (target != null && parser.isValidChannelName(target)) {
-            encoding = connection.getGroupChatManager().getChannel(target)
-                    .map(GroupChat::getWindowModel)
-                    .map(WindowModel::getConfigManager)
-                    .map(cm -> cm.getOption("general", "encoding"))
-                    .orElse(encoding);
+        Charset charset = null;
+
+        if (target != null) {
+            final String channelKey = parser.getStringConverter().toLowerCase(target);
+            final ChannelCharset cached = channelCharsets.get(channelKey);
+            if (cached != null && cached.channel.isOnChannel()) {
+                charset = cached.charset;
+            } else if (parser.isValidChannelName(target)) {
+                charset = getChannelCharset(target, channelKey);
+            }
+        }
+
+        if (charset == null) {
+            charset = getConnectionCharset();
+        }
+
+        try {
+            return getDecoder(charset).decode(ByteBuffer.wrap(message, offset, length)).toString();
+        } catch (CharacterCodingException ex) {
+            // Shouldn't happen, as our decoders replace malformed input.
+            return new String(message, offset, length, charset);
+        }
+    }
+
+    /**
+     * Resolves the charset to use for the specified channel, and caches it if we're on the
+     * channel.
+     *
+     * @param target     The name of the channel
+     * @param channelKey The key to cache the channel's charset under
+     *
+     * @return The channel's charset, or {@code null} to use the connection's charset
+     */
+    @Nullable
+    private Charset getChannelCharset(final String target, final String channelKey) {
+        final Optional<GroupChat> channel = connection.getGroupChatManager().getChannel(target);
+        if (!channel.isPresent()) {
+            return null;
+        }
+
+        final GroupChat groupChat = channel.get();
+        final AggregateConfigProvider configManager =
+                groupChat.getWindowModel().getConfigManager();
+        final Charset charset = getCharset(configManager);
+
+        if (groupChat.isOnChannel()) {
+            cacheChannelCharset(channelKey, groupChat, configManager, charset);
+        }
+
+        return charset;
+    }
+
+    /**
+     * Caches the charset for a channel, listening for changes to the channel's encoding if the
+     * channel isn't already cached.
+     *
+     * @param channelKey    The key to cache the channel's charset under
+     * @param groupChat     The channel the charset was resolved for
+     * @param configManager The channel's config
+     * @param charset       The resolved charset
+     */
+    private synchronized void cacheChannelCharset(final String channelKey,
+            final GroupChat groupChat, final AggregateConfigProvider configManager,
+            final Charset charset) {
+        if (closed) {
+            return;
         }
 
+        final ChannelCharset cached = channelCharsets.get(channelKey);
+        final ConfigChangeListener listener;
+        if (cached != null && cached.channel == groupChat) {
+            listener = cached.listener;
+        } else {
+            if (cached != null) {
+                cached.removeListener();
+            }
+            listener = (domain, key) -> channelCharsets.computeIfPresent(channelKey,
+                    (k, c) -> c.channel == groupChat
+                            ? new ChannelCharset(groupChat, configManager, c.listener,
+                                    getCharset(configManager))
+                            : c);
+            configManager.addChangeListener("general", "encoding", listener);
+        }
+        channelCharsets.put(channelKey,
+                new ChannelCharset(groupChat, configManager, listener, charset));
+    }
+
+    /**
+     * Gets the charset to use for the connection, resolving it if required.
+     *
+     * @return The connection's charset
+     */
+    private Charset getConnectionCharset() {
+        Charset charset = connectionCharset;
+        if (charset == null) {
+            charset = getCharset(connection.getWindowModel().getConfigManager());
+            connectionCharset = charset;
+        }
+        return charset;
+    }
+
+    /**
+     * Resolves the charset specified by the given config.
+     *
+     * @param configManager The config to read the encoding from
+     *
+     * @return The configured charset, or the platform default if it isn't supported
+     */
+    private static Charset getCharset(final AggregateConfigProvider configManager) {
+        final String encoding = configManager.getOption("general", "encoding");
         try {
-            return new String(message, offset, length, encoding);
-        } catch (UnsupportedEncodingException ex) {
+            return Charset.forName(encoding);
+        } catch (IllegalArgumentException ex) {
             LOG.warn(LogUtils.USER_ERROR, "Unsupported encoding: {}", encoding, ex);
-            return new String(message, offset, length);
+            return Charset.defaultCharset();
+        }
+    }
+
+    /**
+     * Gets a decoder for the specified charset, reusing this thread's previous decoder if it
+     * was for the same charset.
+     *
+     * @param charset The charset to decode
+     *
+     * @return A decoder that replaces malformed and unmappable input
+     */
+    private static CharsetDecoder getDecoder(final Charset charset) {
+        CharsetDecoder decoder = DECODERS.get();
+        if (decoder == null || !decoder.charset().equals(charset)) {
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            DECODERS.set(decoder);
         }
+        return decoder;
+    }
+
+    /**
+     * A charset resolved for a channel.
+     */
+    private static class ChannelCharset {
+
+        /** The channel the charset was resolved for. */
+        private final GroupChat channel;
+        /** The channel's config. */
+        private final AggregateConfigProvider configManager;
+        /** The listener registered with the channel's config. */
+        private final ConfigChangeListener listener;
+        /** The resolved charset. */
+        private final Charset charset;
+
+        ChannelCharset(final GroupChat channel, final AggregateConfigProvider configManager,
+                final ConfigChangeListener listener, final Charset charset) {
+            this.channel = channel;
+            this.configManager = configManager;
+            this.listener = listener;
+            this.charset = charset;
+        }
+
+        /**
+         * Removes the listener registered with the channel's config.
+         */
+        void removeListener() {
+            configManager.removeListener(listener);
+        }
+
     }
 
 }
@@ -46,6 +46,10 @@ import com.dmdirc.parser.interfaces.ProtocolDescription;
 import com.dmdirc.parser.interfaces.SecureParser;
 import com.dmdirc.parser.interfaces.StringConverter;
 import com.dmdirc.tls.CertificateManager;
+import com.dmdirc.tls.KeyManagerCache;
+import com.dmdirc.tls.TrustedCertificateStore;
+import com.dmdirc.ui.input.TabCompleter;
+import com.dmdirc.ui.input.TabCompleterImpl;
 import com.dmdirc.ui.input.TabCompletionType;
 import com.dmdirc.ui.messages.Formatter;
 import com.dmdirc.ui.messages.HighlightManager;
@@ -100,6 +104,10 @@ public class Server implements Connection {
     private final Map<String, Query> queries = new ConcurrentSkipListMap<>();
     /** The user manager to retrieve users from. */
     private final UserManager userManager;
+    /** The store of globally trusted certificates. */
+    private final TrustedCertificateStore trustedCertificates;
+    /** The cache of client certificate key managers. */
+    private final KeyManagerCache keyManagerCache;
 
     /** The Parser instance handling this server. */
     @Nonnull
@@ -107,6 +115,9 @@ public class Server implements Connection {
     /** The Parser instance that used to be handling this server. */
     @Nonnull
     private Optional<Parser> oldParser = Optional.empty();
+    /** The encoder used by the current parser, if it supports encoders. */
+    @Nonnull
+    private Optional<MessageEncoder> messageEncoder = Optional.empty();
     /** The parser-supplied protocol description object. */
     @Nonnull
     private Optional<ProtocolDescription> protocolDescription = Optional.empty();
@@ -178,7 +189,9 @@ public class Server implements Connection {
             final ScheduledExecutorService executorService,
             @Nonnull final URI uri,
             @Nonnull final Profile profile,
-            final UserManager userManager) {
+            final UserManager userManager,
+            final TrustedCertificateStore trustedCertificates,
+            final KeyManagerCache keyManagerCache) {
         this.windowModel = windowModel;
         this.parserFactory = parserFactory;
         this.identityFactory = identityFactory;
@@ -188,6 +201,8 @@ public class Server implements Connection {
         this.userSettings = userSettings;
         this.messageEncoderFactory = messageEncoderFactory;
         this.userManager = userManager;
+        this.trustedCertificates = trustedCertificates;
+        this.keyManagerCache = keyManagerCache;
         this.groupChatManager = groupChatManagerFactory.create(this);
         this.inviteManager = new InviteManagerImpl(this);
 
@@ -523,7 +538,8 @@ public class Server implements Connection {
         if (myParser instanceof SecureParser) {
             final CertificateManager certificateManager =
                     new CertificateManager(this, address.getHost(), windowModel.getConfigManager(),
-                            userSettings, windowModel.getEventBus());
+                            userSettings, windowModel.getEventBus(), trustedCertificates,
+                            keyManagerCache);
             final SecureParser secureParser = (SecureParser) myParser;
             secureParser.setTrustManagers(certificateManager);
             secureParser.setKeyManagers(certificateManager.getKeyManager());
@@ -531,12 +547,23 @@ public class Server implements Connection {
 
         if (myParser instanceof EncodingParser) {
             final EncodingParser encodingParser = (EncodingParser) myParser;
-            encodingParser.setEncoder(messageEncoderFactory.getMessageEncoder(this, myParser));
+            final MessageEncoder encoder = messageEncoderFactory.getMessageEncoder(this, myParser);
+            encodingParser.setEncoder(encoder);
+            messageEncoder = Optional.of(encoder);
         }
 
         return myParser;
     }
 
+    /**
+     * Closes the current parser's message encoder, if any, so that it stops listening for
+     * encoding changes.
+     */
+    private void closeMessageEncoder() {
+        messageEncoder.ifPresent(MessageEncoder::close);
+        messageEncoder = Optional.empty();
+    }
+
     @Override
     public boolean compareURI(final URI uri) {
         return parser.map(p -> p.compareURI(uri)).orElse(
@@ -558,6 +585,7 @@ public class Server implements Connection {
      */
     private void doCallbacks() {
         eventHandler.registerCallbacks();
+        groupChatManager.registerCallbacks();
         queries.values().forEach(Query::reregister);
     }
 
@@ -675,6 +703,8 @@ public class Server implements Connection {
         if (event.getSource().equals(windowModel)) {
             synchronized (myStateLock) {
                 eventHandler.unregisterCallbacks();
+                groupChatManager.unregisterCallbacks();
+                userManager.removeUsers(this);
                 windowModel.getConfigManager().removeListener(configListener);
                 windowModel.getEventBus().unsubscribe(groupChatManager);
                 windowModel.getEventBus().unsubscribe(highlightManager);
@@ -685,6 +715,7 @@ public class Server implements Connection {
                 }
 
                 disconnect();
+                closeMessageEncoder();
 
                 myState.transition(ServerState.CLOSING);
             }
@@ -755,6 +786,7 @@ public class Server implements Connection {
         windowModel.getEventBus().publish(new ServerDisconnectedEvent(this));
 
         eventHandler.unregisterCallbacks();
+        groupChatManager.unregisterCallbacks();
 
         synchronized (myStateLock) {
             if (myState.getState() == ServerState.CLOSING
@@ -778,6 +810,7 @@ public class Server implements Connection {
                     oldParser.get().shutdown();
                 }
                 parser = Optional.empty();
+                closeMessageEncoder();
             } finally {
                 parserLock.writeLock().unlock();
             }
@@ -830,6 +863,7 @@ public class Server implements Connection {
                     oldParser.get().shutdown();
                 }
                 parser = Optional.empty();
+                closeMessageEncoder();
             } finally {
                 parserLock.writeLock().unlock();
             }
@@ -899,6 +933,10 @@ public class Server implements Connection {
             updateIgnoreList();
 
             converter = parser.get().getStringConverter();
+            final TabCompleter tabCompleter = windowModel.getInputModel().get().getTabCompleter();
+            if (tabCompleter instanceof TabCompleterImpl) {
+                ((TabCompleterImpl) tabCompleter).setStringConverter(converter);
+            }
             groupChatManager.handleConnected();
         }
 
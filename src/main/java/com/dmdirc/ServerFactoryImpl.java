@@ -26,6 +26,8 @@ import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.config.provider.ConfigProvider;
 import com.dmdirc.config.provider.ConfigProviderMigrator;
 import com.dmdirc.interfaces.config.IdentityFactory;
+import com.dmdirc.tls.KeyManagerCache;
+import com.dmdirc.tls.TrustedCertificateStore;
 import com.dmdirc.ui.core.components.WindowComponent;
 import com.dmdirc.ui.input.TabCompleterFactory;
 import com.dmdirc.ui.messages.BackBufferFactory;
@@ -55,6 +57,8 @@ public class ServerFactoryImpl {
     private final BackBufferFactory backBufferFactory;
     private final GroupChatManagerImplFactory groupChatManagerFactory;
     private final UserManager userManager;
+    private final TrustedCertificateStore trustedCertificates;
+    private final KeyManagerCache keyManagerCache;
 
     @Inject
     public ServerFactoryImpl(
@@ -68,7 +72,9 @@ public class ServerFactoryImpl {
             @UserConfig final ConfigProvider userSettings,
             final BackBufferFactory backBufferFactory,
             final GroupChatManagerImplFactory groupChatManagerFactory,
-            final UserManager userManager) {
+            final UserManager userManager,
+            final TrustedCertificateStore trustedCertificates,
+            final KeyManagerCache keyManagerCache) {
         this.parserFactory = parserFactory;
         this.tabCompleterFactory = tabCompleterFactory;
         this.identityFactory = identityFactory;
@@ -80,6 +86,8 @@ public class ServerFactoryImpl {
         this.backBufferFactory = backBufferFactory;
         this.groupChatManagerFactory = groupChatManagerFactory;
         this.userManager = userManager;
+        this.trustedCertificates = trustedCertificates;
+        this.keyManagerCache = keyManagerCache;
     }
 
     public Server getServer(
@@ -96,7 +104,7 @@ public class ServerFactoryImpl {
         final Server server = new Server(windowModel, configMigrator, parserFactory,
                 identityFactory, queryFactory.get(),
                 messageEncoderFactory, userSettings, groupChatManagerFactory, executorService,
-                uri, profile, userManager);
+                uri, profile, userManager, trustedCertificates, keyManagerCache);
         windowModel.setConnection(server);
         windowModel.initBackBuffer();
         windowModel.setInputModel(new DefaultInputModel(
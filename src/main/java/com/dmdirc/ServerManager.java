@@ -20,6 +20,7 @@ package com.dmdirc;
 import com.dmdirc.config.profiles.Profile;
 import com.dmdirc.config.profiles.ProfileManager;
 import com.dmdirc.events.FrameClosingEvent;
+import com.dmdirc.events.ServerConnectingEvent;
 import com.dmdirc.interfaces.Connection;
 import com.dmdirc.interfaces.ConnectionManager;
 import com.dmdirc.events.eventbus.EventBus;
@@ -28,18 +29,19 @@ import com.dmdirc.interfaces.config.IdentityFactory;
 import com.dmdirc.parser.common.ChannelJoinRequest;
 import com.dmdirc.parser.interfaces.Parser;
 import com.dmdirc.ui.WindowManager;
-
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.dmdirc.util.SharedScheduledExecutorService;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -62,6 +64,8 @@ public class ServerManager implements ConnectionManager {
     private static final Logger LOG = LoggerFactory.getLogger(ServerManager.class);
     /** All servers that currently exist. */
     private final Set<Connection> servers = new CopyOnWriteArraySet<>();
+    /** Servers indexed by the normalised form of the address they were last pointed at. */
+    private final Map<String, Connection> serversByAddress = new ConcurrentHashMap<>();
     /** The manager to use to find profiles. */
     private final ProfileManager profileManager;
     /** The identity factory to give to servers. */
@@ -72,6 +76,8 @@ public class ServerManager implements ConnectionManager {
     private final ServerFactoryImpl serverFactoryImpl;
     /** Event bus for servers. */
     private final EventBus eventBus;
+    /** Scheduler shared by all servers. */
+    private final SharedScheduledExecutorService scheduler;
 
     /**
      * Creates a new instance of ServerManager.
@@ -81,6 +87,7 @@ public class ServerManager implements ConnectionManager {
      * @param windowManager      Window manager to add new servers to.
      * @param serverFactory      The factory to use to create servers.
      * @param eventBus           The event bus to pass to servers.
+     * @param scheduler          The scheduler to run server tasks on.
      */
     @Inject
     public ServerManager(
@@ -88,12 +95,14 @@ public class ServerManager implements ConnectionManager {
             final IdentityFactory identityFactory,
             final WindowManager windowManager,
             final ServerFactoryImpl serverFactory,
-            final EventBus eventBus) {
+            final EventBus eventBus,
+            final SharedScheduledExecutorService scheduler) {
         this.profileManager = profileManager;
         this.identityFactory = identityFactory;
         this.windowManager = windowManager;
         this.serverFactoryImpl = serverFactory;
         this.eventBus = eventBus;
+        this.scheduler = scheduler;
         this.eventBus.subscribe(this);
     }
 
@@ -104,11 +113,11 @@ public class ServerManager implements ConnectionManager {
 
         final Connection server = serverFactoryImpl.getServer(
                 configProvider,
-                Executors.newScheduledThreadPool(1,
-                        new ThreadFactoryBuilder().setNameFormat("server-timer-%d").build()),
+                scheduler.newTaskGroup(),
                 uri,
                 profile);
         registerServer(server);
+        serversByAddress.put(getAddressKey(uri), server);
         windowManager.addWindow(server.getWindowModel());
         return server;
     }
@@ -130,6 +139,7 @@ public class ServerManager implements ConnectionManager {
      */
     void unregisterServer(final Server server) {
         servers.remove(server);
+        serversByAddress.values().removeIf(s -> s == server);
     }
 
     @Override
@@ -171,9 +181,7 @@ public class ServerManager implements ConnectionManager {
 
     @Override
     public Connection connectToAddress(final URI uri, final Profile profile) {
-        final Connection server = servers.stream()
-                .filter(s -> s.compareURI(uri)).findAny()
-                .orElse(createServer(uri, profile));
+        final Connection server = findServer(uri).orElseGet(() -> createServer(uri, profile));
 
         final Optional<Parser> parser = server.getParser();
         if (server.getState().isDisconnected() || !parser.isPresent()) {
@@ -188,6 +196,55 @@ public class ServerManager implements ConnectionManager {
         return server;
     }
 
+    /**
+     * Finds an existing server that would connect to the same place as the given URI.
+     *
+     * <p>The address index is consulted first. Because a server's address can change without the
+     * manager being told (for example if a different URI is given to
+     * {@link Connection#connect(URI, Profile)}), candidates from the index are confirmed with
+     * {@link Connection#compareURI(URI)}, and a full scan is performed if the index misses.
+     *
+     * @param uri The URI to find a server for.
+     *
+     * @return The matching server, if one exists.
+     */
+    private Optional<Connection> findServer(final URI uri) {
+        final String key = getAddressKey(uri);
+        final Connection indexed = serversByAddress.get(key);
+        if (indexed != null && servers.contains(indexed) && indexed.compareURI(uri)) {
+            return Optional.of(indexed);
+        }
+
+        final Optional<Connection> server = servers.stream()
+                .filter(s -> s.compareURI(uri)).findAny();
+        server.ifPresent(s -> serversByAddress.put(key, s));
+        return server;
+    }
+
+    /**
+     * Builds the key used to index servers by address. URIs which differ only in the case of
+     * their scheme or host, or in whether the default port is specified, share a key.
+     *
+     * @param uri The URI to build a key for.
+     *
+     * @return A normalised (scheme, host, port) key for the URI.
+     */
+    private static String getAddressKey(final URI uri) {
+        final String scheme = uri.getScheme() == null ? ""
+                : uri.getScheme().toLowerCase(Locale.ENGLISH);
+        final String host = uri.getHost() == null ? ""
+                : uri.getHost().toLowerCase(Locale.ENGLISH);
+        int port = uri.getPort();
+        if (port == -1) {
+            if ("irc".equals(scheme)) {
+                port = 6667;
+            } else if ("ircs".equals(scheme)) {
+                port = 6697;
+            }
+        }
+        return scheme + "://" + host + ':' + port;
+    }
+
     @Override
     public void joinDevChat() {
         final List<Connection> qnetServers = getConnectionsByNetwork("Quakenet");
@@ -216,6 +273,15 @@ public class ServerManager implements ConnectionManager {
         }
     }
 
+    @Handler
+    void handleServerConnecting(final ServerConnectingEvent event) {
+        final Connection server = event.getConnection();
+        if (servers.contains(server)) {
+            serversByAddress.values().removeIf(s -> s == server);
+            serversByAddress.put(getAddressKey(event.getUri()), server);
+        }
+    }
+
     @Handler
     void handleWindowClosing(final FrameClosingEvent event) {
         if (event.getSource() instanceof Server) {
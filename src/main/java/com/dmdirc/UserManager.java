@@ -21,29 +21,199 @@ import com.dmdirc.interfaces.Connection;
 import com.dmdirc.interfaces.User;
 import com.dmdirc.parser.interfaces.ClientInfo;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 /**
+ * Caches the {@link User}s created for each parser {@link ClientInfo}, so that the same client
+ * is always represented by the same user.
  *
+ * <p>Users are created the first time they are requested. Each group chat that has a user for the
+ * client retains it (see {@link GroupChatUserManager}), and the user is released when the client
+ * leaves the last channel we share with it or when the connection is closed. A user that is
+ * released and later requested again is recreated; {@link Client}s for the same connection and
+ * client are equal, so the new user is interchangeable with any copies held elsewhere.
+ *
+ * <p>Users that no group chat retains (for example those we only share a query with) are kept in
+ * a bounded, least-recently-used set for each connection, so that clients that message us once
+ * are not cached for the lifetime of the connection.
  */
 @Singleton
 public class UserManager {
 
+    /** The default number of unretained users to cache for each connection. */
+    private static final int DEFAULT_UNRETAINED_CAPACITY = 256;
+
     private final UserFactory userFactory;
-    private final Map<ClientInfo, User> userCache;
+    /** The number of unretained users to cache for each connection. */
+    private final int unretainedCapacity;
+    /** Cached users, keyed on connection and then client. */
+    private final Map<Connection, Map<ClientInfo, User>> userCache = new ConcurrentHashMap<>();
+    /** The number of group chats retaining each client, keyed on connection and then client. */
+    private final Map<Connection, Map<ClientInfo, Integer>> groupChatCounts =
+            new ConcurrentHashMap<>();
+    /** Cached clients not retained by any group chat, in access order, keyed on connection. */
+    private final Map<Connection, Map<ClientInfo, Boolean>> unretained = new ConcurrentHashMap<>();
+    /** The number of lookups that found a cached user. */
+    private final LongAdder hits = new LongAdder();
+    /** The number of lookups that had to create a user. */
+    private final LongAdder misses = new LongAdder();
 
     @Inject
     public UserManager(final UserFactory userFactory) {
+        this(userFactory, DEFAULT_UNRETAINED_CAPACITY);
+    }
+
+    /**
+     * Creates a new user manager.
+     *
+     * @param userFactory        The factory to use to create users.
+     * @param unretainedCapacity The number of unretained users to cache for each connection.
+     */
+    UserManager(final UserFactory userFactory, final int unretainedCapacity) {
         this.userFactory = userFactory;
-        userCache = new HashMap<>();
+        this.unretainedCapacity = unretainedCapacity;
     }
 
     public User getUserFromClientInfo(final ClientInfo client, final Connection connection) {
-        userCache.putIfAbsent(client, userFactory.getUser(connection,client));
-        return userCache.get(client);
+        final Map<ClientInfo, User> users =
+                userCache.computeIfAbsent(connection, k -> new ConcurrentHashMap<>());
+        User user = users.get(client);
+        if (user != null) {
+            hits.increment();
+        } else {
+            user = users.computeIfAbsent(client, k -> {
+                misses.increment();
+                return userFactory.getUser(connection, client);
+            });
+        }
+
+        if (!isRetained(client, connection)) {
+            getUnretained(connection).put(client, Boolean.TRUE);
+        }
+        return user;
+    }
+
+    /**
+     * Determines whether any group chat currently retains the given client.
+     *
+     * @param client     The client to check.
+     * @param connection The connection the client belongs to.
+     * @return True if the client's user is retained, false otherwise.
+     */
+    private boolean isRetained(final ClientInfo client, final Connection connection) {
+        final Map<ClientInfo, Integer> counts = groupChatCounts.get(connection);
+        return counts != null && counts.containsKey(client);
+    }
+
+    /**
+     * Gets the set of unretained clients for the given connection, creating it if needed. Adding a
+     * client beyond the capacity of the set releases the least recently used client's user.
+     *
+     * @param connection The connection to get unretained clients for.
+     * @return A synchronised, access-ordered map of unretained clients.
+     */
+    private Map<ClientInfo, Boolean> getUnretained(final Connection connection) {
+        return unretained.computeIfAbsent(connection, k -> Collections.synchronizedMap(
+                new LinkedHashMap<ClientInfo, Boolean>(16, 0.75f, true) {
+                    private static final long serialVersionUID = 1;
+
+                    @Override
+                    protected boolean removeEldestEntry(
+                            final Map.Entry<ClientInfo, Boolean> eldest) {
+                        if (size() <= unretainedCapacity) {
+                            return false;
+                        }
+
+                        final Map<ClientInfo, User> users = userCache.get(connection);
+                        if (users != null && !isRetained(eldest.getKey(), connection)) {
+                            users.remove(eldest.getKey());
+                        }
+                        return true;
+                    }
+                }));
+    }
+
+    /**
+     * Records that a group chat holds a user for the given client, so that the client's cached
+     * user is kept until a matching call to {@link #releaseUser(ClientInfo, Connection)}.
+     *
+     * @param client     The client whose user is being retained.
+     * @param connection The connection the client belongs to.
+     */
+    public void retainUser(final ClientInfo client, final Connection connection) {
+        groupChatCounts.computeIfAbsent(connection, k -> new ConcurrentHashMap<>())
+                .merge(client, 1, Integer::sum);
+
+        final Map<ClientInfo, Boolean> clients = unretained.get(connection);
+        if (clients != null) {
+            clients.remove(client);
+        }
+    }
+
+    /**
+     * Records that a group chat no longer holds a user for the given client. When no group chats
+     * retain the client, its cached user is released.
+     *
+     * @param client     The client whose user is no longer retained.
+     * @param connection The connection the client belongs to.
+     */
+    public void releaseUser(final ClientInfo client, final Connection connection) {
+        final Map<ClientInfo, Integer> counts = groupChatCounts.get(connection);
+        if (counts == null) {
+            return;
+        }
+
+        final Integer remaining = counts.computeIfPresent(client,
+                (k, count) -> count > 1 ? count - 1 : null);
+        final Map<ClientInfo, User> users = userCache.get(connection);
+        if (remaining == null && users != null) {
+            users.remove(client);
+        }
     }
+
+    /**
+     * Releases all cached users for the given connection.
+     *
+     * @param connection The connection whose users should be released.
+     */
+    public void removeUsers(final Connection connection) {
+        userCache.remove(connection);
+        groupChatCounts.remove(connection);
+        unretained.remove(connection);
+    }
+
+    /**
+     * Gets the number of users currently cached.
+     *
+     * @return The number of cached users across all connections.
+     */
+    public int getCacheSize() {
+        return userCache.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Gets the number of lookups that returned an existing user.
+     *
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that created a new user.
+     *
+     * @return The number of cache misses.
+     */
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
 }
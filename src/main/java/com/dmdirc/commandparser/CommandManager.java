@@ -17,43 +17,38 @@
 
 package com.dmdirc.commandparser;
 
-import com.dmdirc.GlobalWindow;
 import com.dmdirc.commandparser.commands.Command;
 import com.dmdirc.commandparser.parsers.CommandParser;
 import com.dmdirc.config.binding.ConfigBinding;
 import com.dmdirc.interfaces.CommandController;
-import com.dmdirc.interfaces.Connection;
-import com.dmdirc.interfaces.ConnectionManager;
-import com.dmdirc.interfaces.GroupChat;
-import com.dmdirc.interfaces.PrivateChat;
 import com.dmdirc.config.provider.AggregateConfigProvider;
-import com.dmdirc.ui.input.TabCompleter;
-import com.dmdirc.ui.input.TabCompletionType;
+import com.dmdirc.ui.input.TabCompleterFactory;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
-import javax.inject.Provider;
-
 /**
  * The command manager creates and manages a single instance of all commands, and provides methods
  * to load each group of commands into a parser instance.
  */
 public class CommandManager implements CommandController {
 
-    /** A list of commands that have been instantiated. */
-    private final Map<CommandInfo, Command> commands = new HashMap<>();
+    /** The commands that have been registered, keyed on type and then lower-cased name. */
+    private final Map<CommandType, Map<String, Map.Entry<CommandInfo, Command>>> commands =
+            new EnumMap<>(CommandType.class);
     /** A list of command parsers that have been instantiated. */
     private final Multimap<CommandType, CommandParser> parsers = ArrayListMultimap.create();
-    /** The manager to use to iterate servers. */
-    private final ConnectionManager connectionManager;
-    /** Provider to use to retrieve the global window. */
-    private final Provider<GlobalWindow> globalWindowProvider;
+    /** The factory whose tab completers should be told about new commands. */
+    private final TabCompleterFactory tabCompleterFactory;
     /** The command char we're using. */
     @ConfigBinding(domain = "general", key = "commandchar")
     private char commandChar;
@@ -64,13 +59,13 @@ public class CommandManager implements CommandController {
     /**
      * Creates a new instance of the Command Manager.
      *
-     * @param connectionManager the manager to use to iterate servers.
-     * @param globalWindowProvider provider to use to retrieve the global window.
+     * @param tabCompleterFactory the factory whose tab completers should complete commands.
      */
-    public CommandManager(final ConnectionManager connectionManager,
-            final Provider<GlobalWindow> globalWindowProvider) {
-        this.connectionManager = connectionManager;
-        this.globalWindowProvider = globalWindowProvider;
+    public CommandManager(final TabCompleterFactory tabCompleterFactory) {
+        this.tabCompleterFactory = tabCompleterFactory;
+        for (CommandType type : CommandType.values()) {
+            commands.put(type, new ConcurrentHashMap<>());
+        }
     }
 
     @Override
@@ -99,7 +94,7 @@ public class CommandManager implements CommandController {
 
     @Override
     public void unregisterCommand(final CommandInfo info) {
-        registerCommand(info, commands.get(info), false);
+        registerCommand(info, null, false);
     }
 
     /**
@@ -117,10 +112,13 @@ public class CommandManager implements CommandController {
             registerCommand(info, command, parsers.get(info.getType()), register);
         }
 
+        final Map<String, Map.Entry<CommandInfo, Command>> typeCommands =
+                commands.get(info.getType());
+        final String key = info.getName().toLowerCase(Locale.ENGLISH);
         if (register) {
-            commands.put(info, command);
+            typeCommands.put(key, Maps.immutableEntry(info, command));
         } else {
-            commands.remove(info);
+            typeCommands.computeIfPresent(key, (k, v) -> v.getKey().equals(info) ? null : v);
         }
 
         registerCommandName(info, register);
@@ -161,63 +159,12 @@ public class CommandManager implements CommandController {
         final String plainCommandName = getCommandChar() + command.getName();
         final String silencedCommandName = getCommandChar() + getSilenceChar() + command.getName();
 
-        if (command.getType() == CommandType.TYPE_GLOBAL) {
-            registerCommandName(globalWindowProvider.get().getInputModel().get().getTabCompleter(),
-                    plainCommandName, register);
-            registerCommandName(globalWindowProvider.get().getInputModel().get().getTabCompleter(),
-                    silencedCommandName, register);
-        }
-
-        // TODO: This logic is probably in two places. Abstract it.
-        for (Connection server : connectionManager.getConnections()) {
-            if (command.getType() == CommandType.TYPE_SERVER
-                    || command.getType() == CommandType.TYPE_GLOBAL) {
-                registerCommandName(server.getWindowModel().getInputModel().get().getTabCompleter(),
-                        plainCommandName, register);
-                registerCommandName(server.getWindowModel().getInputModel().get().getTabCompleter(),
-                        silencedCommandName, register);
-            }
-
-            if (command.getType() == CommandType.TYPE_CHANNEL
-                    || command.getType() == CommandType.TYPE_CHAT) {
-                for (GroupChat channel : server.getGroupChatManager().getChannels()) {
-                    registerCommandName(
-                            channel.getWindowModel().getInputModel().get().getTabCompleter(),
-                            plainCommandName, register);
-                    registerCommandName(
-                            channel.getWindowModel().getInputModel().get().getTabCompleter(),
-                            silencedCommandName, register);
-                }
-            }
-
-            if (command.getType() == CommandType.TYPE_QUERY
-                    || command.getType() == CommandType.TYPE_CHAT) {
-                for (PrivateChat query : server.getQueries()) {
-                    registerCommandName(
-                            query.getWindowModel().getInputModel().get().getTabCompleter(),
-                            plainCommandName, register);
-                    registerCommandName(
-                            query.getWindowModel().getInputModel().get().getTabCompleter(),
-                            silencedCommandName, register);
-                }
-            }
-        }
-    }
-
-    /**
-     * Registers or unregisters the specified command with the specified tab- completer.
-     *
-     * @param completer The tab completer to be used
-     * @param name      The command name to be registered
-     * @param register  True if the command should be registered, false if it should be
-     *                  unregistered.
-     */
-    private void registerCommandName(final TabCompleter completer,
-            final String name, final boolean register) {
         if (register) {
-            completer.addEntry(TabCompletionType.COMMAND, name);
+            tabCompleterFactory.addCommandName(command.getType(), plainCommandName);
+            tabCompleterFactory.addCommandName(command.getType(), silencedCommandName);
         } else {
-            completer.removeEntry(TabCompletionType.COMMAND, name);
+            tabCompleterFactory.removeCommandName(command.getType(), plainCommandName);
+            tabCompleterFactory.removeCommandName(command.getType(), silencedCommandName);
         }
     }
 
@@ -226,7 +173,7 @@ public class CommandManager implements CommandController {
             final CommandType... supertypes) {
         for (CommandType supertype : supertypes) {
             for (CommandType type : supertype.getComponentTypes()) {
-                for (Map.Entry<CommandInfo, Command> pair : getCommands(type, null).entrySet()) {
+                for (Map.Entry<CommandInfo, Command> pair : getCommands(type).entrySet()) {
                     parser.registerCommand(pair.getValue(), pair.getKey());
                 }
 
@@ -243,9 +190,24 @@ public class CommandManager implements CommandController {
     @Override
     public Map.Entry<CommandInfo, Command> getCommand(final CommandType type,
             final String name) {
-        final Map<CommandInfo, Command> res = getCommands(type, name);
+        if (name == null) {
+            return null;
+        }
+
+        final String key = name.toLowerCase(Locale.ENGLISH);
+
+        if (type != null) {
+            return commands.get(type).get(key);
+        }
 
-        return res.isEmpty() ? null : res.entrySet().iterator().next();
+        for (Map<String, Map.Entry<CommandInfo, Command>> typeCommands : commands.values()) {
+            final Map.Entry<CommandInfo, Command> entry = typeCommands.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        return null;
     }
 
     @Override
@@ -263,26 +225,11 @@ public class CommandManager implements CommandController {
 
     @Override
     public Map<CommandInfo, Command> getCommands(final CommandType type) {
-        return getCommands(type, null);
-    }
-
-    /**
-     * Retrieves a map of all commands of the specified type, with the specified name.
-     *
-     * @param type The type of command to list, or null for all types
-     * @param name The name of the command to look for, or null for any name
-     *
-     * @return A map of {@link CommandInfo}s and their associated {@link Command}.
-     *
-     * @since 0.6.3m1
-     */
-    private Map<CommandInfo, Command> getCommands(final CommandType type,
-            final String name) {
         final Map<CommandInfo, Command> res = new HashMap<>();
 
         commands.entrySet().stream()
-                .filter(entry -> (type == null || type == entry.getKey().getType()) &&
-                        (name == null || name.equals(entry.getKey().getName())))
+                .filter(entry -> type == null || type == entry.getKey())
+                .flatMap(entry -> entry.getValue().values().stream())
                 .forEach(entry -> res.put(entry.getKey(), entry.getValue()));
 
         return res;
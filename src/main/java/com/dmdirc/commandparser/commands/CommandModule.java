@@ -36,6 +36,7 @@ import com.dmdirc.commandparser.commands.global.Exit;
 import com.dmdirc.commandparser.commands.global.Help;
 import com.dmdirc.commandparser.commands.global.Ifplugin;
 import com.dmdirc.commandparser.commands.global.LoadPlugin;
+import com.dmdirc.commandparser.commands.global.Metrics;
 import com.dmdirc.commandparser.commands.global.NewServer;
 import com.dmdirc.commandparser.commands.global.OpenWindow;
 import com.dmdirc.commandparser.commands.global.ReloadFormat;
@@ -281,6 +282,11 @@ public class CommandModule {
         return new SimpleCommandDetails(command, ReloadPlugin.INFO);
     }
 
+    @Provides(type = Provides.Type.SET)
+    public CommandDetails getMetricsCommand(final Metrics command) {
+        return new SimpleCommandDetails(command, Metrics.INFO);
+    }
+
     @Provides(type = Provides.Type.SET)
     public CommandDetails getSaveConfigCommand(final SaveConfig command) {
         return new SimpleCommandDetails(command, SaveConfig.INFO);
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.dmdirc.commandparser.commands.global;
+
+import com.dmdirc.commandparser.BaseCommandInfo;
+import com.dmdirc.commandparser.CommandArguments;
+import com.dmdirc.commandparser.CommandInfo;
+import com.dmdirc.commandparser.CommandType;
+import com.dmdirc.commandparser.commands.BaseCommand;
+import com.dmdirc.commandparser.commands.IntelligentCommand;
+import com.dmdirc.commandparser.commands.context.CommandContext;
+import com.dmdirc.interfaces.CommandController;
+import com.dmdirc.interfaces.WindowModel;
+import com.dmdirc.ui.input.AdditionalTabTargets;
+import com.dmdirc.util.ClientMetrics;
+import com.dmdirc.util.CounterRegistry;
+
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import java.util.Map;
+
+/**
+ * Shows the client's internal metrics, such as event bus and scheduler gauges and config lookup
+ * counts.
+ */
+public class Metrics extends BaseCommand implements IntelligentCommand {
+
+    /** A command info object for this command. */
+    public static final CommandInfo INFO = new BaseCommandInfo("metrics",
+            "metrics [lookups [on|off|reset]] - shows the client's internal gauges, or its "
+            + "config lookup counts",
+            CommandType.TYPE_GLOBAL);
+    /** The metrics to display. */
+    private final ClientMetrics metrics;
+
+    /**
+     * Creates a new instance of the {@link Metrics} command.
+     *
+     * @param controller The controller to use for command information.
+     * @param metrics    The metrics to display.
+     */
+    @Inject
+    public Metrics(final CommandController controller, final ClientMetrics metrics) {
+        super(controller);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void execute(@Nonnull final WindowModel origin,
+            final CommandArguments args, final CommandContext context) {
+        final String[] arguments = args.getArguments();
+
+        if (arguments.length == 0) {
+            showTable(origin, args.isSilent(), metrics.getGauges());
+        } else if (arguments.length == 1 && "lookups".equalsIgnoreCase(arguments[0])) {
+            showLookups(origin, args.isSilent());
+        } else if (arguments.length == 2 && "lookups".equalsIgnoreCase(arguments[0])) {
+            updateLookups(origin, args.isSilent(), arguments[1]);
+        } else {
+            showUsage(origin, args.isSilent(), "metrics", "[lookups [on|off|reset]]");
+        }
+    }
+
+    /**
+     * Shows the current config lookup counts, or a message if there are none.
+     *
+     * @param origin   The window the command was executed in
+     * @param isSilent Whether this command has been silenced or not
+     */
+    private void showLookups(final WindowModel origin, final boolean isSilent) {
+        final CounterRegistry lookups = metrics.getConfigLookups();
+        final Map<String, Long> counts = lookups.getCounts();
+
+        if (counts.isEmpty()) {
+            showOutput(origin, isSilent, lookups.isEnabled() ? "No config lookups counted yet."
+                    : "Config lookup counting is disabled.");
+        } else {
+            showTable(origin, isSilent, counts);
+        }
+    }
+
+    /**
+     * Enables, disables or resets config lookup counting.
+     *
+     * @param origin   The window the command was executed in
+     * @param isSilent Whether this command has been silenced or not
+     * @param action   The action requested by the user
+     */
+    private void updateLookups(final WindowModel origin, final boolean isSilent,
+            final String action) {
+        final CounterRegistry lookups = metrics.getConfigLookups();
+
+        switch (action.toLowerCase()) {
+            case "on":
+                lookups.setEnabled(true);
+                showOutput(origin, isSilent, "Config lookup counting enabled.");
+                break;
+            case "off":
+                lookups.setEnabled(false);
+                showOutput(origin, isSilent, "Config lookup counting disabled.");
+                break;
+            case "reset":
+                lookups.reset();
+                showOutput(origin, isSilent, "Config lookup counts reset.");
+                break;
+            default:
+                showUsage(origin, isSilent, "metrics", "[lookups [on|off|reset]]");
+                break;
+        }
+    }
+
+    /**
+     * Shows the specified values as a table of names and values.
+     *
+     * @param origin   The window the command was executed in
+     * @param isSilent Whether this command has been silenced or not
+     * @param values   The values to show, keyed on name
+     */
+    private void showTable(final WindowModel origin, final boolean isSilent,
+            final Map<String, Long> values) {
+        final String[][] data = new String[values.size()][];
+        int i = 0;
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            data[i++] = new String[]{entry.getKey(), String.valueOf(entry.getValue())};
+        }
+
+        showOutput(origin, isSilent, doTable(new String[]{"Name", "Value"}, data));
+    }
+
+    @Override
+    public AdditionalTabTargets getSuggestions(final int arg,
+            final IntelligentCommandContext context) {
+        final AdditionalTabTargets res = new AdditionalTabTargets().excludeAll();
+
+        if (arg == 0) {
+            res.add("lookups");
+        } else if (arg == 1 && "lookups".equalsIgnoreCase(context.getPreviousArgs().get(0))) {
+            res.add("on");
+            res.add("off");
+            res.add("reset");
+        }
+
+        return res;
+    }
+
+}
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -391,9 +392,21 @@ public class ConfigFileBackedConfigProvider implements ConfigProvider {
     }
 
     @Override
-    public synchronized void save() {
+    public void save() {
+        // Listeners are told about discarded temporary settings once we've released our lock.
+        saveFile().forEach(key -> fireSettingChange("temp", key));
+    }
+
+    /**
+     * Saves this identity to disk if it has been modified.
+     *
+     * @return The keys of any temporary settings that were discarded while saving
+     */
+    private synchronized Collection<String> saveFile() {
         LOG.info("{}: saving. Needsave = {}", new Object[]{getName(), needSave});
 
+        final Collection<String> discarded = new ArrayList<>();
+
         if (needSave && file.isWritable()) {
             if (myTarget != null && myTarget.getType() == ConfigTarget.TYPE.GLOBAL) {
                 LOG.debug("{}: I'm a global config", getName());
@@ -447,6 +460,7 @@ public class ConfigFileBackedConfigProvider implements ConfigProvider {
             }
 
             if (file.isKeyDomain("temp")) {
+                discarded.addAll(file.getKeyDomain("temp").keySet());
                 file.getKeyDomain("temp").clear();
             }
 
@@ -458,6 +472,8 @@ public class ConfigFileBackedConfigProvider implements ConfigProvider {
                 LOG.warn("Unable to save identity file", ex);
             }
         }
+
+        return discarded;
     }
 
     @Override
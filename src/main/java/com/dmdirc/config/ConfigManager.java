@@ -22,17 +22,18 @@ import com.dmdirc.config.provider.AggregateConfigProvider;
 import com.dmdirc.config.provider.ConfigChangeListener;
 import com.dmdirc.config.provider.ConfigProvider;
 import com.dmdirc.config.provider.ConfigProviderMigrator;
+import com.dmdirc.util.CounterRegistry;
 import com.dmdirc.util.validators.Validator;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,18 +44,26 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
         AggregateConfigProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(ConfigManager.class);
-    /** Temporary map for lookup stats. */
-    private static final Map<String, Integer> STATS = new TreeMap<>();
+    /** Value array used when an option isn't defined by any source. */
+    private static final String[] NO_VALUES = new String[0];
     /** Magical domain to redirect to the version identity. */
     private static final String VERSION_DOMAIN = "version";
     /** A list of sources for this config manager. */
     private final List<ConfigFileBackedConfigProvider> sources = new ArrayList<>();
+    /**
+     * Snapshot of the values defined by our sources, keyed on domain then option. Each array holds
+     * the values in source order, so the first one that validates is the effective setting. The
+     * maps are never modified once published; changes replace them wholesale.
+     */
+    private volatile Map<String, Map<String, String[]>> values = Collections.emptyMap();
     /** The listeners registered for this manager. */
     private final Multimap<String, ConfigChangeListener> listeners = ArrayListMultimap.create();
     /** The config binder to use for this manager. */
     private final ConfigBinder binder;
     /** The manager to use to fetch global state. */
     private final IdentityManager manager;
+    /** Counters for lookup stats. */
+    private final CounterRegistry stats;
     /** The protocol this manager is for. */
     private String protocol;
     /** The ircd this manager is for. */
@@ -70,6 +79,7 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
      * Creates a new instance of ConfigManager.
      *
      * @param manager  The manager to use to retrieve global state horribly.
+     * @param stats    The registry to count option lookups in.
      * @param protocol The protocol for this manager
      * @param ircd     The name of the ircd for this manager
      * @param network  The name of the network for this manager
@@ -79,15 +89,17 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
      */
     ConfigManager(
             final IdentityManager manager,
+            final CounterRegistry stats,
             final String protocol, final String ircd,
             final String network, final String server) {
-        this(manager, protocol, ircd, network, server, "<Unknown>");
+        this(manager, stats, protocol, ircd, network, server, "<Unknown>");
     }
 
     /**
      * Creates a new instance of ConfigManager.
      *
      * @param manager  The manager to use to retrieve global state horribly.
+     * @param stats    The registry to count option lookups in.
      * @param protocol The protocol for this manager
      * @param ircd     The name of the ircd for this manager
      * @param network  The name of the network for this manager
@@ -98,11 +110,13 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
      */
     ConfigManager(
             final IdentityManager manager,
+            final CounterRegistry stats,
             final String protocol, final String ircd,
             final String network, final String server, final String channel) {
         final String chanName = channel + '@' + network;
 
         this.manager = manager;
+        this.stats = stats;
         this.protocol = protocol;
         this.ircd = ircd;
         this.network = network;
@@ -130,11 +144,9 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
             return response;
         }
 
-        synchronized (sources) {
-            for (ConfigProvider source : sources) {
-                if (source.hasOption(domain, option, validator)) {
-                    return source.getOption(domain, option, validator);
-                }
+        for (String value : getValues(domain, option)) {
+            if (!validator.validate(value).isFailure()) {
+                return value;
             }
         }
 
@@ -151,17 +163,92 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
             return response != null && !validator.validate(response).isFailure();
         }
 
-        synchronized (sources) {
-            for (ConfigProvider source : sources) {
-                if (source.hasOption(domain, option, validator)) {
-                    return true;
-                }
+        for (String value : getValues(domain, option)) {
+            if (!validator.validate(value).isFailure()) {
+                return true;
             }
         }
 
         return false;
     }
 
+    /**
+     * Gets the values defined for the specified option from the current snapshot.
+     *
+     * @param domain The domain of the option
+     * @param option The name of the option
+     *
+     * @return The values defined by each source, in order of precedence
+     */
+    private String[] getValues(final String domain, final String option) {
+        final Map<String, String[]> domainValues = values.get(domain);
+        if (domainValues == null) {
+            return NO_VALUES;
+        }
+        final String[] optionValues = domainValues.get(option);
+        return optionValues == null ? NO_VALUES : optionValues;
+    }
+
+    /**
+     * Rebuilds the snapshot of values for the specified domains from all of our sources, leaving
+     * the values for any other domains untouched. Must be called while holding the lock on
+     * {@link #sources}.
+     *
+     * @param domains The domains whose values may have changed
+     */
+    private void updateValues(final Collection<String> domains) {
+        final Map<String, Map<String, String[]>> snapshot = new HashMap<>(values);
+        for (String domain : domains) {
+            final Map<String, List<String>> collected = new HashMap<>();
+            for (ConfigProvider source : sources) {
+                source.getOptions(domain).forEach((option, value) -> collected
+                        .computeIfAbsent(option, k -> new ArrayList<>(1)).add(value));
+            }
+
+            if (collected.isEmpty()) {
+                snapshot.remove(domain);
+            } else {
+                final Map<String, String[]> domainValues = new HashMap<>(collected.size());
+                collected.forEach((option, list) ->
+                        domainValues.put(option, list.toArray(NO_VALUES)));
+                snapshot.put(domain, domainValues);
+            }
+        }
+        values = snapshot;
+    }
+
+    /**
+     * Updates the snapshot with the current values of a single option. Must be called while
+     * holding the lock on {@link #sources}.
+     *
+     * @param domain The domain of the option that changed
+     * @param option The name of the option that changed
+     */
+    private void updateValues(final String domain, final String option) {
+        final List<String> optionValues = new ArrayList<>(1);
+        for (ConfigProvider source : sources) {
+            if (source.hasOptionString(domain, option)) {
+                optionValues.add(source.getOption(domain, option));
+            }
+        }
+
+        final Map<String, String[]> domainValues =
+                new HashMap<>(values.getOrDefault(domain, Collections.emptyMap()));
+        if (optionValues.isEmpty()) {
+            domainValues.remove(option);
+        } else {
+            domainValues.put(option, optionValues.toArray(NO_VALUES));
+        }
+
+        final Map<String, Map<String, String[]>> snapshot = new HashMap<>(values);
+        if (domainValues.isEmpty()) {
+            snapshot.remove(domain);
+        } else {
+            snapshot.put(domain, domainValues);
+        }
+        values = snapshot;
+    }
+
     @Override
     public Map<String, String> getOptions(final String domain) {
         if (VERSION_DOMAIN.equals(domain)) {
@@ -201,11 +288,12 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
         synchronized (sources) {
             identity.removeListener(this);
             sources.remove(identity);
+            updateValues(identity.getDomains());
         }
 
         // Fire change listeners
         for (String[] setting : changed) {
-            configChanged(setting[0], setting[1]);
+            fireConfigChanged(setting[0], setting[1]);
         }
     }
 
@@ -306,13 +394,14 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
                 sources.add(identity);
                 identity.addListener(this);
                 sources.sort(new ConfigProviderTargetComparator());
+                updateValues(identity.getDomains());
             }
 
             // Determine which settings will have changed
             for (String domain : identity.getDomains()) {
                 identity.getOptions(domain).keySet().stream()
                         .filter(option -> identity.equals(getScope(domain, option)))
-                        .forEach(option -> configChanged(domain, option));
+                        .forEach(option -> fireConfigChanged(domain, option));
             }
         }
     }
@@ -382,24 +471,17 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
      * @param domain The domain that is being looked up
      * @param option The option that is being looked up
      */
-    @SuppressWarnings("PMD.AvoidCatchingNPE")
-    protected static void doStats(final String domain, final String option) {
-        final String key = domain + '.' + option;
-
-        try {
-            STATS.put(key, 1 + (STATS.containsKey(key) ? STATS.get(key) : 0));
-        } catch (NullPointerException ex) {
-            // JVM bugs ftl.
-        }
+    protected void doStats(final String domain, final String option) {
+        stats.increment(domain, option);
     }
 
     /**
-     * Retrieves the statistic map.
+     * Retrieves the lookup statistics.
      *
-     * @return A map of config options to lookup counts
+     * @return The registry holding lookup counts, grouped by domain
      */
-    public static Map<String, Integer> getStats() {
-        return STATS;
+    public CounterRegistry getStats() {
+        return stats;
     }
 
     @Override
@@ -437,6 +519,20 @@ class ConfigManager implements ConfigChangeListener, ConfigProviderListener,
 
     @Override
     public void configChanged(final String domain, final String key) {
+        synchronized (sources) {
+            updateValues(domain, key);
+        }
+
+        fireConfigChanged(domain, key);
+    }
+
+    /**
+     * Informs registered listeners that the specified setting has changed.
+     *
+     * @param domain The domain of the setting that changed
+     * @param key    The key of the setting that changed
+     */
+    private void fireConfigChanged(final String domain, final String key) {
         final Collection<ConfigChangeListener> targets = new ArrayList<>();
 
         if (listeners.containsKey(domain)) {
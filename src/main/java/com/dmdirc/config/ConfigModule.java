@@ -24,6 +24,7 @@ import com.dmdirc.interfaces.config.IdentityController;
 import com.dmdirc.interfaces.config.IdentityFactory;
 import com.dmdirc.logger.ErrorManager;
 import com.dmdirc.ui.WarningDialog;
+import com.dmdirc.util.ClientMetrics;
 import dagger.Module;
 import dagger.Provides;
 import java.awt.GraphicsEnvironment;
@@ -51,8 +52,10 @@ public class ConfigModule {
             @Directory(DirectoryType.IDENTITIES) final Path identitiesDirectory,
             @Directory(DirectoryType.ERRORS) final Path errorsDirectory,
             final CommandLineParser commandLineParser,
-            final ErrorManager errorManager) {
-        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory);
+            final ErrorManager errorManager,
+            final ClientMetrics clientMetrics) {
+        final IdentityManager identityManager = new IdentityManager(baseDirectory,
+                identitiesDirectory, clientMetrics.getConfigLookups());
         errorManager.initialise(identityManager.getGlobalConfiguration());
         identityManager.loadVersionIdentity();
         try {
@@ -22,6 +22,7 @@ import com.dmdirc.config.provider.ConfigProvider;
 import com.dmdirc.config.provider.ConfigProviderMigrator;
 import com.dmdirc.interfaces.config.IdentityController;
 import com.dmdirc.interfaces.config.IdentityFactory;
+import com.dmdirc.util.CounterRegistry;
 import com.dmdirc.util.io.ConfigFile;
 import com.dmdirc.util.io.FileUtils;
 import com.dmdirc.util.io.InvalidConfigFileException;
@@ -64,6 +65,8 @@ public class IdentityManager implements IdentityFactory, IdentityController {
     private final Path configDirectory;
     /** Directory to save and load identities in. */
     private final Path identitiesDirectory;
+    /** The registry that config managers count option lookups in. */
+    private final CounterRegistry configLookups;
     /**
      * The identities that have been loaded into this manager.
      *
@@ -95,10 +98,13 @@ public class IdentityManager implements IdentityFactory, IdentityController {
      *
      * @param baseDirectory       The BASE config directory.
      * @param identitiesDirectory The directory to store identities in.
+     * @param configLookups       The registry that config managers count option lookups in.
      */
-    public IdentityManager(final Path baseDirectory, final Path identitiesDirectory) {
+    public IdentityManager(final Path baseDirectory, final Path identitiesDirectory,
+            final CounterRegistry configLookups) {
         this.configDirectory = baseDirectory;
         this.identitiesDirectory = identitiesDirectory;
+        this.configLookups = configLookups;
     }
 
     /**
@@ -635,7 +641,8 @@ public class IdentityManager implements IdentityFactory, IdentityController {
     @Override
     public ConfigProviderMigrator createMigratableConfig(final String protocol,
             final String ircd, final String network, final String server) {
-        final ConfigManager configManager = new ConfigManager(this, protocol, ircd, network, server);
+        final ConfigManager configManager = new ConfigManager(this, configLookups, protocol, ircd,
+                network, server);
         setUpConfigManager(configManager);
         return new ConfigManagerMigrator(configManager);
     }
@@ -643,7 +650,8 @@ public class IdentityManager implements IdentityFactory, IdentityController {
     @Override
     public ConfigProviderMigrator createMigratableConfig(final String protocol,
             final String ircd, final String network, final String server, final String channel) {
-        final ConfigManager configManager = new ConfigManager(this, protocol, ircd, network, server, channel);
+        final ConfigManager configManager = new ConfigManager(this, configLookups, protocol, ircd,
+                network, server, channel);
         setUpConfigManager(configManager);
         return new ConfigManagerMigrator(configManager);
     }
@@ -651,7 +659,8 @@ public class IdentityManager implements IdentityFactory, IdentityController {
     @Override
     public AggregateConfigProvider createAggregateConfig(final String protocol, final String ircd,
             final String network, final String server) {
-        final ConfigManager configManager = new ConfigManager(this, protocol, ircd, network, server);
+        final ConfigManager configManager = new ConfigManager(this, configLookups, protocol, ircd,
+                network, server);
         setUpConfigManager(configManager);
         return configManager;
     }
@@ -659,7 +668,8 @@ public class IdentityManager implements IdentityFactory, IdentityController {
     @Override
     public AggregateConfigProvider createAggregateConfig(final String protocol, final String ircd,
             final String network, final String server, final String channel) {
-        final ConfigManager configManager = new ConfigManager(this, protocol, ircd, network, server, channel);
+        final ConfigManager configManager = new ConfigManager(this, configLookups, protocol, ircd,
+                network, server, channel);
         setUpConfigManager(configManager);
         return configManager;
     }
@@ -20,7 +20,7 @@ package com.dmdirc.events;
 import com.dmdirc.logger.ProgramError;
 
 /**
- * Fired when the status of a program error changes.
+ * Fired when the status of a program error changes, including when a known error occurs again.
  */
 public class ProgramErrorStatusEvent extends ProgramErrorEvent {
 
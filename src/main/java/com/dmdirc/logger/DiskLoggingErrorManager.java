@@ -21,19 +21,31 @@ import com.dmdirc.commandline.CommandLineOptionsModule.Directory;
 import com.dmdirc.commandline.CommandLineOptionsModule.DirectoryType;
 import com.dmdirc.config.binding.ConfigBinder;
 import com.dmdirc.config.binding.ConfigBinding;
+import com.dmdirc.events.ClientClosedEvent;
 import com.dmdirc.events.ErrorEvent;
 import com.dmdirc.events.ProgramErrorEvent;
 import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.config.provider.AggregateConfigProvider;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -42,14 +54,31 @@ import net.engio.mbassy.listener.Handler;
 
 /**
  * Listens for {@link ErrorEvent}s and writes them to disk.
+ *
+ * <p>Errors are queued and written in batches on a background thread, so that the thread raising
+ * the error never blocks on disk I/O. If the queue fills up (for example because errors are being
+ * raised faster than they can be written) further errors are dropped until it has drained. When
+ * the client closes, the writer is shut down and any queued errors are written before it exits.
  */
 @Singleton
 public class DiskLoggingErrorManager {
 
+    /** The maximum number of errors waiting to be written. */
+    private static final int QUEUE_SIZE = 1000;
+    /** The number of seconds to wait for queued errors to be written when the client closes. */
+    private static final int SHUTDOWN_TIMEOUT = 5;
     /** The event bus to listen for errors on. */
     private final EventBus eventBus;
     /** The directory to log errors to. */
     private final Path errorsDirectory;
+    /** Errors waiting to be written to disk. */
+    private final LinkedBlockingQueue<Map.Entry<Path, List<String>>> pending;
+    /** Whether a write of the pending errors has been scheduled. */
+    private final AtomicBoolean writeScheduled;
+    /** Number of errors dropped because the queue was full. */
+    private final LongAdder dropped;
+    /** Executor used to write errors to disk. */
+    private final ExecutorService executor;
     /** Error creating directory, don't write to disk. */
     private boolean directoryError;
     /** Are we logging errors to disk? */
@@ -61,6 +90,13 @@ public class DiskLoggingErrorManager {
             final EventBus eventBus) {
         this.errorsDirectory = errorsDirectory;
         this.eventBus = eventBus;
+        this.pending = new LinkedBlockingQueue<>(QUEUE_SIZE);
+        this.writeScheduled = new AtomicBoolean();
+        this.dropped = new LongAdder();
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("Error log writer")
+                .setDaemon(true)
+                .build());
     }
 
     /**
@@ -89,6 +125,15 @@ public class DiskLoggingErrorManager {
         return directoryError;
     }
 
+    /**
+     * Gets the number of errors that were not written to disk because too many were waiting.
+     *
+     * @return The number of dropped errors
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
     @Handler
     void handleErrorEvent(final ProgramErrorEvent error) {
         if (directoryError || !logging) {
@@ -103,10 +148,57 @@ public class DiskLoggingErrorManager {
                         "Details: ");
         error.getError().getThrowableAsString()
                 .ifPresent(s -> Arrays.stream(s.split("\n")).forEach(data::add));
+
+        if (!pending.offer(new SimpleImmutableEntry<>(errorFile, data))) {
+            dropped.increment();
+            return;
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::writePending);
+            } catch (RejectedExecutionException ex) {
+                // The client is closing and the writer has already finished.
+                writeScheduled.set(false);
+                dropped.add(pending.size());
+                pending.clear();
+            }
+        }
+    }
+
+    @Handler
+    void handleClientClosed(final ClientClosedEvent event) {
+        executor.shutdown();
         try {
-            Files.write(errorFile, data, Charset.forName("UTF-8"));
-        } catch (IOException ex) {
-            //Not really anything we can do at this point, so don't try.
+            executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until all errors queued so far have been written to disk.
+     */
+    void flush() throws InterruptedException {
+        try {
+            executor.submit(this::writePending).get();
+        } catch (ExecutionException ex) {
+            // Write failures are already ignored by writePending.
+        }
+    }
+
+    /**
+     * Writes all currently queued errors to disk.
+     */
+    private void writePending() {
+        writeScheduled.set(false);
+        final List<Map.Entry<Path, List<String>>> batch = Lists.newArrayList();
+        pending.drainTo(batch);
+        for (Map.Entry<Path, List<String>> entry : batch) {
+            try {
+                Files.write(entry.getKey(), entry.getValue(), Charset.forName("UTF-8"));
+            } catch (IOException ex) {
+                //Not really anything we can do at this point, so don't try.
+            }
         }
     }
 
@@ -47,7 +47,7 @@ public class ErrorManager {
     public void initialise(final AggregateConfigProvider config) {
         sentryLoggingErrorManager.initialise(config);
         diskLoggingErrorManager.initialise(config);
-        programErrorManager.initialise();
+        programErrorManager.initialise(config);
     }
 
     public Set<ProgramError> getErrors() {
@@ -27,6 +27,7 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -39,7 +40,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class ProgramError implements Serializable {
 
     /** A version number for this class. */
-    private static final long serialVersionUID = 4;
+    private static final long serialVersionUID = 5;
     /** Error icon. */
     private final ErrorLevel level;
     /** Error message. */
@@ -48,6 +49,10 @@ public class ProgramError implements Serializable {
     private final Optional<Throwable> exception;
     /** Date/time error first occurred. */
     private final LocalDateTime date;
+    /** Number of times this error has occurred. */
+    private final AtomicInteger occurrences;
+    /** Date/time error last occurred. */
+    private volatile LocalDateTime lastOccurrence;
     /** The eventbus to post status changes to. */
     private final Optional<EventBus> eventBus;
     /** Is this an application error? */
@@ -82,6 +87,8 @@ public class ProgramError implements Serializable {
         this.message = message;
         this.exception = Optional.ofNullable(exception);
         this.date = date;
+        this.occurrences = new AtomicInteger(1);
+        this.lastOccurrence = date;
         this.reportStatus = ErrorReportStatus.WAITING;
         this.eventBus = Optional.ofNullable(eventBus);
         this.appError = appError;
@@ -122,6 +129,34 @@ public class ProgramError implements Serializable {
         return date;
     }
 
+    /**
+     * Returns the number of times this error has occurred.
+     *
+     * @return Number of occurrences
+     */
+    public int getOccurrences() {
+        return occurrences.get();
+    }
+
+    /**
+     * Returns the time this error most recently occurred.
+     *
+     * @return Time of the latest occurrence
+     */
+    public LocalDateTime getLastOccurrence() {
+        return lastOccurrence;
+    }
+
+    /**
+     * Records another occurrence of this error.
+     *
+     * @param date Time of the new occurrence
+     */
+    void addOccurrence(@Nonnull final LocalDateTime date) {
+        occurrences.incrementAndGet();
+        lastOccurrence = date;
+    }
+
     /**
      * Returns the reportStatus of this error.
      *
@@ -173,6 +208,7 @@ public class ProgramError implements Serializable {
         return MoreObjects.toStringHelper(this)
                 .add("Level", getLevel())
                 .add("Status", getReportStatus())
+                .add("Occurrences", getOccurrences())
                 .add("Message", getMessage())
                 .toString();
     }
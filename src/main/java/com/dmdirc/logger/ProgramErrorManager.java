@@ -17,23 +17,33 @@
 
 package com.dmdirc.logger;
 
+import com.dmdirc.config.binding.ConfigBinding;
+import com.dmdirc.config.provider.AggregateConfigProvider;
 import com.dmdirc.events.ErrorEvent;
 import com.dmdirc.events.FatalProgramErrorEvent;
 import com.dmdirc.events.NonFatalProgramErrorEvent;
 import com.dmdirc.events.ProgramErrorDeletedEvent;
 import com.dmdirc.events.ProgramErrorEvent;
+import com.dmdirc.events.ProgramErrorStatusEvent;
 import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.util.EventUtils;
 import com.dmdirc.util.LogUtils;
 
+import com.google.common.base.Throwables;
+
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -46,37 +56,63 @@ import net.engio.mbassy.listener.Handler;
 /**
  * Listens for {@link ErrorEvent}s, creates {@link ProgramError}s and raises {@link
  * ProgramErrorEvent}s.
+ *
+ * <p>Errors are de-duplicated by their signature (level, message and the top of the stack trace
+ * of each throwable in the causal chain). Repeated errors increment the occurrence count of the
+ * existing error rather than being stored and raised again; a {@link ProgramErrorStatusEvent} is
+ * raised instead so that the new count can be displayed. While one of these is waiting to be
+ * delivered for an error, further repeats of that error do not raise another, so a burst of
+ * repeated errors cannot flood the event bus. At most {@code general.maxerrors}
+ * distinct errors are kept; once that limit is reached the error that least recently occurred is
+ * removed.
  */
 @Singleton
 public class ProgramErrorManager {
 
+    /** The number of errors to keep if no limit has been configured. */
+    private static final int DEFAULT_MAX_ERRORS = 100;
+    /** The number of stack frames of each throwable that form part of an error's signature. */
+    private static final int SIGNATURE_FRAMES = 5;
     /** The event bus to listen for errors on. */
     private final EventBus eventBus;
-    /** The current list of errors. */
-    private final Set<ProgramError> errors;
+    /** The current errors, keyed on their signature, in order of their last occurrence. */
+    private final Map<String, ProgramError> errors;
+    /** Errors that have repeated since their last status event was delivered. */
+    private final Set<ProgramError> pendingStatusEvents = ConcurrentHashMap.newKeySet();
     /** Factory to create {@link ProgramError}s. */
     private final ProgramErrorFactory programErrorFactory;
+    /** The maximum number of distinct errors to keep. */
+    private int maxErrors = DEFAULT_MAX_ERRORS;
 
     @Inject
     public ProgramErrorManager(final EventBus eventBus,
             final ProgramErrorFactory programErrorFactory) {
         this.eventBus = eventBus;
         this.programErrorFactory = programErrorFactory;
-        errors = new CopyOnWriteArraySet<>();
+        errors = new LinkedHashMap<>(16, 0.75f, true);
     }
 
     /**
      * Initialises the error manager.  Must be called before logging will start.
+     *
+     * @param config The configuration to read the error limit from.
      */
-    public void initialise() {
+    public void initialise(final AggregateConfigProvider config) {
+        config.getBinder().bind(this, ProgramErrorManager.class);
         eventBus.subscribe(this);
     }
 
     void handle(final ILoggingEvent event) {
-        final ProgramError error = addError(LogUtils.getErrorLevel(event.getLevel()),
-                event.getFormattedMessage(), LogUtils.getThrowable(event),
+        final ProgramError error = programErrorFactory.create(
+                LogUtils.getErrorLevel(event.getLevel()), event.getFormattedMessage(),
+                LogUtils.getThrowable(event), LocalDateTime.now(),
                 isAppError(event.getMarker()));
-        handleErrorEvent(error);
+        final ProgramError stored = addError(error);
+        if (stored == error || error.getLevel() == ErrorLevel.FATAL) {
+            handleErrorEvent(stored);
+        } else if (pendingStatusEvents.add(stored)) {
+            eventBus.publishAsync(new ProgramErrorStatusEvent(stored));
+        }
     }
 
     private boolean isAppError(@Nullable final Marker marker) {
@@ -101,23 +137,56 @@ public class ProgramErrorManager {
         }
     }
 
+    @Handler(priority = EventUtils.PRIORITY_HIGHEST)
+    void handleErrorStatusChanged(final ProgramErrorStatusEvent event) {
+        // Any occurrences after this point will be reported by a new event
+        pendingStatusEvents.remove(event.getError());
+    }
+
     /**
-     * Adds a new error to the manager with the specified details.
+     * Adds an error to the manager. If an error with the same signature is already known, its
+     * occurrence count is incremented instead and the existing error is returned.
      *
-     * @param level     The severity of the error
-     * @param message   The error message
-     * @param throwable The exception that caused the error, if any.
-     * @param appError  Whether or not this is an application error
+     * @param error The error to add
      *
-     * @since 0.6.3m1
+     * @return The error that is now stored for the given error's signature.
      */
-    private ProgramError addError(final ErrorLevel level, final String message,
-            final Throwable throwable, final boolean appError) {
+    ProgramError addError(final ProgramError error) {
+        final String signature = getSignature(error);
+        final ProgramError stored;
+        final List<ProgramError> evicted;
 
-        final ProgramError error = programErrorFactory.create(level, message, throwable,
-                LocalDateTime.now(), appError);
-        errors.add(error);
-        return error;
+        synchronized (errors) {
+            final ProgramError existing = errors.get(signature);
+            if (existing == null) {
+                errors.put(signature, error);
+                stored = error;
+            } else {
+                existing.addOccurrence(error.getDate());
+                stored = existing;
+            }
+
+            evicted = evictErrors();
+        }
+
+        evicted.stream().map(ProgramErrorDeletedEvent::new).forEach(eventBus::publishAsync);
+        return stored;
+    }
+
+    /**
+     * Removes the least recently occurring errors until no more than the maximum number of errors
+     * are stored. The caller must hold the lock on {@link #errors}.
+     *
+     * @return The errors that were removed.
+     */
+    private List<ProgramError> evictErrors() {
+        final List<ProgramError> evicted = new ArrayList<>();
+        final Iterator<ProgramError> iterator = errors.values().iterator();
+        while (errors.size() > Math.max(1, maxErrors) && iterator.hasNext()) {
+            evicted.add(iterator.next());
+            iterator.remove();
+        }
+        return evicted;
     }
 
     /**
@@ -126,7 +195,9 @@ public class ProgramErrorManager {
      * @param error ProgramError that changed
      */
     public void deleteError(final ProgramError error) {
-        errors.remove(error);
+        synchronized (errors) {
+            errors.remove(getSignature(error), error);
+        }
         eventBus.publishAsync(new ProgramErrorDeletedEvent(error));
     }
 
@@ -136,8 +207,11 @@ public class ProgramErrorManager {
      * @since 0.6.3m1
      */
     public void deleteAll() {
-        final Collection<ProgramError> errorsCopy = new HashSet<>(errors);
-        errors.clear();
+        final Collection<ProgramError> errorsCopy;
+        synchronized (errors) {
+            errorsCopy = new ArrayList<>(errors.values());
+            errors.clear();
+        }
         errorsCopy.stream().map(ProgramErrorDeletedEvent::new).forEach(eventBus::publish);
     }
 
@@ -147,6 +221,40 @@ public class ProgramErrorManager {
      * @return Program error list
      */
     public Set<ProgramError> getErrors() {
-        return Collections.unmodifiableSet(errors);
+        synchronized (errors) {
+            return Collections.unmodifiableSet(new HashSet<>(errors.values()));
+        }
+    }
+
+    @ConfigBinding(domain = "general", key = "maxerrors")
+    void handleMaxErrorsSetting(final int value) {
+        final List<ProgramError> evicted;
+        synchronized (errors) {
+            maxErrors = value;
+            evicted = evictErrors();
+        }
+        evicted.stream().map(ProgramErrorDeletedEvent::new).forEach(eventBus::publishAsync);
+    }
+
+    /**
+     * Builds the signature used to recognise repeats of the given error.
+     *
+     * @param error The error to get the signature of
+     *
+     * @return A string identifying errors of the same kind.
+     */
+    private static String getSignature(final ProgramError error) {
+        final StringBuilder signature = new StringBuilder();
+        signature.append(error.getLevel()).append('\n').append(error.getMessage());
+        error.getThrowable().ifPresent(throwable -> {
+            for (Throwable cause : Throwables.getCausalChain(throwable)) {
+                signature.append('\n').append(cause.getClass().getName());
+                final StackTraceElement[] trace = cause.getStackTrace();
+                for (int i = 0; i < Math.min(SIGNATURE_FRAMES, trace.length); i++) {
+                    signature.append('\n').append(trace[i]);
+                }
+            }
+        });
+        return signature.toString();
     }
 }
@@ -19,30 +19,88 @@ package com.dmdirc.plugins;
 
 import com.dmdirc.util.resourcemanager.ResourceManager;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nullable;
 
 /**
  * This classloader knows about plugins and is used to store persistent classes.
+ *
+ * <p>Classes are located in plugins using an index from class name to the plugins that contain
+ * them, which is maintained by the {@link PluginManager} as plugins are added, updated and removed.
+ * Names that the parent class loader failed to find are remembered so that the class path is not
+ * searched again for them.
  */
 public final class GlobalClassLoader extends ClassLoader {
 
-    /** HashMap containing sources of Global class files. */
-    private final Map<String, String> resourcesList = new HashMap<>();
-    /** Plugin Manager that owns this GlobalClassLoader. */
-    private final PluginManager manager;
+    /** Map containing sources of Global class files. */
+    private final Map<String, String> resourcesList = new ConcurrentHashMap<>();
+    /** Map of class names to the plugins that contain a class of that name. */
+    private final Map<String, Set<PluginInfo>> classIndex = new ConcurrentHashMap<>();
+    /** Map of indexed plugins to the class names they were indexed with. */
+    private final Map<PluginInfo, Collection<String>> indexedPlugins = new ConcurrentHashMap<>();
+    /** Names of classes that the parent class loader could not find. */
+    private final Set<String> parentMisses = ConcurrentHashMap.newKeySet();
 
     /**
      * Create a new GlobalClassLoader.
+     */
+    public GlobalClassLoader() {
+    }
+
+    /**
+     * Adds the classes of the given plugin to the class index, replacing any classes previously
+     * indexed for it.
      *
-     * @param manager Plugin Manager that this GCL is used by.
+     * @param pi The plugin to index
      */
-    public GlobalClassLoader(final PluginManager manager) {
-        this.manager = manager;
+    public void addPlugin(final PluginInfo pi) {
+        removePlugin(pi);
+        final Collection<String> classes = ImmutableList.copyOf(pi.getClassList());
+        indexedPlugins.put(pi, classes);
+        for (String classname : classes) {
+            classIndex.merge(classname, ImmutableSet.of(pi),
+                    (current, added) -> ImmutableSet.<PluginInfo>builder()
+                            .addAll(current).addAll(added).build());
+        }
+    }
+
+    /**
+     * Updates the class index for the given plugin, if it has been indexed.
+     *
+     * @param pi The plugin whose class list has changed
+     */
+    public void updatePlugin(final PluginInfo pi) {
+        if (indexedPlugins.containsKey(pi)) {
+            addPlugin(pi);
+        }
+    }
+
+    /**
+     * Removes the classes of the given plugin from the class index.
+     *
+     * @param pi The plugin to remove
+     */
+    public void removePlugin(final PluginInfo pi) {
+        final Collection<String> classes = indexedPlugins.remove(pi);
+        if (classes == null) {
+            return;
+        }
+        for (String classname : classes) {
+            classIndex.computeIfPresent(classname, (name, current) -> {
+                final Set<PluginInfo> remaining =
+                        ImmutableSet.copyOf(Sets.filter(current, owner -> owner != pi));
+                return remaining.isEmpty() ? null : remaining;
+            });
+        }
     }
 
     /**
@@ -68,29 +126,37 @@ public final class GlobalClassLoader extends ClassLoader {
      */
     public Class<?> loadClass(final String name, final PluginInfo pi) throws ClassNotFoundException {
 
-        pi.getPersistentClasses().stream()
-                .filter(classname -> !resourcesList.containsKey(classname))
-                .forEach(classname -> resourcesList.put(classname,
-                        pi.getMetaData().getPluginPath().toAbsolutePath().toString()));
+        final String pluginPath = pi.getMetaData().getPluginPath().toAbsolutePath().toString();
+        pi.getPersistentClasses()
+                .forEach(classname -> resourcesList.putIfAbsent(classname, pluginPath));
         return loadClass(name);
     }
 
     @Override
     public Class<?> loadClass(final String name) throws ClassNotFoundException {
-        try {
-            return super.loadClass(name);
-        } catch (ClassNotFoundException e) {
-            final byte[] data = getClassData(name);
-            if (data != null) {
-                return defineClass(name, data);
+        final Class<?> loadedClass = findLoadedClass(name);
+        if (loadedClass != null) {
+            return loadedClass;
+        }
+
+        if (!parentMisses.contains(name)) {
+            try {
+                return super.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                parentMisses.add(name);
             }
         }
 
+        final byte[] data = getClassData(name);
+        if (data != null) {
+            return defineClass(name, data);
+        }
+
         // Check the other plugins.
-        for (PluginInfo pi : manager.getPluginInfos()) {
-            final List<String> classList = pi.getClassList();
-            if (classList.contains(name) && pi.getPluginClassLoader() != null) {
-                return pi.getPluginClassLoader().loadClass(name, false);
+        for (PluginInfo pi : classIndex.getOrDefault(name, ImmutableSet.of())) {
+            final PluginClassLoader loader = pi.getPluginClassLoader();
+            if (loader != null) {
+                return loader.loadClass(name, false);
             }
         }
 
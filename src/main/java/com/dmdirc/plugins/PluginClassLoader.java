@@ -99,10 +99,9 @@ public class PluginClassLoader extends ClassLoader {
             }
         }
 
-        final String fileName = name.replace('.', '/') + ".class";
+        final boolean ownClass = pluginInfo.hasClass(name);
         try {
-            if (pluginInfo.isPersistent(name) || !Files.exists(
-                    pluginInfo.getPath(fileName))) {
+            if (pluginInfo.isPersistent(name) || !ownClass) {
                 if (!pluginInfo.isPersistent(name) && askGlobal) {
                     return globalLoader.loadClass(name);
                 } else {
@@ -128,9 +127,9 @@ public class PluginClassLoader extends ClassLoader {
 
         // We are meant to be loading this one!
         final byte[] data;
-        if (Files.exists(pluginInfo.getPath(fileName))) {
+        if (ownClass) {
             try {
-                data = Files.readAllBytes(pluginInfo.getPath(fileName));
+                data = Files.readAllBytes(pluginInfo.getPath(name.replace('.', '/') + ".class"));
             } catch (IOException ex) {
                 throw new ClassNotFoundException(ex.getMessage(), ex);
             }
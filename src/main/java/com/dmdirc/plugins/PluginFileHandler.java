@@ -20,19 +20,31 @@ package com.dmdirc.plugins;
 import com.dmdirc.commandline.CommandLineOptionsModule.Directory;
 import com.dmdirc.commandline.CommandLineOptionsModule.DirectoryType;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -46,15 +58,24 @@ import static com.dmdirc.util.LogUtils.USER_ERROR;
 
 /**
  * Locates and tracks plugin files on disk.
+ *
+ * <p>Metadata is cached between refreshes, keyed on the path of the plugin's jar. A jar's metadata
+ * is only read again if the jar's size, modification time or file key have changed since it was
+ * last read. Metadata for new or changed jars is read on a small pool of threads that only exists
+ * for the duration of a refresh, so that slow disks don't tie up any shared threads.
  */
 @Singleton
 public class PluginFileHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(PluginFileHandler.class);
+    /** The maximum number of threads to read plugin metadata on. */
+    private static final int MAX_READER_THREADS = 4;
     private final Path directory;
 
     private final Collection<PluginMetaData> knownPlugins = new CopyOnWriteArrayList<>();
 
+    private final Map<Path, CachedMetaData> metaDataCache = new ConcurrentHashMap<>();
+
     @Inject
     public PluginFileHandler(
             @Directory(DirectoryType.PLUGINS) final Path directory) {
@@ -130,31 +151,99 @@ public class PluginFileHandler {
      * @return Collection of all plugins with loadable metadata.
      */
     private Set<PluginMetaData> findAllPlugins(final PluginManager manager) {
+        final List<Path> paths;
         try {
-            return Files.walk(directory, FileVisitOption.FOLLOW_LINKS)
+            paths = Files.walk(directory, FileVisitOption.FOLLOW_LINKS)
                     .filter(p -> p.getFileName().toString().endsWith(".jar"))
                     .map(Path::toAbsolutePath)
-                    .map(path -> getMetaData(path, manager))
-                    .collect(Collectors.toSet());
+                    .collect(Collectors.toList());
         } catch (IOException ex) {
             LOG.error(USER_ERROR, "Unable to read plugin directory.", ex);
             return Collections.emptySet();
         }
+
+        metaDataCache.keySet().retainAll(paths);
+        if (paths.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        final List<Callable<PluginMetaData>> tasks = paths.stream()
+                .<Callable<PluginMetaData>>map(path -> () -> getMetaData(path, manager))
+                .collect(Collectors.toList());
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(MAX_READER_THREADS, paths.size()),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("Plugin metadata reader %d")
+                        .setDaemon(true)
+                        .build());
+        try {
+            final Set<PluginMetaData> metadata = new HashSet<>();
+            for (Future<PluginMetaData> future : executor.invokeAll(tasks)) {
+                metadata.add(future.get());
+            }
+            return metadata;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new HashSet<>();
+        } catch (ExecutionException ex) {
+            LOG.error(USER_ERROR, "Unable to read plugin metadata.", ex.getCause());
+            return new HashSet<>();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Attempts to get the metadata for a plugin at the specified path. If the plugin has not
+     * changed since its metadata was last read, the cached metadata is returned.
+     *
+     * @param path The path of the plugin to get metadata from.
+     * @param manager The plugin manager to pass to new metadata instances.
+     * @return The metadata for the given plugin.
+     */
+    @VisibleForTesting
+    PluginMetaData getMetaData(final Path path, final PluginManager manager) {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            metaDataCache.remove(path);
+            return loadMetaData(path, manager);
+        }
+
+        final CachedMetaData cached = metaDataCache.get(path);
+        if (cached != null && cached.isValidFor(manager, attributes)) {
+            return cached.getMetaData();
+        }
+
+        final PluginMetaData metaData = loadMetaData(path, manager);
+        metaDataCache.put(path, new CachedMetaData(manager, attributes, metaData));
+        return metaData;
     }
 
     /**
-     * Attempts to get the metadata for a plugin at the specified path.
+     * Reads the metadata for a plugin at the specified path.
      *
      * @param path The path of the plugin to get metadata from.
      * @param manager The plugin manager to pass to new metadata instances.
      * @return The metadata for the given plugin.
      */
-    private PluginMetaData getMetaData(final Path path, final PluginManager manager) {
+    private PluginMetaData loadMetaData(final Path path, final PluginManager manager) {
         final PluginMetaData metaData = new PluginMetaData(manager, path);
         metaData.load();
         return metaData;
     }
 
+    /**
+     * Gets the number of plugins whose metadata is currently cached.
+     *
+     * @return The number of cached entries.
+     */
+    @VisibleForTesting
+    int getCacheSize() {
+        return metaDataCache.size();
+    }
+
     /**
      * Reports any errors present in the metadata to the event bus.
      *
@@ -208,20 +297,61 @@ public class PluginFileHandler {
         final Multimap<String, String> services = getServices(metadata);
 
         // Validate each in turn
-        final Set<PluginMetaData> res = new HashSet<>();
-        for (PluginMetaData target : metadata) {
+        return metadata.stream().filter(target -> {
             final PluginMetaDataValidator validator = new PluginMetaDataValidator(target);
             final Collection<String> results = validator.validate(metaDataByName, services);
 
-            if (results.isEmpty()) {
-                res.add(target);
-            } else {
+            if (!results.isEmpty()) {
                 LOG.warn(USER_ERROR, "Plugin validation failed for {}: {}",
                         target.getPluginPath(), results);
             }
+            return results.isEmpty();
+        }).collect(Collectors.toSet());
+    }
+
+    /**
+     * Metadata read from a plugin, along with the details of the file it was read from.
+     */
+    private static class CachedMetaData {
+
+        /** The manager the metadata was created for. */
+        private final PluginManager manager;
+        /** The size of the plugin's jar when the metadata was read. */
+        private final long size;
+        /** The modification time of the plugin's jar when the metadata was read. */
+        private final FileTime lastModified;
+        /** The file key of the plugin's jar when the metadata was read, if any. */
+        private final Object fileKey;
+        /** The metadata that was read. */
+        private final PluginMetaData metaData;
+
+        CachedMetaData(final PluginManager manager, final BasicFileAttributes attributes,
+                final PluginMetaData metaData) {
+            this.manager = manager;
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime();
+            this.fileKey = attributes.fileKey();
+            this.metaData = metaData;
+        }
+
+        PluginMetaData getMetaData() {
+            return metaData;
+        }
+
+        /**
+         * Determines if this metadata is still valid for a jar with the given attributes.
+         *
+         * @param manager The plugin manager that will use the metadata.
+         * @param attributes The current attributes of the plugin's jar.
+         * @return True if the cached metadata can be reused, false otherwise.
+         */
+        boolean isValidFor(final PluginManager manager, final BasicFileAttributes attributes) {
+            return this.manager == manager
+                    && size == attributes.size()
+                    && lastModified.equals(attributes.lastModifiedTime())
+                    && Objects.equals(fileKey, attributes.fileKey());
         }
 
-        return res;
     }
 
 }
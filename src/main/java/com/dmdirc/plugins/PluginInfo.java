@@ -40,8 +40,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +77,8 @@ public class PluginInfo implements ServiceProvider {
     private PluginClassLoader pluginClassLoader;
     /** List of classes this plugin has. */
     private final List<String> myClasses = new ArrayList<>();
+    /** Set of the names of classes this plugin has, for quick lookups. */
+    private volatile Set<String> myClassNames = Collections.emptySet();
     /** Last Error Message. */
     private String lastError = "No Error";
     /** Are we trying to load? */
@@ -175,6 +179,8 @@ public class PluginInfo implements ServiceProvider {
         } catch (IOException ex) {
             lastError = "Error loading classes: " + ex.getMessage();
             throw new PluginException("Plugin " + filename + " failed to load. " + lastError, ex);
+        } finally {
+            myClassNames = Collections.unmodifiableSet(new HashSet<>(myClasses));
         }
     }
 
@@ -322,6 +328,7 @@ public class PluginInfo implements ServiceProvider {
      */
     public void pluginUpdated() throws PluginException {
         updateClassList();
+        pluginManager.getGlobalClassLoader().updatePlugin(this);
         updateMetaData();
         updateProvides();
         getDefaults();
@@ -715,6 +722,17 @@ public class PluginInfo implements ServiceProvider {
         return Collections.unmodifiableList(myClasses);
     }
 
+    /**
+     * Does this plugin's jar contain the given class?
+     *
+     * @param classname class to check for
+     *
+     * @return true if the class is in this plugin, else false
+     */
+    public boolean hasClass(final String classname) {
+        return myClassNames.contains(classname);
+    }
+
     /**
      * Is this a persistent plugin?
      *
@@ -92,7 +92,7 @@ public class PluginManager {
         this.updateManager = updateManager;
         this.fileHandler = fileHandler;
         this.directory = directory;
-        this.globalClassLoader = new GlobalClassLoader(this);
+        this.globalClassLoader = new GlobalClassLoader();
         this.objectGraph = objectGraph;
         this.eventBus = eventBus;
     }
@@ -161,6 +161,7 @@ public class PluginManager {
             }
 
             knownPlugins.put(filename.toLowerCase(), pluginInfo);
+            globalClassLoader.addPlugin(pluginInfo);
 
             eventBus.publishAsync(new PluginRefreshEvent());
             return true;
@@ -193,6 +194,7 @@ public class PluginManager {
         pluginInfo.unloadPlugin();
 
         knownPlugins.remove(filename.toLowerCase());
+        globalClassLoader.removePlugin(pluginInfo);
 
         return true;
     }
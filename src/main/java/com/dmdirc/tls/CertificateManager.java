@@ -23,33 +23,29 @@ import com.dmdirc.events.ServerCertificateProblemEncounteredEvent;
 import com.dmdirc.events.ServerCertificateProblemResolvedEvent;
 import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.interfaces.Connection;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
-import java.security.InvalidAlgorithmParameterException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
 import java.security.cert.CertificateException;
-import java.security.cert.PKIXParameters;
-import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
-import java.util.stream.Collectors;
 import javax.naming.InvalidNameException;
 import javax.naming.ldap.LdapName;
 import javax.naming.ldap.Rdn;
 import javax.net.ssl.KeyManager;
-import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.X509TrustManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,8 +66,10 @@ public class CertificateManager implements X509TrustManager {
     private final String serverName;
     /** The configuration manager to use for settings. */
     private final AggregateConfigProvider config;
-    /** The set of CAs from the global cacert file. */
-    private final Set<X509Certificate> globalTrustedCAs = new HashSet<>();
+    /** The store of globally trusted certificates. */
+    private final TrustedCertificateStore trustedCertificates;
+    /** The cache of client certificate key managers. */
+    private final KeyManagerCache keyManagerCache;
     /** Used to synchronise the manager with the certificate dialog. */
     private final Semaphore actionSem = new Semaphore(0);
     /** The event bus to post errors to. */
@@ -84,51 +82,35 @@ public class CertificateManager implements X509TrustManager {
     private X509Certificate[] chain;
     /** The user settings to write to. */
     private final ConfigProvider userSettings;
-    /** Locator to use to find a system keystore. */
-    private final KeyStoreLocator keyStoreLocator;
     /** Checker to use for hostnames. */
     private final CertificateHostChecker hostChecker;
 
     /**
      * Creates a new certificate manager for a client connecting to the specified server.
      *
-     * @param serverName   The name the user used to connect to the server
-     * @param config       The configuration manager to use
-     * @param userSettings The user settings to write to.
-     * @param eventBus     The event bus to post errors to
+     * @param serverName          The name the user used to connect to the server
+     * @param config              The configuration manager to use
+     * @param userSettings        The user settings to write to.
+     * @param eventBus            The event bus to post errors to
+     * @param trustedCertificates The store of globally trusted certificates
+     * @param keyManagerCache     The cache of client certificate key managers
      */
     public CertificateManager(
             final Connection connection,
             final String serverName,
             final AggregateConfigProvider config,
             final ConfigProvider userSettings,
-            final EventBus eventBus) {
+            final EventBus eventBus,
+            final TrustedCertificateStore trustedCertificates,
+            final KeyManagerCache keyManagerCache) {
         this.connection = connection;
         this.serverName = serverName;
         this.config = config;
         this.userSettings = userSettings;
         this.eventBus = eventBus;
-        this.keyStoreLocator = new KeyStoreLocator();
+        this.trustedCertificates = trustedCertificates;
+        this.keyManagerCache = keyManagerCache;
         this.hostChecker = new CertificateHostChecker();
-
-        loadTrustedCAs();
-    }
-
-    /**
-     * Loads the trusted CA certificates from the Java cacerts store.
-     */
-    private void loadTrustedCAs() {
-        try {
-            final KeyStore keyStore = keyStoreLocator.getKeyStore();
-            if (keyStore != null) {
-                final PKIXParameters params = new PKIXParameters(keyStore);
-                globalTrustedCAs.addAll(params.getTrustAnchors().stream()
-                        .map(TrustAnchor::getTrustedCert)
-                        .collect(Collectors.toList()));
-            }
-        } catch (InvalidAlgorithmParameterException | KeyStoreException ex) {
-            LOG.warn(USER_ERROR, "Unable to load trusted certificates", ex);
-        }
     }
 
     /**
@@ -139,8 +121,7 @@ public class CertificateManager implements X509TrustManager {
      */
     public KeyManager[] getKeyManager() {
         if (config.hasOptionString("ssl", "clientcert.file")) {
-            try (FileInputStream fis = new FileInputStream(config.getOption("ssl",
-                    "clientcert.file"))) {
+            try {
                 final char[] pass;
 
                 if (config.hasOptionString("ssl", "clientcert.pass")) {
@@ -149,15 +130,9 @@ public class CertificateManager implements X509TrustManager {
                     pass = null;
                 }
 
-                final KeyStore ks = KeyStore.getInstance("pkcs12");
-                ks.load(fis, pass);
-
-                final KeyManagerFactory kmf = KeyManagerFactory.getInstance(
-                        KeyManagerFactory.getDefaultAlgorithm());
-                kmf.init(ks, pass);
-
-                return kmf.getKeyManagers();
-            } catch (FileNotFoundException ex) {
+                return keyManagerCache.getKeyManagers(
+                        Paths.get(config.getOption("ssl", "clientcert.file")), pass);
+            } catch (NoSuchFileException | InvalidPathException ex) {
                 LOG.warn(USER_ERROR, "Certificate file not found", ex);
             } catch (GeneralSecurityException | IOException ex) {
                 LOG.warn(USER_ERROR, "Unable to get key manager", ex);
@@ -182,21 +157,29 @@ public class CertificateManager implements X509TrustManager {
      *         certificate's details are marked as trusted in the DMDirc configuration file.
      */
     public TrustResult isTrusted(final X509Certificate certificate) {
-        try {
-            final String sig = Base64.getEncoder().encodeToString(certificate.getSignature());
+        return isTrusted(certificate, getManuallyTrusted());
+    }
 
-            if (config.hasOptionString("ssl", "trusted") && config.getOptionList("ssl",
-                    "trusted").contains(sig)) {
+    /**
+     * Determines if the specified certificate is trusted by the user.
+     *
+     * @param certificate      The certificate to be checked
+     * @param manualSignatures The encoded signatures of manually trusted certificates
+     *
+     * @return The trust result for the certificate.
+     */
+    private TrustResult isTrusted(final X509Certificate certificate,
+            final Set<String> manualSignatures) {
+        try {
+            if (!manualSignatures.isEmpty() && manualSignatures.contains(
+                    Base64.getEncoder().encodeToString(certificate.getSignature()))) {
                 return TrustResult.TRUSTED_MANUALLY;
-            } else {
-                for (X509Certificate trustedCert : globalTrustedCAs) {
-                    if (Arrays.equals(certificate.getSignature(), trustedCert.getSignature())
-                            && certificate.getIssuerDN().getName()
-                            .equals(trustedCert.getIssuerDN().getName())) {
-                        certificate.verify(trustedCert.getPublicKey());
-                        return TrustResult.TRUSTED_CA;
-                    }
-                }
+            }
+
+            final Optional<X509Certificate> trustedCert = trustedCertificates.find(certificate);
+            if (trustedCert.isPresent()) {
+                certificate.verify(trustedCert.get().getPublicKey());
+                return TrustResult.TRUSTED_CA;
             }
         } catch (GeneralSecurityException ex) {
             return TrustResult.UNTRUSTED_EXCEPTION;
@@ -205,6 +188,18 @@ public class CertificateManager implements X509TrustManager {
         return TrustResult.UNTRUSTED_GENERAL;
     }
 
+    /**
+     * Gets the encoded signatures of certificates the user has chosen to trust.
+     *
+     * @return The set of manually trusted signatures.
+     */
+    private Set<String> getManuallyTrusted() {
+        if (config.hasOptionString("ssl", "trusted")) {
+            return new HashSet<>(config.getOptionList("ssl", "trusted"));
+        }
+        return Collections.emptySet();
+    }
+
     @Override
     public void checkServerTrusted(final X509Certificate[] chain, final String authType)
             throws CertificateException {
@@ -216,8 +211,12 @@ public class CertificateManager implements X509TrustManager {
                     "Certificate was not issued to " + serverName));
         }
 
-        if (checkIssuer(chain)) {
+        if (trustedCertificates.isVerified(serverName, chain)) {
+            checkValidity(chain);
+        } else if (checkIssuer(chain)) {
             problems.clear();
+        } else if (problems.isEmpty()) {
+            trustedCertificates.setVerified(serverName, chain);
         }
 
         if (!problems.isEmpty()) {
@@ -258,10 +257,11 @@ public class CertificateManager implements X509TrustManager {
      * OR untrusted).
      */
     private boolean checkIssuer(final X509Certificate... chain) {
+        final Set<String> manualSignatures = getManuallyTrusted();
         boolean manual = false;
         boolean verified = false;
         for (X509Certificate cert : chain) {
-            final TrustResult trustResult = isTrusted(cert);
+            final TrustResult trustResult = isTrusted(cert, manualSignatures);
 
             // Check that the certificate is in-date
             try {
@@ -284,6 +284,21 @@ public class CertificateManager implements X509TrustManager {
         return manual;
     }
 
+    /**
+     * Checks that every certificate in the chain is in-date.
+     *
+     * @param chain The chain of certificates to check.
+     */
+    private void checkValidity(final X509Certificate... chain) {
+        for (X509Certificate cert : chain) {
+            try {
+                cert.checkValidity();
+            } catch (CertificateException ex) {
+                problems.add(ex);
+            }
+        }
+    }
+
     /**
      * Gets the chain of certificates currently being validated, if any.
      *
@@ -347,7 +362,7 @@ public class CertificateManager implements X509TrustManager {
 
     @Override
     public X509Certificate[] getAcceptedIssuers() {
-        return globalTrustedCAs.toArray(new X509Certificate[globalTrustedCAs.size()]);
+        return trustedCertificates.getCertificates();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.tls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+
+/**
+ * Caches the {@link KeyManager}s built from client certificate files, so that the PKCS12 file
+ * is only decoded again when it or its password changes.
+ */
+@Singleton
+public class KeyManagerCache {
+
+    /** Key managers that have been loaded, keyed by the file they were loaded from. */
+    private final Map<Path, CachedKeyManagers> cache = new ConcurrentHashMap<>();
+
+    @Inject
+    public KeyManagerCache() {
+    }
+
+    /**
+     * Gets the key managers for the given PKCS12 file, loading them if the file has not been
+     * loaded before, or if it has been modified or its password has changed since it was last
+     * loaded.
+     *
+     * @param file     The PKCS12 file containing the client certificate.
+     * @param password The password for the file, or {@code null} if there is none.
+     *
+     * @return The key managers to use for the file.
+     *
+     * @throws IOException              If the file could not be read.
+     * @throws GeneralSecurityException If the file could not be decoded.
+     */
+    public KeyManager[] getKeyManagers(final Path file, @Nullable final char[] password)
+            throws IOException, GeneralSecurityException {
+        final Path key = file.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes =
+                Files.readAttributes(key, BasicFileAttributes.class);
+        final byte[] passwordHash = hash(password);
+
+        CachedKeyManagers cached = cache.get(key);
+        if (cached == null || !cached.matches(attributes, passwordHash)) {
+            synchronized (cache) {
+                cached = cache.get(key);
+                if (cached == null || !cached.matches(attributes, passwordHash)) {
+                    cached = new CachedKeyManagers(attributes, passwordHash,
+                            load(key, password));
+                    cache.put(key, cached);
+                }
+            }
+        }
+        return cached.keyManagers.clone();
+    }
+
+    /**
+     * Decodes the given PKCS12 file and builds key managers for it.
+     *
+     * @param file     The file to load.
+     * @param password The password for the file, or {@code null} if there is none.
+     *
+     * @return The key managers for the file.
+     */
+    private static KeyManager[] load(final Path file, @Nullable final char[] password)
+            throws IOException, GeneralSecurityException {
+        try (InputStream is = Files.newInputStream(file)) {
+            final KeyStore ks = KeyStore.getInstance("pkcs12");
+            ks.load(is, password);
+
+            final KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+                    KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(ks, password);
+
+            return kmf.getKeyManagers();
+        }
+    }
+
+    /**
+     * Hashes the given password, so that changes can be detected without keeping it in memory.
+     *
+     * @param password The password to hash, or {@code null} if there is none.
+     *
+     * @return A SHA-256 hash of the password, or an empty array if there is none.
+     */
+    private static byte[] hash(@Nullable final char[] password)
+            throws NoSuchAlgorithmException {
+        if (password == null) {
+            return new byte[0];
+        }
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(password)));
+        return digest.digest();
+    }
+
+    /**
+     * Key managers loaded from a file, along with the details needed to tell if they're stale.
+     */
+    private static class CachedKeyManagers {
+
+        /** The modification time of the file when it was loaded, in milliseconds. */
+        private final long lastModified;
+        /** The size of the file when it was loaded. */
+        private final long size;
+        /** The hash of the password used to load the file. */
+        private final byte[] passwordHash;
+        /** The loaded key managers. */
+        private final KeyManager[] keyManagers;
+
+        CachedKeyManagers(final BasicFileAttributes attributes, final byte[] passwordHash,
+                final KeyManager... keyManagers) {
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+            this.passwordHash = passwordHash;
+            this.keyManagers = keyManagers;
+        }
+
+        boolean matches(final BasicFileAttributes attributes, final byte[] hash) {
+            return lastModified == attributes.lastModifiedTime().toMillis()
+                    && size == attributes.size()
+                    && MessageDigest.isEqual(passwordHash, hash);
+        }
+
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.tls;
+
+import java.security.GeneralSecurityException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.security.auth.x500.X500Principal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.dmdirc.util.LogUtils.USER_ERROR;
+
+/**
+ * Holds the system-wide trusted certificates, shared between all {@link CertificateManager}s.
+ *
+ * <p>The certificates are read from the {@link KeyStoreLocator}'s key store the first time they
+ * are needed, and indexed by subject and subject key identifier. The store also remembers the
+ * most recent certificate chain from each host that was verified against the trusted
+ * certificates, so that reconnecting to the same host does not need to verify it again.
+ */
+@Singleton
+public class TrustedCertificateStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrustedCertificateStore.class);
+    /** OID of the subject key identifier extension. */
+    private static final String SUBJECT_KEY_IDENTIFIER = "2.5.29.14";
+    /** Source of the trusted certificates. */
+    private final Supplier<Collection<X509Certificate>> loader;
+    /** Fingerprint of the last verified chain from each host. */
+    private final Map<String, String> verifiedChains = new ConcurrentHashMap<>();
+    /** The loaded certificates, or {@code null} if they have not yet been loaded. */
+    private volatile Index index;
+
+    /**
+     * Creates a new store that reads certificates from the system key store.
+     */
+    @Inject
+    public TrustedCertificateStore() {
+        this(() -> loadCertificates(new KeyStoreLocator()));
+    }
+
+    /**
+     * Creates a new store that reads certificates from the given loader.
+     *
+     * @param loader Supplier of the certificates to trust, called once on first use.
+     */
+    TrustedCertificateStore(final Supplier<Collection<X509Certificate>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Reads the trusted certificates from the given locator's key store.
+     *
+     * @param keyStoreLocator The locator to use to find a key store.
+     *
+     * @return The trusted certificates, or an empty collection if they could not be read.
+     */
+    private static Collection<X509Certificate> loadCertificates(
+            final KeyStoreLocator keyStoreLocator) {
+        try {
+            final KeyStore keyStore = keyStoreLocator.getKeyStore();
+            if (keyStore != null) {
+                return new PKIXParameters(keyStore).getTrustAnchors().stream()
+                        .map(TrustAnchor::getTrustedCert)
+                        .collect(Collectors.toList());
+            }
+        } catch (InvalidAlgorithmParameterException | KeyStoreException ex) {
+            LOG.warn(USER_ERROR, "Unable to load trusted certificates", ex);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Gets the loaded certificates, loading them if this is the first call.
+     *
+     * @return The certificate index.
+     */
+    private Index getIndex() {
+        Index result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new Index(loader.get());
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets all of the trusted certificates.
+     *
+     * @return A new array containing all of the trusted certificates.
+     */
+    public X509Certificate[] getCertificates() {
+        final X509Certificate[] certificates = getIndex().certificates;
+        return Arrays.copyOf(certificates, certificates.length);
+    }
+
+    /**
+     * Finds the trusted certificate that is identical to the given one, if there is one. The
+     * certificates are considered identical if they have the same issuer and signature.
+     *
+     * @param certificate The certificate to look for.
+     *
+     * @return The matching trusted certificate, if any.
+     */
+    public Optional<X509Certificate> find(final X509Certificate certificate) {
+        final Index current = getIndex();
+        final Optional<X509Certificate> result = find(certificate,
+                current.bySubject.get(certificate.getSubjectX500Principal()));
+        if (result.isPresent()) {
+            return result;
+        }
+
+        final String keyIdentifier = getKeyIdentifier(certificate);
+        return keyIdentifier == null ? Optional.empty()
+                : find(certificate, current.byKeyIdentifier.get(keyIdentifier));
+    }
+
+    /**
+     * Finds the candidate that matches the given certificate.
+     *
+     * @param certificate The certificate to look for.
+     * @param candidates  The certificates to check, or {@code null} if there are none.
+     *
+     * @return The matching candidate, if any.
+     */
+    private static Optional<X509Certificate> find(final X509Certificate certificate,
+            final List<X509Certificate> candidates) {
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        return candidates.stream()
+                .filter(c -> Arrays.equals(certificate.getSignature(), c.getSignature()))
+                .filter(c -> certificate.getIssuerX500Principal()
+                        .equals(c.getIssuerX500Principal()))
+                .findFirst();
+    }
+
+    /**
+     * Determines whether the given chain is the one most recently verified for the given host.
+     *
+     * @param host  The host the chain was presented by.
+     * @param chain The chain of certificates presented.
+     *
+     * @return True if the chain has previously been verified for the host, false otherwise.
+     */
+    public boolean isVerified(final String host, final X509Certificate... chain) {
+        final String fingerprint = verifiedChains.get(host.toLowerCase(Locale.ENGLISH));
+        return fingerprint != null && fingerprint.equals(getFingerprint(chain));
+    }
+
+    /**
+     * Records that the given chain has been verified against the trusted certificates for the
+     * given host, replacing any chain previously recorded for that host.
+     *
+     * @param host  The host the chain was presented by.
+     * @param chain The chain of certificates presented.
+     */
+    public void setVerified(final String host, final X509Certificate... chain) {
+        final String fingerprint = getFingerprint(chain);
+        if (fingerprint != null) {
+            verifiedChains.put(host.toLowerCase(Locale.ENGLISH), fingerprint);
+        }
+    }
+
+    /**
+     * Computes a SHA-256 fingerprint of the given chain of certificates.
+     *
+     * @param chain The chain to fingerprint.
+     *
+     * @return The fingerprint, or {@code null} if it could not be computed.
+     */
+    private static String getFingerprint(final X509Certificate... chain) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (X509Certificate certificate : chain) {
+                digest.update(certificate.getEncoded());
+            }
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (GeneralSecurityException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the subject key identifier from the given certificate.
+     *
+     * @param certificate The certificate to read.
+     *
+     * @return The encoded key identifier, or {@code null} if the certificate doesn't have one.
+     */
+    private static String getKeyIdentifier(final X509Certificate certificate) {
+        final byte[] value = certificate.getExtensionValue(SUBJECT_KEY_IDENTIFIER);
+        return value == null ? null : Base64.getEncoder().encodeToString(value);
+    }
+
+    /**
+     * An immutable index of a set of certificates.
+     */
+    private static class Index {
+
+        /** All of the certificates. */
+        private final X509Certificate[] certificates;
+        /** Certificates indexed by subject. */
+        private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+        /** Certificates indexed by subject key identifier. */
+        private final Map<String, List<X509Certificate>> byKeyIdentifier = new HashMap<>();
+
+        Index(final Collection<X509Certificate> certificates) {
+            this.certificates = certificates.toArray(new X509Certificate[certificates.size()]);
+            for (X509Certificate certificate : certificates) {
+                bySubject.computeIfAbsent(certificate.getSubjectX500Principal(),
+                        k -> new ArrayList<>(1)).add(certificate);
+                final String keyIdentifier = getKeyIdentifier(certificate);
+                if (keyIdentifier != null) {
+                    byKeyIdentifier.computeIfAbsent(keyIdentifier,
+                            k -> new ArrayList<>(1)).add(certificate);
+                }
+            }
+        }
+
+    }
+
+}
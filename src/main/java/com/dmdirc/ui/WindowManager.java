@@ -26,14 +26,11 @@ import com.dmdirc.interfaces.WindowModel;
 import com.dmdirc.interfaces.ui.FrameListener;
 import com.dmdirc.util.collections.ListenerList;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
-
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -47,6 +44,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * The WindowManager maintains a list of all open windows, and their parent/child relations.
+ *
+ * <p>Windows may be added and removed from any thread, including several event bus threads at
+ * once when windows belonging to different connections are closed.
  */
 @Singleton
 public class WindowManager {
@@ -54,11 +54,11 @@ public class WindowManager {
     /** A list of root windows. */
     private final Collection<WindowModel> rootWindows = new CopyOnWriteArrayList<>();
     /** Mapping of windows to their parents. */
-    private final Map<WindowModel, WindowModel> parents = new HashMap<>();
+    private final Map<WindowModel, WindowModel> parents = new ConcurrentHashMap<>();
     /** Mapping of parents to their children. */
-    private final Multimap<WindowModel, WindowModel> children = ArrayListMultimap.create();
+    private final Map<WindowModel, Collection<WindowModel>> children = new ConcurrentHashMap<>();
     /** Mapping of IDs to windows. */
-    private final Map<String, WindowModel> windowsById = new HashMap<>();
+    private final Map<String, WindowModel> windowsById = new ConcurrentHashMap<>();
     /** A list of frame listeners. */
     private final ListenerList listeners = new ListenerList();
     /** Counter to use for ID assignments. */
@@ -151,7 +151,8 @@ public class WindowManager {
      * @return A (possibly empty) collection of children of the given window.
      */
     public Collection<WindowModel> getChildren(final WindowModel window) {
-        return Collections.unmodifiableCollection(children.get(window));
+        return Collections.unmodifiableCollection(
+                children.getOrDefault(window, Collections.emptyList()));
     }
 
     /**
@@ -223,7 +224,7 @@ public class WindowManager {
         checkNotNull(child);
 
         parents.put(child, parent);
-        children.put(parent, child);
+        children.computeIfAbsent(parent, k -> new CopyOnWriteArrayList<>()).add(child);
         assignId(child);
         fireAddWindow(parent, child, focus);
     }
@@ -258,8 +259,8 @@ public class WindowManager {
         checkNotNull(window);
         checkArgument(isInHierarchy(window));
 
-        children.get(window).forEach(WindowModel::close);
-        children.removeAll(window);
+        getChildren(window).forEach(WindowModel::close);
+        children.remove(window);
         windowsById.remove(window.getId());
 
         if (rootWindows.contains(window)) {
@@ -69,6 +69,14 @@ public class DisplayableError {
         return programError;
     }
 
+    public int getOccurrences() {
+        return programError.getOccurrences();
+    }
+
+    public LocalDateTime getLastOccurrence() {
+        return programError.getLastOccurrence();
+    }
+
     public ErrorReportStatus getReportStatus() {
         return reportStatus;
     }
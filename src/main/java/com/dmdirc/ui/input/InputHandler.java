@@ -36,19 +36,16 @@ import com.dmdirc.plugins.ServiceManager;
 import com.dmdirc.ui.input.tabstyles.TabCompletionResult;
 import com.dmdirc.ui.input.tabstyles.TabCompletionStyle;
 import com.dmdirc.ui.messages.IRCControlCodes;
+import com.dmdirc.util.HashedWheelTimer;
+import com.dmdirc.util.HashedWheelTimer.Timeout;
 import com.dmdirc.util.collections.ListenerList;
 import com.dmdirc.util.collections.RollingList;
 import com.dmdirc.util.validators.ValidationResponse;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-
 import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -86,6 +83,9 @@ public abstract class InputHandler implements ConfigChangeListener {
      * been inserted.
      */
     private static final int POSITION_END = 1;
+    /** Timer shared by input handlers that are not given one of their own. */
+    private static final HashedWheelTimer DEFAULT_TIMER =
+            new HashedWheelTimer(100, TimeUnit.MILLISECONDS, 512, "Input handler timer");
     /** Tab-completer utilities. */
     private final TabCompleterUtils tabCompleterUtils;
     /** The flags for this particular input handler. */
@@ -108,18 +108,20 @@ public abstract class InputHandler implements ConfigChangeListener {
     /** The current composition state. */
     private CompositionState state = CompositionState.IDLE;
     /** Timer used to manage timeouts of composition state. */
-    private ScheduledFuture<?> compositionTimer;
+    private Timeout compositionTimer;
     /** Manager to use to look up tab completion services. */
     private final ServiceManager serviceManager;
     /** The controller to use to retrieve command information. */
     private final CommandController commandController;
     /** The event bus to use to dispatch input events. */
     private final EventBus eventBus;
-    /** Executor service. */
-    private final ScheduledExecutorService executorService;
+    /** Timer used to schedule composition state timeouts. */
+    private final HashedWheelTimer timer;
 
     /**
      * Creates a new instance of InputHandler. Adds listeners to the target that we need to operate.
+     * Composition state timeouts are scheduled on a timer shared by all input handlers created
+     * this way.
      *
      * @param serviceManager    Manager to use to look up tab completion services.
      * @param target            The text field this input handler is dealing with.
@@ -136,6 +138,30 @@ public abstract class InputHandler implements ConfigChangeListener {
             final WindowModel parentWindow,
             final TabCompleterUtils tabCompleterUtils,
             final EventBus eventBus) {
+        this(serviceManager, target, commandController, commandParser, parentWindow,
+                tabCompleterUtils, eventBus, DEFAULT_TIMER);
+    }
+
+    /**
+     * Creates a new instance of InputHandler. Adds listeners to the target that we need to operate.
+     *
+     * @param serviceManager    Manager to use to look up tab completion services.
+     * @param target            The text field this input handler is dealing with.
+     * @param commandController The controller to use to retrieve command information.
+     * @param commandParser     The command parser to use for this text field.
+     * @param parentWindow      The window that owns this input handler
+     * @param eventBus          The event bus to use to dispatch input events.
+     * @param timer             The shared timer to schedule composition state timeouts on.
+     */
+    public InputHandler(
+            final ServiceManager serviceManager,
+            final InputField target,
+            final CommandController commandController,
+            final CommandParser commandParser,
+            final WindowModel parentWindow,
+            final TabCompleterUtils tabCompleterUtils,
+            final EventBus eventBus,
+            final HashedWheelTimer timer) {
         buffer = new RollingList<>(parentWindow.getConfigManager()
                 .getOptionInt("ui", "inputbuffersize"), "");
 
@@ -146,8 +172,7 @@ public abstract class InputHandler implements ConfigChangeListener {
         this.parentWindow = parentWindow;
         this.tabCompleterUtils = tabCompleterUtils;
         this.eventBus = eventBus;
-        executorService = Executors.newSingleThreadScheduledExecutor(
-                new ThreadFactoryBuilder().setNameFormat("Composition state timer-%d").build());
+        this.timer = timer;
 
         setStyle();
 
@@ -302,7 +327,7 @@ public abstract class InputHandler implements ConfigChangeListener {
     private void cancelTypingNotification() {
         if (compositionTimer != null) {
             LOG.debug("Cancelling composition timer");
-            compositionTimer.cancel(true);
+            compositionTimer.cancel();
         }
 
         LOG.debug("Cancelling typing notification");
@@ -313,10 +338,10 @@ public abstract class InputHandler implements ConfigChangeListener {
     private void updateTypingNotification() {
         if (compositionTimer != null) {
             LOG.debug("Cancelling composition timer");
-            compositionTimer.cancel(true);
+            compositionTimer.cancel();
         }
 
-        compositionTimer = executorService.schedule(this::timeoutTypingNotification,
+        compositionTimer = timer.schedule(this::timeoutTypingNotification,
                 TYPING_TIMEOUT, TimeUnit.MILLISECONDS);
 
         LOG.debug("Setting composition state to typing. Timer scheduled for {}", TYPING_TIMEOUT);
@@ -671,7 +696,9 @@ public abstract class InputHandler implements ConfigChangeListener {
     @Handler
     void parentClosing(final FrameClosingEvent event) {
         if (event.getSource().equals(parentWindow)) {
-            executorService.shutdown();
+            if (compositionTimer != null) {
+                compositionTimer.cancel();
+            }
             eventBus.unsubscribe(this);
         }
     }
@@ -21,6 +21,13 @@ import com.dmdirc.commandparser.CommandType;
 import com.dmdirc.interfaces.CommandController;
 import com.dmdirc.config.provider.AggregateConfigProvider;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
@@ -34,6 +41,9 @@ public class TabCompleterFactory {
 
     /** The command controller to use to find commands. */
     private final Provider<CommandController> commandController;
+    /** The completers we've created, keyed on the command types they complete. */
+    private final Map<CommandType, Collection<TabCompleter>> completers =
+            new EnumMap<>(CommandType.class);
 
     /**
      * Creates a new instance of {@link TabCompleterFactory}.
@@ -89,9 +99,41 @@ public class TabCompleterFactory {
      */
     private void addCommands(final TabCompleter tabCompleter, final CommandType... commandTypes) {
         for (CommandType commandType : commandTypes) {
+            synchronized (completers) {
+                completers.computeIfAbsent(commandType,
+                        k -> Collections.newSetFromMap(new WeakHashMap<>())).add(tabCompleter);
+            }
             tabCompleter.addEntries(TabCompletionType.COMMAND,
                     commandController.get().getCommandNames(commandType));
         }
     }
 
+    /**
+     * Adds a command name to all live completers that complete commands of the given type.
+     *
+     * @param commandType The type of the command.
+     * @param name        The name to add, including any command characters.
+     */
+    public void addCommandName(final CommandType commandType, final String name) {
+        getCompleters(commandType).forEach(c -> c.addEntry(TabCompletionType.COMMAND, name));
+    }
+
+    /**
+     * Removes a command name from all live completers that complete commands of the given type.
+     *
+     * @param commandType The type of the command.
+     * @param name        The name to remove, including any command characters.
+     */
+    public void removeCommandName(final CommandType commandType, final String name) {
+        getCompleters(commandType).forEach(c -> c.removeEntry(TabCompletionType.COMMAND, name));
+    }
+
+    private Collection<TabCompleter> getCompleters(final CommandType commandType) {
+        synchronized (completers) {
+            final Collection<TabCompleter> typeCompleters = completers.get(commandType);
+            return typeCompleters == null ? Collections.emptyList()
+                    : new ArrayList<>(typeCompleters);
+        }
+    }
+
 }
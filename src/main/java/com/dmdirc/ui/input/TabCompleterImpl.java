@@ -18,18 +18,31 @@
 package com.dmdirc.ui.input;
 
 import com.dmdirc.config.provider.AggregateConfigProvider;
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.Multimap;
+import com.dmdirc.parser.common.DefaultStringConverter;
+import com.dmdirc.parser.interfaces.StringConverter;
 
 import javax.annotation.Nullable;
+import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * The tab completer handles a user's request to tab complete some word.
+ *
+ * <p>Entries are indexed per {@link TabCompletionType} in sorted maps keyed on their case-folded
+ * form, so completing a word only visits the entries that start with it.
  */
 public class TabCompleterImpl implements TabCompleter {
 
+    /** The converter to use when neither this completer nor its parent has one. */
+    private static final StringConverter DEFAULT_CONVERTER = new DefaultStringConverter();
     /**
      * The parent TabCompleter. Results from parents are merged with results from this completer.
      */
@@ -37,8 +50,14 @@ public class TabCompleterImpl implements TabCompleter {
     private final TabCompleter parent;
     /** The config manager to use for reading settings. */
     private final AggregateConfigProvider configManager;
-    /** The entries in this completer. */
-    private final Multimap<TabCompletionType, String> entries = ArrayListMultimap.create();
+    /** The entries in this completer, keyed on type and then case-folded entry. */
+    private final Map<TabCompletionType, NavigableMap<String, List<String>>> entries =
+            new EnumMap<>(TabCompletionType.class);
+    /** The converter explicitly set for this completer, if any. */
+    @Nullable
+    private StringConverter converter;
+    /** The converter that was used to fold the keys in {@link #entries}. */
+    private StringConverter indexConverter;
 
     /**
      * Creates a new instance of {@link TabCompleterImpl}.
@@ -46,8 +65,7 @@ public class TabCompleterImpl implements TabCompleter {
      * @param configManager     The manager to read config settings from.
      */
     public TabCompleterImpl(final AggregateConfigProvider configManager) {
-        this.parent = null;
-        this.configManager = configManager;
+        this(configManager, null);
     }
 
     /**
@@ -61,54 +79,125 @@ public class TabCompleterImpl implements TabCompleter {
             @Nullable final TabCompleter parent) {
         this.parent = parent;
         this.configManager = configManager;
+        this.indexConverter = getStringConverter();
+    }
+
+    /**
+     * Sets the converter used to case-fold entries, typically that of the connection this
+     * completer belongs to. Child completers that haven't had a converter set use their parent's.
+     *
+     * @param converter The new converter to use.
+     */
+    public synchronized void setStringConverter(final StringConverter converter) {
+        this.converter = converter;
+    }
+
+    /**
+     * Gets the converter used to case-fold entries.
+     *
+     * @return This completer's converter, or its parent's if none has been set.
+     */
+    public synchronized StringConverter getStringConverter() {
+        if (converter != null) {
+            return converter;
+        } else if (parent instanceof TabCompleterImpl) {
+            return ((TabCompleterImpl) parent).getStringConverter();
+        } else {
+            return DEFAULT_CONVERTER;
+        }
     }
 
     @Override
     public List<String> complete(final String partial, @Nullable final AdditionalTabTargets additionals) {
-        final List<String> result = new ArrayList<>();
-
         final boolean caseSensitive = configManager.getOptionBool("tabcompletion", "casesensitive");
         final boolean allowEmpty = configManager.getOptionBool("tabcompletion", "allowempty");
 
         if (partial.isEmpty() && !allowEmpty) {
-            return result;
+            return new ArrayList<>();
         }
 
-        final Multimap<TabCompletionType, String> targets = ArrayListMultimap.create(entries);
-        if (additionals != null) {
-            targets.putAll(TabCompletionType.ADDITIONAL, additionals);
-        }
+        final Set<String> result = new LinkedHashSet<>();
 
-        targets.keys().stream()
-                // Filter out keys that aren't allowed by the additional argument (if present)
-                .filter(k -> additionals == null || additionals.shouldInclude(k))
-                // Select all values for the valid keys
-                .flatMap(k -> targets.get(k).stream())
-                // Filter out values that don't case sensitively match, if case sensitivity is on
-                .filter(v -> !caseSensitive || v.startsWith(partial))
-                // Filter out values that don't case INsensitively match, if case sensitivity is off
-                .filter(v -> caseSensitive || v.toLowerCase().startsWith(partial.toLowerCase()))
-                // Filter out duplicates
-                .distinct()
-                // Add them all to the result
-                .forEach(result::add);
+        synchronized (this) {
+            final StringConverter currentConverter = getStringConverter();
+            if (currentConverter != indexConverter) {
+                reindex(currentConverter);
+            }
+
+            final String key = currentConverter.toLowerCase(partial);
+            for (Map.Entry<TabCompletionType, NavigableMap<String, List<String>>> entry
+                    : entries.entrySet()) {
+                if (additionals == null || additionals.shouldInclude(entry.getKey())) {
+                    addMatches(entry.getValue(), key, partial, caseSensitive, result);
+                }
+            }
+
+            if (additionals != null && additionals.shouldInclude(TabCompletionType.ADDITIONAL)) {
+                for (String additional : additionals) {
+                    if (caseSensitive ? additional.startsWith(partial)
+                            : currentConverter.toLowerCase(additional).startsWith(key)) {
+                        result.add(additional);
+                    }
+                }
+            }
+        }
 
         if (parent != null) {
             if (additionals != null) {
                 additionals.clear();
             }
 
-            parent.complete(partial, additionals).stream()
-                    .filter(match -> !result.contains(match))
-                    .forEach(result::add);
+            result.addAll(parent.complete(partial, additionals));
         }
 
-        return result;
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Adds all entries from the given index that start with the given key.
+     *
+     * @param index         The index to search.
+     * @param key           The case-folded partial word.
+     * @param partial       The partial word as typed.
+     * @param caseSensitive Whether entries must match the partial word's case.
+     * @param result        The set to add matching entries to.
+     */
+    private static void addMatches(final NavigableMap<String, List<String>> index,
+            final String key, final String partial, final boolean caseSensitive,
+            final Collection<String> result) {
+        for (Map.Entry<String, List<String>> entry : index.tailMap(key, true).entrySet()) {
+            if (!entry.getKey().startsWith(key)) {
+                break;
+            }
+
+            for (String value : entry.getValue()) {
+                if (!caseSensitive || value.startsWith(partial)) {
+                    result.add(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index using a new converter.
+     *
+     * @param newConverter The converter to fold keys with.
+     */
+    private void reindex(final StringConverter newConverter) {
+        final List<Map.Entry<TabCompletionType, String>> existing = new ArrayList<>();
+        entries.forEach((type, index) -> index.values().forEach(
+                values -> values.forEach(v -> existing.add(new SimpleEntry<>(type, v)))));
+
+        entries.clear();
+        indexConverter = newConverter;
+        existing.forEach(e -> addEntry(e.getKey(), e.getValue()));
     }
 
     @Override
-    public void addEntry(final TabCompletionType type, final String entry) {
-        entries.put(type, entry);
+    public synchronized void addEntry(final TabCompletionType type, final String entry) {
+        entries.computeIfAbsent(type, k -> new TreeMap<>())
+                .computeIfAbsent(indexConverter.toLowerCase(entry), k -> new ArrayList<>(1))
+                .add(entry);
     }
 
     @Override
@@ -123,18 +212,27 @@ public class TabCompleterImpl implements TabCompleter {
     }
 
     @Override
-    public void removeEntry(final TabCompletionType type, final String entry) {
-        entries.remove(type, entry);
+    public synchronized void removeEntry(final TabCompletionType type, final String entry) {
+        final NavigableMap<String, List<String>> index = entries.get(type);
+        if (index == null) {
+            return;
+        }
+
+        final String key = indexConverter.toLowerCase(entry);
+        final List<String> values = index.get(key);
+        if (values != null && values.remove(entry) && values.isEmpty()) {
+            index.remove(key);
+        }
     }
 
     @Override
-    public void clear() {
+    public synchronized void clear() {
         entries.clear();
     }
 
     @Override
-    public void clear(final TabCompletionType type) {
-        entries.removeAll(type);
+    public synchronized void clear(final TabCompletionType type) {
+        entries.remove(type);
     }
 
 }
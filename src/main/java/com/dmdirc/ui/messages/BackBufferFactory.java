@@ -30,17 +30,24 @@ public class BackBufferFactory {
 
     private final ColourManagerFactory colourManagerFactory;
     private final EventFormatter formatter;
+    private final DisplayableEventRouter eventRouter;
 
     @Inject
     public BackBufferFactory(
             final ColourManagerFactory colourManagerFactory,
-            final EventFormatter formatter) {
+            final EventFormatter formatter,
+            final DisplayableEventRouter eventRouter) {
         this.colourManagerFactory = colourManagerFactory;
         this.formatter = formatter;
+        this.eventRouter = eventRouter;
     }
 
     public BackBufferImpl getBackBuffer(final WindowModel owner) {
-        return new BackBufferImpl(owner, colourManagerFactory, formatter);
+        return new BackBufferImpl(owner, colourManagerFactory, formatter, eventRouter);
+    }
+
+    public DisplayableEventRouter getEventRouter() {
+        return eventRouter;
     }
 
 }
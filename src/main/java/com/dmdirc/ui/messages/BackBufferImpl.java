@@ -17,14 +17,9 @@
 
 package com.dmdirc.ui.messages;
 
-import com.dmdirc.events.DisplayLocation;
-import com.dmdirc.events.DisplayProperty;
 import com.dmdirc.events.DisplayableEvent;
-import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.interfaces.WindowModel;
-import com.dmdirc.util.EventUtils;
 import java.util.Arrays;
-import net.engio.mbassy.listener.Handler;
 
 /**
  * Models the history of a window in the client.
@@ -33,21 +28,22 @@ public class BackBufferImpl implements BackBuffer {
 
     private final Document document;
     private final Styliser styliser;
-    private final EventBus eventBus;
+    private final DisplayableEventRouter eventRouter;
     private final EventFormatter formatter;
     private final WindowModel owner;
 
     public BackBufferImpl(
             final WindowModel owner,
             final ColourManagerFactory colourManagerFactory,
-            final EventFormatter formatter) {
+            final EventFormatter formatter,
+            final DisplayableEventRouter eventRouter) {
         this.owner = owner;
         this.styliser = new Styliser(
                 owner.getConnection().orElse(null),
                 owner.getConfigManager(),
                 colourManagerFactory.getColourManager(owner.getConfigManager()));
         this.document = new IRCDocument(owner.getConfigManager(), styliser);
-        this.eventBus = owner.getEventBus();
+        this.eventRouter = eventRouter;
         this.formatter = formatter;
     }
 
@@ -55,42 +51,28 @@ public class BackBufferImpl implements BackBuffer {
      * Starts adding events received on the event bus to this buffer's document.
      */
     public void startAddingEvents() {
-        eventBus.subscribe(this);
+        eventRouter.addBackBuffer(owner, this);
     }
 
     /**
      * Stops adding events received on the event bus to this buffer's document.
      */
     public void stopAddingEvents() {
-        eventBus.unsubscribe(this);
+        eventRouter.removeBackBuffer(owner);
     }
 
     /**
-     * Handles a displayable event received on the event bus.
+     * Formats a displayable event and adds the resulting lines to this buffer's document.
      *
-     * @param event The event to be displayed.
-     */
-    @Handler(priority = EventUtils.PRIORITY_DISPLAYABLE_EVENT_HANDLER)
-    private void handleDisplayableEvent(final DisplayableEvent event) {
-        if (shouldDisplay(event)) {
-            formatter.format(event).map(s -> s.split("\n")).map(Arrays::stream).ifPresent(
-                    t -> t.forEach(line -> document.addText(
-                            event.getTimestamp(), event.getDisplayProperties(), line)));
-        }
-    }
-
-    /**
-     * Determines if the specified event should be displayed in this backbuffer.
+     * <p>The {@link DisplayableEventRouter} is responsible for deciding whether the event should
+     * be displayed in this buffer.
      *
-     * @param event The event to check
-     * @return True if the event should be displayed, false otherwise.
+     * @param event The event to be displayed.
      */
-    private boolean shouldDisplay(final DisplayableEvent event) {
-        return (formatter.getEventFormatProvider().getFormat(event.getClass()).isPresent() ?
-                formatter.getEventFormatProvider().getFormat(event.getClass()).get().getDisplayProperties()
-                    .get(DisplayProperty.DISPLAY_LOCATION).orElse(DisplayLocation.SOURCE).shouldDisplay(owner, event)
-                        : DisplayLocation.SOURCE.shouldDisplay(owner, event))
-                && !event.hasDisplayProperty(DisplayProperty.DO_NOT_DISPLAY);
+    void addEvent(final DisplayableEvent event) {
+        formatter.format(event).map(s -> s.split("\n")).map(Arrays::stream).ifPresent(
+                t -> t.forEach(line -> document.addText(
+                        event.getTimestamp(), event.getDisplayProperties(), line)));
     }
 
     @Override
@@ -18,58 +18,115 @@
 package com.dmdirc.ui.messages;
 
 import com.dmdirc.events.DisplayProperty;
-import com.dmdirc.util.collections.RollingList;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * Wraps an {@link IRCDocument} and caches recent lines.
+ * Wraps an {@link IRCDocument} and caches recently styled lines.
+ *
+ * <p>Styled lines are cached by their absolute line number within the document (see
+ * {@link Document#getLineOffset()}), with the least recently used line evicted once the cache is
+ * full. Lines are removed from the cache when they are trimmed from the document, and the whole
+ * cache is discarded when the document is cleared or needs repainting (for example because the
+ * font has changed).
+ *
+ * <p>Instances obtained from {@link #create(Document, StyledMessageMaker)} listen to the document
+ * for these changes, and must be {@link #dispose() disposed} once they are no longer used so that
+ * the document does not keep them alive.
  */
-public class CachingDocument<T> {
+public class CachingDocument<T> implements DocumentListener {
 
+    /** The default number of styled lines to cache. */
+    private static final int DEFAULT_CACHE_SIZE = 50;
     /** The document to wrap and cache data from. */
     private final Document document;
     /** The maker to use to produce styled lines. */
     private final StyledMessageMaker<T> maker;
-    /** Cached lines. */
-    private final RollingList<Line> cachedLines;
-    /** Cached attributed strings. */
-    private final RollingList<T> cachedStrings;
+    /** Cached styled lines, keyed by absolute line number, in access order. */
+    private final Map<Long, CachedLine<T>> cache;
+    /** The maximum number of styled lines to cache. */
+    private int cacheSize = DEFAULT_CACHE_SIZE;
 
+    /**
+     * Creates a new caching document that does not listen to the document for changes. Cached
+     * lines are still checked against the document before use, but will not be restyled when the
+     * document needs repainting. Most callers should use
+     * {@link #create(Document, StyledMessageMaker)} instead.
+     *
+     * @param document The document to wrap
+     * @param maker    The maker to use to produce styled lines
+     */
     public CachingDocument(final Document document, final StyledMessageMaker<T> maker) {
         this.document = document;
         this.maker = maker;
 
-        cachedLines = new RollingList<>(50);
-        cachedStrings = new RollingList<>(50);
+        cache = new LinkedHashMap<Long, CachedLine<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, CachedLine<T>> eldest) {
+                return size() > cacheSize;
+            }
+        };
     }
 
     /**
-     * Returns an attributed character iterator for a particular line, utilising the document cache
-     * where possible.
+     * Creates a new caching document that listens to the given document for changes.
      *
-     * @param line Line to be styled
+     * @param document The document to wrap
+     * @param maker    The maker to use to produce styled lines
+     * @param <T>      The type of styled line produced by the maker
      *
-     * @return Styled line
+     * @return A new caching document, which must be disposed when no longer required
      */
-    protected T getStyledLine(final Line line) {
-        T styledLine = null;
+    public static <T> CachingDocument<T> create(final Document document,
+            final StyledMessageMaker<T> maker) {
+        final CachingDocument<T> cachingDocument = new CachingDocument<>(document, maker);
+        document.addIRCDocumentListener(cachingDocument);
+        return cachingDocument;
+    }
 
-        if (cachedLines.contains(line)) {
-            final int index = cachedLines.getList().indexOf(line);
-            styledLine = cachedStrings.get(index);
+    /**
+     * Stops listening to the document and discards all cached lines.
+     */
+    public void dispose() {
+        document.removeIRCDocumentListener(this);
+        synchronized (cache) {
+            cache.clear();
         }
+    }
 
-        if (styledLine == null) {
-            line.getDisplayableProperty(DisplayProperty.FOREGROUND_COLOUR)
-                    .ifPresent(maker::setDefaultForeground);
-            line.getDisplayableProperty(DisplayProperty.BACKGROUND_COLOUR)
-                    .ifPresent(maker::setDefaultBackground);
-
-            styledLine = line.getStyled(maker);
-            cachedLines.add(line);
-            cachedStrings.add(styledLine);
+    /**
+     * Sets the number of styled lines to cache. This should normally be the number of lines that
+     * can be displayed at once, plus some allowance for scrolling.
+     *
+     * @param cacheSize The maximum number of lines to cache
+     */
+    public void setCacheSize(final int cacheSize) {
+        synchronized (cache) {
+            this.cacheSize = Math.max(1, cacheSize);
+            if (cache.size() > this.cacheSize) {
+                cache.keySet().removeIf(key -> cache.size() > this.cacheSize);
+            }
         }
+    }
 
-        return styledLine;
+    /**
+     * Returns an attributed character iterator for a particular line. This does not use the
+     * document cache.
+     *
+     * @param line Line to be styled
+     *
+     * @return Styled line
+     */
+    protected T getStyledLine(final Line line) {
+        line.getDisplayableProperty(DisplayProperty.FOREGROUND_COLOUR)
+                .ifPresent(maker::setDefaultForeground);
+        line.getDisplayableProperty(DisplayProperty.BACKGROUND_COLOUR)
+                .ifPresent(maker::setDefaultBackground);
+
+        return line.getStyled(maker);
     }
 
     /**
@@ -81,7 +138,21 @@ public class CachingDocument<T> {
      * @return Styled line
      */
     public T getStyledLine(final int line) {
-        return getStyledLine(document.getLine(line));
+        final long number = document.getLineOffset() + line;
+        final Line documentLine = document.getLine(line);
+
+        synchronized (cache) {
+            final CachedLine<T> cached = cache.get(number);
+            if (cached != null && cached.line == documentLine) {
+                return cached.styled;
+            }
+        }
+
+        final T styledLine = getStyledLine(documentLine);
+        synchronized (cache) {
+            cache.put(number, new CachedLine<>(documentLine, styledLine));
+        }
+        return styledLine;
     }
 
     public int getNumLines() {
@@ -92,4 +163,48 @@ public class CachingDocument<T> {
         return document.getLine(line);
     }
 
+    @Override
+    public void linesAdded(final int line, final int length, final int size) {
+        // New lines are styled on demand.
+    }
+
+    @Override
+    public void trimmed(final int newSize, final int numTrimmed) {
+        final long offset = document.getLineOffset();
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key < offset);
+        }
+    }
+
+    @Override
+    public void cleared() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void repaintNeeded() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * A styled line, along with the line it was styled from.
+     */
+    private static class CachedLine<T> {
+
+        /** The line that was styled. */
+        private final Line line;
+        /** The styled version of the line. */
+        private final T styled;
+
+        CachedLine(final Line line, final T styled) {
+            this.line = line;
+            this.styled = styled;
+        }
+
+    }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.events.DisplayLocation;
+import com.dmdirc.events.DisplayProperty;
+import com.dmdirc.events.DisplayableEvent;
+import com.dmdirc.events.eventbus.EventBus;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.WindowModel;
+import com.dmdirc.util.EventUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import net.engio.mbassy.listener.Handler;
+
+/**
+ * Routes {@link DisplayableEvent}s from the event bus to the back buffers and unread status
+ * managers of the windows that should display them.
+ *
+ * <p>Windows are indexed by their {@link WindowModel} and by their connection, so that events
+ * displayed at their {@link DisplayLocation#SOURCE source} or on the
+ * {@link DisplayLocation#SAME_CONNECTION same connection} are only offered to those windows.
+ * Events using any other display location are tested against every window.
+ */
+@Singleton
+public class DisplayableEventRouter {
+
+    /** Back buffers, keyed on the window they belong to. */
+    private final Map<WindowModel, BackBufferImpl> backBuffers = new ConcurrentHashMap<>();
+    /** Windows with back buffers, keyed on their connection. */
+    private final Map<Connection, Set<WindowModel>> windowsByConnection = new ConcurrentHashMap<>();
+    /** Unread status managers, keyed on the window they belong to. */
+    private final Map<WindowModel, UnreadStatusManagerImpl> unreadStatusManagers =
+            new ConcurrentHashMap<>();
+    /** The formatter to use to look up event display locations. */
+    private final EventFormatter formatter;
+
+    @Inject
+    public DisplayableEventRouter(final EventBus eventBus, final EventFormatter formatter) {
+        this.formatter = formatter;
+        eventBus.subscribe(this);
+    }
+
+    /**
+     * Starts routing displayable events to the given back buffer.
+     *
+     * @param window     The window that owns the back buffer.
+     * @param backBuffer The back buffer to add events to.
+     */
+    public void addBackBuffer(final WindowModel window, final BackBufferImpl backBuffer) {
+        backBuffers.put(window, backBuffer);
+        window.getConnection().ifPresent(c -> windowsByConnection
+                .computeIfAbsent(c, k -> ConcurrentHashMap.newKeySet()).add(window));
+    }
+
+    /**
+     * Stops routing displayable events to the back buffer of the given window.
+     *
+     * @param window The window whose back buffer should be removed.
+     */
+    public void removeBackBuffer(final WindowModel window) {
+        backBuffers.remove(window);
+        window.getConnection().ifPresent(c -> windowsByConnection.computeIfPresent(c, (k, v) -> {
+            v.remove(window);
+            return v.isEmpty() ? null : v;
+        }));
+    }
+
+    /**
+     * Starts routing displayable events from the given window to its unread status manager.
+     *
+     * @param window  The window that owns the manager.
+     * @param manager The manager to route events to.
+     */
+    public void addUnreadStatusManager(final WindowModel window,
+            final UnreadStatusManagerImpl manager) {
+        unreadStatusManagers.put(window, manager);
+    }
+
+    /**
+     * Stops routing displayable events to the unread status manager of the given window.
+     *
+     * @param window The window whose manager should be removed.
+     */
+    public void removeUnreadStatusManager(final WindowModel window) {
+        unreadStatusManagers.remove(window);
+    }
+
+    @Handler(priority = EventUtils.PRIORITY_DISPLAYABLE_EVENT_HANDLER)
+    void routeToBackBuffers(final DisplayableEvent event) {
+        if (event.hasDisplayProperty(DisplayProperty.DO_NOT_DISPLAY)) {
+            return;
+        }
+
+        final DisplayLocation location = getDisplayLocation(event);
+        for (WindowModel window : getCandidateWindows(location, event)) {
+            final BackBufferImpl backBuffer = backBuffers.get(window);
+            if (backBuffer != null && location.shouldDisplay(window, event)) {
+                backBuffer.addEvent(event);
+            }
+        }
+    }
+
+    @Handler
+    void routeToUnreadStatusManager(final DisplayableEvent event) {
+        final UnreadStatusManagerImpl manager = unreadStatusManagers.get(event.getSource());
+        if (manager != null) {
+            manager.handleEvent(event);
+        }
+    }
+
+    private DisplayLocation getDisplayLocation(final DisplayableEvent event) {
+        return formatter.getEventFormatProvider().getFormat(event.getClass())
+                .flatMap(f -> f.getDisplayProperties().get(DisplayProperty.DISPLAY_LOCATION))
+                .orElse(DisplayLocation.SOURCE);
+    }
+
+    private Collection<WindowModel> getCandidateWindows(final DisplayLocation location,
+            final DisplayableEvent event) {
+        if (location == DisplayLocation.SOURCE) {
+            return Collections.singleton(event.getSource());
+        } else if (location == DisplayLocation.SAME_CONNECTION) {
+            final Optional<Connection> connection = event.getSource().getConnection();
+            return connection.map(windowsByConnection::get)
+                    .map(windows -> (Collection<WindowModel>) windows)
+                    .orElse(Collections.emptySet());
+        } else {
+            return backBuffers.keySet();
+        }
+    }
+
+}
@@ -23,7 +23,11 @@ import com.dmdirc.events.DisplayableEvent;
 
 import com.dmdirc.interfaces.Displayable;
 import com.dmdirc.util.colours.ColourUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -39,6 +43,9 @@ import javax.inject.Singleton;
  * e.g. <code>{{user.hostname|uppercase}}</code>.
  *
  * <p>Properties and functions are case-insensitive.
+ *
+ * <p>Templates are parsed the first time they are used, and the parsed form is reused for all
+ * subsequent events.
  */
 @Singleton
 public class EventFormatter {
@@ -47,6 +54,8 @@ public class EventFormatter {
 
     private final EventPropertyManager propertyManager;
     private final EventFormatProvider formatProvider;
+    /** Cache of parsed templates, keyed on their source. */
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
 
     @Inject
     public EventFormatter(final EventPropertyManager propertyManager,
@@ -76,15 +85,17 @@ public class EventFormatter {
     }
 
     private String doSubstitutions(final Object dataSource, final String line) {
-        final StringBuilder builder = new StringBuilder(line);
-        int tagStart = builder.indexOf("{{");
-        while (tagStart > -1) {
-            final int tagEnd = builder.indexOf("}}", tagStart);
-            final String tag = builder.substring(tagStart + 2, tagEnd);
-            final String replacement = getReplacement(dataSource, tag);
-            builder.replace(tagStart, tagEnd + 2, replacement);
-            tagStart = builder.indexOf("{{", tagStart + replacement.length());
+        final Template template = templates.computeIfAbsent(line, Template::parse);
+        if (template.tags.length == 0) {
+            return line;
+        }
+
+        final StringBuilder builder = new StringBuilder(line.length() + 32);
+        for (int i = 0; i < template.tags.length; i++) {
+            builder.append(template.literals[i]);
+            builder.append(getReplacement(dataSource, template.tags[i]));
         }
+        builder.append(template.literals[template.tags.length]);
         return builder.toString();
     }
 
@@ -107,13 +118,11 @@ public class EventFormatter {
         return res.toString();
     }
 
-    private String getReplacement(final Object dataSource, final String tag) {
-        final String[] functionParts = tag.split("\\|");
-        final String[] dataParts = functionParts[0].split("\\.");
-        final DisplayPropertyMap displayProperties = new DisplayPropertyMap();
+    private String getReplacement(final Object dataSource, final Tag tag) {
+        DisplayPropertyMap displayProperties = DisplayPropertyMap.EMPTY;
 
         Object target = dataSource;
-        for (String part : dataParts) {
+        for (String part : tag.properties) {
             final Optional<Object> result = propertyManager.getProperty(target, target.getClass(), part);
             if (result.isPresent()) {
                 target = result.get();
@@ -121,6 +130,9 @@ public class EventFormatter {
                 // Collate all the display properties for objects as we traverse. More specific ones will
                 // override earlier ones.
                 if (target instanceof Displayable) {
+                    if (displayProperties == DisplayPropertyMap.EMPTY) {
+                        displayProperties = new DisplayPropertyMap();
+                    }
                     displayProperties.putAll(((Displayable) target).getDisplayProperties());
                 }
 
@@ -130,8 +142,8 @@ public class EventFormatter {
         }
 
         String value = applyDisplayProperties(displayProperties, target.toString());
-        for (int i = 1; i < functionParts.length; i++) {
-            value = propertyManager.applyFunction(value, functionParts[i]);
+        for (String function : tag.functions) {
+            value = propertyManager.applyFunction(value, function);
         }
 
         return value;
@@ -158,4 +170,76 @@ public class EventFormatter {
     public EventFormatProvider getEventFormatProvider() {
         return formatProvider;
     }
+
+    /**
+     * A parsed template, consisting of literal text interleaved with tags. There is always one
+     * more literal than there are tags; literals may be empty.
+     */
+    private static final class Template {
+
+        private final String[] literals;
+        private final Tag[] tags;
+
+        private Template(final String[] literals, final Tag[] tags) {
+            this.literals = literals;
+            this.tags = tags;
+        }
+
+        /**
+         * Parses the given template. A tag start without a matching end is treated as literal
+         * text.
+         *
+         * @param template The template to parse
+         *
+         * @return The parsed template
+         */
+        static Template parse(final String template) {
+            final List<String> literals = new ArrayList<>();
+            final List<Tag> tags = new ArrayList<>();
+
+            int position = 0;
+            int tagStart = template.indexOf("{{");
+            while (tagStart > -1) {
+                final int tagEnd = template.indexOf("}}", tagStart);
+                if (tagEnd == -1) {
+                    break;
+                }
+                literals.add(template.substring(position, tagStart));
+                tags.add(Tag.parse(template.substring(tagStart + 2, tagEnd)));
+                position = tagEnd + 2;
+                tagStart = template.indexOf("{{", position);
+            }
+            literals.add(template.substring(position));
+
+            return new Template(literals.toArray(new String[literals.size()]),
+                    tags.toArray(new Tag[tags.size()]));
+        }
+
+    }
+
+    /**
+     * A parsed tag within a template, consisting of a chain of properties and the functions to
+     * apply to the result.
+     */
+    private static final class Tag {
+
+        private final String[] properties;
+        private final String[] functions;
+
+        private Tag(final String[] properties, final String[] functions) {
+            this.properties = properties;
+            this.functions = functions;
+        }
+
+        static Tag parse(final String tag) {
+            final String[] functionParts = tag.split("\\|");
+            if (functionParts.length == 0) {
+                return new Tag(new String[] { "" }, new String[0]);
+            }
+            final String[] functions = new String[functionParts.length - 1];
+            System.arraycopy(functionParts, 1, functions, 0, functions.length);
+            return new Tag(functionParts[0].split("\\."), functions);
+        }
+
+    }
 }
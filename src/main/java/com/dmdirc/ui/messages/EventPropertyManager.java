@@ -19,10 +19,14 @@ package com.dmdirc.ui.messages;
 
 import com.google.common.base.Strings;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import javax.inject.Inject;
@@ -41,12 +45,24 @@ import static com.dmdirc.util.LogUtils.USER_ERROR;
  *
  * <p>Functions are implemented as string transformations, and are defined in
  * {@link #EventPropertyManager()}.
+ *
+ * <p>The accessor for each property is looked up once per class and then cached.
  */
 @Singleton
 public class EventPropertyManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventPropertyManager.class);
+    /** The type all cached accessors are adapted to. */
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
     private final Map<String, Function<String, String>> functions = new HashMap<>();
+    /** Cached accessors for each class, keyed on property name. */
+    private final ClassValue<Map<String, Optional<MethodHandle>>> accessors =
+            new ClassValue<Map<String, Optional<MethodHandle>>>() {
+                @Override
+                protected Map<String, Optional<MethodHandle>> computeValue(final Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
 
     @Inject
     public EventPropertyManager() {
@@ -58,24 +74,53 @@ public class EventPropertyManager {
     }
 
     public <S> Optional<Object> getProperty(final S object, final Class<? extends S> type, final String property) {
-        final String methodName = "get" + property.substring(0, 1).toUpperCase() + property.substring(1);
+        final Optional<MethodHandle> accessor = accessors.get(type)
+                .computeIfAbsent(property, p -> getAccessor(type, p));
+        if (!accessor.isPresent()) {
+            LOG.warn(USER_ERROR, "Unable to format event: could not retrieve property {}", property);
+            return Optional.empty();
+        }
+
         try {
-            final Method method = type.getMethod(methodName);
-            // TODO: This is needed for AutoValues, should probably get return types not real types
-            method.setAccessible(true);
-            final Object result = method.invoke(object);
+            final Object result = accessor.get().invokeExact((Object) object);
 
             if (result instanceof Optional<?>) {
                 return Optional.ofNullable(((Optional<?>) result).orElse(null));
             }
 
             return Optional.ofNullable(result);
-        } catch (ReflectiveOperationException ex) {
+        } catch (Throwable ex) {
             LOG.warn(USER_ERROR, "Unable to format event: could not retrieve property {}", property, ex);
         }
         return Optional.empty();
     }
 
+    /**
+     * Finds the getter for the specified property.
+     *
+     * @param type     The type to find the getter on
+     * @param property The name of the property
+     *
+     * @return A method handle that takes an object and returns the value of its property, or an
+     * empty optional if the property could not be found.
+     */
+    private static Optional<MethodHandle> getAccessor(final Class<?> type, final String property) {
+        if (property.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final String methodName = "get" + property.substring(0, 1).toUpperCase() + property.substring(1);
+        try {
+            final Method method = type.getMethod(methodName);
+            // TODO: This is needed for AutoValues, should probably get return types not real types
+            method.setAccessible(true);
+            return Optional.of(MethodHandles.lookup().unreflect(method).asType(ACCESSOR_TYPE));
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            LOG.debug("Unable to find accessor for property {} on {}", property, type, ex);
+        }
+        return Optional.empty();
+    }
+
     public String applyFunction(final String input, final String function) {
         if (functions.containsKey(function)) {
             return functions.get(function).apply(input);
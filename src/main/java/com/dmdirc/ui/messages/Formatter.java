@@ -21,11 +21,11 @@ import com.dmdirc.Precondition;
 import com.dmdirc.config.provider.AggregateConfigProvider;
 import com.dmdirc.util.DateUtils;
 
-import java.util.HashMap;
 import java.util.IllegalFormatConversionException;
 import java.util.Map;
 import java.util.MissingFormatArgumentException;
 import java.util.UnknownFormatConversionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The Formatter provides a standard way to format messages for display.
@@ -35,7 +35,7 @@ public final class Formatter {
     /**
      * A cache of types needed by the various formatters.
      */
-    private static final Map<String, Character[]> TYPE_CACHE = new HashMap<>();
+    private static final Map<String, Character[]> TYPE_CACHE = new ConcurrentHashMap<>();
 
     /**
      * Creates a new instance of Formatter.
@@ -33,23 +33,24 @@ import com.dmdirc.interfaces.WindowModel;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
-import java.util.regex.Pattern;
 
 import net.engio.mbassy.listener.Handler;
 
 /**
  * Looks for highlights in messages.
+ *
+ * <p>The profile's highlight terms and the current nickname are compiled into a single
+ * {@link HighlightMatcher}, which is rebuilt when the server connects or the nickname changes.
  */
 public class HighlightManager {
 
-    private static final String REGEX_TEPLATE = "(?i).*(\\p{Space}|^|\\p{Punct})\\Q%s\\E" +
-            "(\\p{Space}|\\p{Punct}|$).*";
-
-    private final Collection<Pattern> patterns = new ArrayList<>();
     private final WindowModel serverWindow;
 
-    private Optional<Pattern> nicknamePattern = Optional.empty();
+    private Collection<String> highlights = new ArrayList<>();
+    private Optional<String> nickname = Optional.empty();
+    private volatile HighlightMatcher matcher = HighlightMatcher.EMPTY;
 
     public HighlightManager(final WindowModel serverWindow) {
         this.serverWindow = serverWindow;
@@ -58,7 +59,7 @@ public class HighlightManager {
     @Handler(rejectSubtypes = true)
     void handleChannelMessage(final ChannelMessageEvent event) {
         if (event.getChannel().getConnection().get().getWindowModel().equals(serverWindow)
-                && patterns.stream().anyMatch(p -> p.matcher(event.getMessage()).matches())) {
+                && matcher.matches(event.getMessage())) {
             event.setDisplayProperty(DisplayProperty.DO_NOT_DISPLAY, true);
             event.getChannel().getEventBus().publish(
                     new ChannelHighlightEvent(
@@ -70,7 +71,7 @@ public class HighlightManager {
     @Handler(rejectSubtypes = true)
     void handleChannelAction(final ChannelActionEvent event) {
         if (event.getChannel().getConnection().get().getWindowModel().equals(serverWindow)
-                && patterns.stream().anyMatch(p -> p.matcher(event.getMessage()).matches())) {
+                && matcher.matches(event.getMessage())) {
             event.setDisplayProperty(DisplayProperty.DO_NOT_DISPLAY, true);
             event.getChannel().getEventBus().publish(
                     new ChannelActionHighlightEvent(
@@ -82,7 +83,7 @@ public class HighlightManager {
     @Handler(rejectSubtypes = true)
     void handleQueryMessage(final QueryMessageEvent event) {
         if (event.getUser().getConnection().getWindowModel().equals(serverWindow)
-                && patterns.stream().anyMatch(p -> p.matcher(event.getMessage()).matches())) {
+                && matcher.matches(event.getMessage())) {
             event.setDisplayProperty(DisplayProperty.DO_NOT_DISPLAY, true);
             event.getQuery().getWindowModel().getEventBus().publish(
                     new QueryHighlightEvent(
@@ -94,7 +95,7 @@ public class HighlightManager {
     @Handler(rejectSubtypes = true)
     void handleQueryMessage(final QueryActionEvent event) {
         if (event.getUser().getConnection().getWindowModel().equals(serverWindow)
-                && patterns.stream().anyMatch(p -> p.matcher(event.getMessage()).matches())) {
+                && matcher.matches(event.getMessage())) {
             event.setDisplayProperty(DisplayProperty.DO_NOT_DISPLAY, true);
             event.getQuery().getWindowModel().getEventBus().publish(
                     new QueryActionHighlightEvent(
@@ -113,27 +114,23 @@ public class HighlightManager {
     @Handler
     void handleConnected(final ServerConnectedEvent event) {
         if (event.getConnection().getWindowModel().equals(serverWindow)) {
-            patterns.clear();
-
-            event.getConnection().getProfile().getHighlights()
-                    .stream()
-                    .map(this::compile)
-                    .forEach(patterns::add);
-
-            event.getConnection().getLocalUser()
-                    .map(User::getNickname)
-                    .ifPresent(this::setNickname);
+            synchronized (this) {
+                highlights = new ArrayList<>(event.getConnection().getProfile().getHighlights());
+                nickname = event.getConnection().getLocalUser().map(User::getNickname);
+                rebuildMatcher();
+            }
         }
     }
 
-    private void setNickname(final String newNick) {
-        nicknamePattern.ifPresent(patterns::remove);
-        nicknamePattern = Optional.of(compile(newNick));
-        patterns.add(nicknamePattern.get());
+    private synchronized void setNickname(final String newNick) {
+        nickname = Optional.of(newNick);
+        rebuildMatcher();
     }
 
-    private Pattern compile(final String word) {
-        return Pattern.compile(String.format(REGEX_TEPLATE, word));
+    private void rebuildMatcher() {
+        final List<String> terms = new ArrayList<>(highlights);
+        nickname.ifPresent(terms::add);
+        matcher = new HighlightMatcher(terms.toArray(new String[terms.size()]));
     }
 
 }
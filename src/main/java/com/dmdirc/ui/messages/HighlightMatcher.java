@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Matches any of a set of highlight terms in a message in a single pass.
+ *
+ * <p>Terms are matched case insensitively, and only where they are surrounded by whitespace,
+ * punctuation or the start or end of the message. The terms are compiled into an Aho-Corasick
+ * automaton, so the cost of matching a message is proportional to the length of the message rather
+ * than the number of terms. Instances are immutable and may be shared between threads.
+ */
+final class HighlightMatcher {
+
+    /** A matcher that does not match anything. */
+    static final HighlightMatcher EMPTY = new HighlightMatcher(new String[0]);
+    /** Punctuation characters that may surround a term. */
+    private static final String PUNCTUATION = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~";
+    /** Whitespace characters that may surround a term. */
+    private static final String WHITESPACE = " \t\n\u000B\f\r";
+    /** The root state of the automaton. */
+    private final Node root = new Node();
+
+    /**
+     * Creates a new matcher for the given terms. Empty terms are ignored.
+     *
+     * @param terms The terms to match
+     */
+    HighlightMatcher(final String... terms) {
+        for (String term : terms) {
+            if (!term.isEmpty()) {
+                addTerm(term);
+            }
+        }
+        buildFailureLinks();
+    }
+
+    /**
+     * Determines whether any term appears in the given message.
+     *
+     * @param message The message to check
+     *
+     * @return True if the message contains one of the terms as a separate word, false otherwise
+     */
+    boolean matches(final String message) {
+        Node node = root;
+        for (int i = 0; i < message.length(); i++) {
+            final char c = fold(message.charAt(i));
+            while (node != root && !node.children.containsKey(c)) {
+                node = node.failure;
+            }
+            node = node.children.getOrDefault(c, root);
+
+            for (int length : node.matchLengths) {
+                if (isBoundary(message, i - length) && isBoundary(message, i + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void addTerm(final String term) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.children.computeIfAbsent(fold(term.charAt(i)), k -> new Node());
+        }
+        node.termLength = term.length();
+    }
+
+    private void buildFailureLinks() {
+        final Queue<Node> queue = new ArrayDeque<>();
+        root.failure = root;
+        for (Node child : root.children.values()) {
+            child.failure = root;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            final Node node = queue.remove();
+            node.matchLengths = node.termLength > 0
+                    ? append(node.failure.matchLengths, node.termLength)
+                    : node.failure.matchLengths;
+
+            for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+                Node failure = node.failure;
+                while (failure != root && !failure.children.containsKey(entry.getKey())) {
+                    failure = failure.failure;
+                }
+                final Node target = failure.children.get(entry.getKey());
+                entry.getValue().failure = target == null || target == entry.getValue()
+                        ? root : target;
+                queue.add(entry.getValue());
+            }
+        }
+    }
+
+    private static int[] append(final int[] values, final int value) {
+        final int[] result = Arrays.copyOf(values, values.length + 1);
+        result[values.length] = value;
+        return result;
+    }
+
+    private static boolean isBoundary(final String message, final int index) {
+        if (index < 0 || index >= message.length()) {
+            return true;
+        }
+        final char c = message.charAt(index);
+        return WHITESPACE.indexOf(c) >= 0 || PUNCTUATION.indexOf(c) >= 0;
+    }
+
+    private static char fold(final char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * A state in the automaton.
+     */
+    private static class Node {
+
+        /** The states reached by each following character. */
+        private final Map<Character, Node> children = new HashMap<>();
+        /** The state for the longest proper suffix of this state that is also a prefix. */
+        private Node failure;
+        /** The length of the term ending at this state, or 0 if no term ends here. */
+        private int termLength;
+        /** The lengths of all terms that end at this state, including via suffixes. */
+        private int[] matchLengths = new int[0];
+
+    }
+
+}
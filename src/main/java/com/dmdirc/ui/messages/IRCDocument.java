@@ -22,11 +22,13 @@ import com.dmdirc.config.provider.AggregateConfigProvider;
 import com.dmdirc.config.provider.ConfigChangeListener;
 import com.dmdirc.util.collections.ListenerList;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import java.awt.Font;
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.ZoneId;
 
 import javax.swing.UIManager;
 
@@ -37,33 +39,33 @@ public class IRCDocument implements Serializable, ConfigChangeListener, Document
 
     /** A version number for this class. */
     private static final long serialVersionUID = 4;
-    /** List of lines of text. */
-    private final List<Line> lines;
+    /** Shared read-only display properties, so that lines with the same properties share a map. */
+    private static final Interner<DisplayPropertyMap> DISPLAY_PROPERTIES =
+            Interners.newWeakInterner();
+    /** Buffer of lines of text. */
+    private final LineBuffer<Line> lines;
     /** Listener list. */
     private final ListenerList listeners;
     /** Config Manager for getting settings. */
     private final AggregateConfigProvider configManager;
-    /** This document's styliser. */
-    private final Styliser styliser;
-    /** Font size. */
-    private int fontSize;
-    /** Font name. */
-    private String fontName;
+    /** State shared by all lines in this document, including the styliser and font. */
+    private final IRCLineContext lineContext;
     /** Frame buffer size. */
     private Integer frameBufferSize;
 
     public IRCDocument(final AggregateConfigProvider configManager, final Styliser styliser) {
         this.configManager = configManager;
-        this.styliser = styliser;
+        this.lineContext = new IRCLineContext(styliser, configManager);
 
-        lines = new ArrayList<>();
         listeners = new ListenerList();
 
         frameBufferSize = configManager.getOptionInt("ui", "frameBufferSize", false);
+        lines = new LineBuffer<>(getBufferCapacity());
 
         configManager.addChangeListener("ui", "textPaneFontSize", this);
         configManager.addChangeListener("ui", "textPaneFontName", this);
         configManager.addChangeListener("ui", "frameBufferSize", this);
+        configManager.addChangeListener("formatter", "timestamp", this);
 
         setCachedSettings();
     }
@@ -88,23 +90,20 @@ public class IRCDocument implements Serializable, ConfigChangeListener, Document
         final int start;
         synchronized (lines) {
             start = lines.size();
-            lines.add(new IRCLine(styliser, formatTimestamp(timestamp), text, displayPropertyMap,
-                    fontSize, fontName));
+            lines.add(new IRCLine(lineContext,
+                    timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), text,
+                    DISPLAY_PROPERTIES.intern(displayPropertyMap.toReadOnly())));
         }
         fireLinesAdded(start, 1);
     }
 
-    private String formatTimestamp(final LocalDateTime timestamp) {
-        return Formatter.formatMessage(configManager, "timestamp", timestamp);
-    }
-
     @Override
     public void trim(final int numLines) {
         synchronized (lines) {
             if (frameBufferSize != null && frameBufferSize > 0) {
                 final int i = lines.size() - numLines;
                 if (i > 0) {
-                    lines.subList(0, i).clear();
+                    lines.removeFirst(i);
                     fireTrimmed(numLines, i);
                 }
             }
@@ -119,6 +118,13 @@ public class IRCDocument implements Serializable, ConfigChangeListener, Document
         fireCleared();
     }
 
+    @Override
+    public long getLineOffset() {
+        synchronized (lines) {
+            return lines.getOffset();
+        }
+    }
+
     @Override
     public void addIRCDocumentListener(final DocumentListener listener) {
         if (listener == null) {
@@ -142,7 +148,7 @@ public class IRCDocument implements Serializable, ConfigChangeListener, Document
     protected void fireLinesAdded(final int index, final int size) {
         for (DocumentListener listener
                 : listeners.get(DocumentListener.class)) {
-            listener.linesAdded(index, size, lines.size());
+            listener.linesAdded(index, size, getNumLines());
         }
         trim(frameBufferSize);
     }
@@ -196,28 +202,38 @@ public class IRCDocument implements Serializable, ConfigChangeListener, Document
     private void setCachedSettings() {
         final Font defaultFont = UIManager.getFont("TextPane.font");
         if (configManager.hasOptionString("ui", "textPaneFontName")) {
-            fontName = configManager.getOption("ui", "textPaneFontName");
+            lineContext.setFontName(configManager.getOption("ui", "textPaneFontName"));
         } else {
-            fontName = defaultFont.getName();
+            lineContext.setFontName(defaultFont.getName());
         }
         if (configManager.hasOptionString("ui", "textPaneFontSize")) {
-            fontSize = configManager.getOptionInt("ui", "textPaneFontSize");
+            lineContext.setFontSize(configManager.getOptionInt("ui", "textPaneFontSize"));
         } else {
-            fontSize = defaultFont.getSize();
+            lineContext.setFontSize(defaultFont.getSize());
         }
         frameBufferSize = configManager.getOptionInt("ui", "frameBufferSize", true);
         trim(frameBufferSize);
+        synchronized (lines) {
+            lines.setCapacity(getBufferCapacity());
+        }
+    }
+
+    /**
+     * Returns the capacity to use for the line buffer. This is one more than the frame buffer
+     * size, as each new line is added before the document is trimmed.
+     *
+     * @return The capacity for the line buffer, or 0 if the document is unbounded
+     */
+    private int getBufferCapacity() {
+        return frameBufferSize != null && frameBufferSize > 0 ? frameBufferSize + 1 : 0;
     }
 
     @Override
     public void configChanged(final String domain, final String key) {
-        setCachedSettings();
-        synchronized (lines) {
-            for (Line line : lines) {
-                line.setFontName(fontName);
-                line.setFontSize(fontSize);
-            }
+        if ("formatter".equals(domain)) {
+            lineContext.timestampFormatChanged();
         }
+        setCachedSettings();
         fireRepaintNeeded();
     }
 }
@@ -17,24 +17,55 @@
 
 package com.dmdirc.ui.messages;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Searches the textpane for specified phrases.
+ *
+ * <p>The search pattern is compiled once, and the positions of all matches are indexed by each
+ * line's absolute line number (see {@link Document#getLineOffset()}). Before each search the index
+ * is brought up to date by discarding lines that have been trimmed from the document and scanning
+ * only lines that have been added since the last search, so repeated searches do not need to
+ * re-read the whole document. If the last indexed line is no longer where the index expects it
+ * (for example because the document does not report a line offset), the whole document is
+ * scanned again.
  */
 public class IRCDocumentSearcher {
 
+    /** The ways in which a phrase can be matched. */
+    public enum SearchMode {
+        /** The phrase is matched literally, anywhere in a line. */
+        LITERAL,
+        /** The phrase is matched literally, but only where it is not part of a larger word. */
+        WHOLE_WORD,
+        /** The phrase is treated as a regular expression. */
+        REGEX
+    }
+
+    /** The number of lines to index before checking whether the document has been trimmed. */
+    private static final int CHUNK_SIZE = 512;
+    /** An empty array of match positions. */
+    private static final int[] NO_MATCHES = new int[0];
     /** Document to search. */
     private final Document document;
-    /** Phrase to search for. */
-    private final String phrase;
+    /** Pattern to search for. */
+    private final Pattern pattern;
+    /**
+     * Map of absolute line numbers to the matches on that line. Each match is stored as a pair of
+     * consecutive start and end positions.
+     */
+    private final NavigableMap<Long, int[]> matches = new TreeMap<>();
+    /** The absolute line number of the first line that has not been indexed. */
+    private long indexedLines;
+    /** The last line that was indexed, or {@code null} if no lines have been indexed. */
+    private Line lastIndexedLine;
     /** Textpane position. */
     private LinePosition position;
-    /** Case sensitive? */
-    private final boolean caseSensitive;
 
     /**
      * Constructs a new IRC Document searcher.
@@ -45,10 +76,51 @@ public class IRCDocumentSearcher {
      */
     public IRCDocumentSearcher(final String phrase, final Document document,
             final boolean caseSensitive) {
-        this.phrase = phrase;
+        this(phrase, document, caseSensitive, SearchMode.LITERAL);
+    }
+
+    /**
+     * Constructs a new IRC Document searcher.
+     *
+     * @param phrase        Phrase to search for
+     * @param document      Document to search
+     * @param caseSensitive Whether or not this searcher is case sensitive
+     * @param mode          How the phrase should be matched
+     *
+     * @throws java.util.regex.PatternSyntaxException If the mode is {@link SearchMode#REGEX} and
+     *                                                the phrase is not a valid expression
+     */
+    public IRCDocumentSearcher(final String phrase, final Document document,
+            final boolean caseSensitive, final SearchMode mode) {
         this.document = document;
+        this.pattern = compile(phrase, caseSensitive, mode);
         this.position = getEndPosition();
-        this.caseSensitive = caseSensitive;
+    }
+
+    /**
+     * Compiles the pattern used to search for the given phrase.
+     *
+     * @param phrase        Phrase to search for
+     * @param caseSensitive Whether or not the pattern is case sensitive
+     * @param mode          How the phrase should be matched
+     *
+     * @return A compiled pattern
+     */
+    private static Pattern compile(final String phrase, final boolean caseSensitive,
+            final SearchMode mode) {
+        final String regex;
+        switch (mode) {
+            case WHOLE_WORD:
+                regex = "(?<!\\w)" + Pattern.quote(phrase) + "(?!\\w)";
+                break;
+            case REGEX:
+                regex = phrase;
+                break;
+            default:
+                regex = Pattern.quote(phrase);
+                break;
+        }
+        return Pattern.compile(regex, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
     }
 
     /**
@@ -88,31 +160,25 @@ public class IRCDocumentSearcher {
             position = getEndPosition();
         }
 
-        int line = position.getEndLine();
-        for (int remaining = document.getNumLines(); remaining > 0; remaining--) {
-            if (line < 0) {
-                line = 0;
-            }
-            final String lineText = document.getLine(line).getText();
-
-            final List<LinePosition> matches = searchLine(line, lineText);
+        final long offset = updateIndex();
+        final long line = offset + Math.max(0, position.getEndLine());
 
-            for (int i = matches.size() - 1; i >= 0; i--) {
-                if (position.getEndLine() != line
-                        || matches.get(i).getEndPos() < position.getEndPos()) {
-                    return matches.get(i);
-                }
+        final int[] current = matches.getOrDefault(line, NO_MATCHES);
+        for (int i = current.length - 2; i >= 0; i -= 2) {
+            if (current[i + 1] < position.getEndPos()) {
+                return getPosition(offset, line, current, i);
             }
-
-            line--;
-
-            if (line < 0) {
-                line += document.getNumLines();
-            }
-
         }
 
-        return null;
+        Map.Entry<Long, int[]> previous = matches.lowerEntry(line);
+        if (previous == null) {
+            previous = matches.lastEntry();
+        }
+        if (previous == null || previous.getKey() == line) {
+            return null;
+        }
+        return getPosition(offset, previous.getKey(), previous.getValue(),
+                previous.getValue().length - 2);
     }
 
     /**
@@ -125,50 +191,138 @@ public class IRCDocumentSearcher {
             position = getEndPosition();
         }
 
-        int line = position.getStartLine();
-        for (int remaining = document.getNumLines(); remaining > 0; remaining--) {
-            if (line < 0) {
-                line = 0;
+        final long offset = updateIndex();
+        final long line = offset + Math.max(0, position.getStartLine());
+
+        final int[] current = matches.getOrDefault(line, NO_MATCHES);
+        for (int i = 0; i < current.length; i += 2) {
+            if (current[i] > position.getStartPos()) {
+                return getPosition(offset, line, current, i);
             }
-            final String lineText = document.getLine(line).getText();
+        }
+
+        Map.Entry<Long, int[]> next = matches.higherEntry(line);
+        if (next == null) {
+            next = matches.firstEntry();
+        }
+        if (next == null || next.getKey() == line) {
+            return null;
+        }
+        return getPosition(offset, next.getKey(), next.getValue(), 0);
+    }
 
-            final List<LinePosition> matches = searchLine(line, lineText);
+    /**
+     * Creates a line position for an indexed match.
+     *
+     * @param offset    The absolute line number of the first line in the document
+     * @param line      The absolute line number of the match
+     * @param positions The positions of the matches on the line
+     * @param index     The index of the start position of the match
+     *
+     * @return The position of the match within the document
+     */
+    private static LinePosition getPosition(final long offset, final long line,
+            final int[] positions, final int index) {
+        final int lineNum = (int) (line - offset);
+        return new LinePosition(lineNum, positions[index], lineNum, positions[index + 1]);
+    }
 
-            for (LinePosition match : matches) {
-                if (position.getStartLine() != line
-                        || match.getStartPos() > position.getStartPos()) {
-                    return match;
+    /**
+     * Brings the match index up to date with the document, discarding lines that have been
+     * removed and indexing any that have been added.
+     *
+     * <p>Lines are read in chunks, and a chunk is discarded and read again if the document was
+     * trimmed while it was being read (as the lines it contains may have moved).
+     *
+     * @return The absolute line number of the first line in the document
+     */
+    private long updateIndex() {
+        long offset = document.getLineOffset();
+        matches.headMap(offset).clear();
+        if (!isIndexCurrent(offset)) {
+            matches.clear();
+            indexedLines = offset;
+            lastIndexedLine = null;
+        }
+        long line = Math.max(indexedLines, offset);
+
+        while (line < offset + document.getNumLines()) {
+            final long chunkEnd = Math.min(offset + document.getNumLines(), line + CHUNK_SIZE);
+            final NavigableMap<Long, int[]> found = new TreeMap<>();
+            Line lastLine = null;
+            try {
+                for (long i = line; i < chunkEnd; i++) {
+                    lastLine = document.getLine((int) (i - offset));
+                    final int[] lineMatches = searchLine(lastLine.getText());
+                    if (lineMatches.length > 0) {
+                        found.put(i, lineMatches);
+                    }
                 }
+            } catch (IndexOutOfBoundsException ex) {
+                // The document was trimmed while we were reading it; handled below.
             }
 
-            line++;
-
-            if (line >= document.getNumLines()) {
-                line -= document.getNumLines();
+            final long newOffset = document.getLineOffset();
+            if (newOffset == offset) {
+                matches.putAll(found);
+                line = chunkEnd;
+                indexedLines = line;
+                lastIndexedLine = lastLine;
+            } else {
+                offset = newOffset;
+                matches.headMap(offset).clear();
+                line = Math.max(line, offset);
             }
         }
 
-        return null;
+        return offset;
+    }
+
+    /**
+     * Determines whether the lines that have been indexed are still at the positions the index
+     * expects, by checking that the last indexed line has not moved.
+     *
+     * @param offset The absolute line number of the first line in the document
+     *
+     * @return True if the index can be updated incrementally, false if it must be rebuilt
+     */
+    private boolean isIndexCurrent(final long offset) {
+        if (lastIndexedLine == null || indexedLines <= offset) {
+            return true;
+        }
+
+        final long last = indexedLines - 1 - offset;
+        try {
+            return last < document.getNumLines() && document.getLine((int) last) == lastIndexedLine;
+        } catch (IndexOutOfBoundsException ex) {
+            return false;
+        }
     }
 
     /**
      * Searches a line and returns all matches on a line.
      *
-     * @param lineNum the line number of the line we're searching
-     * @param line    Line to search
+     * @param line Line to search
      *
-     * @return List of matches
+     * @return Start and end positions of each match
      */
-    private List<LinePosition> searchLine(final int lineNum, final String line) {
-        final List<LinePosition> matches = new ArrayList<>();
-        final Matcher matcher = Pattern.compile((caseSensitive ? "" : "(?i)")
-                + "\\Q" + phrase + "\\E").matcher(line);
+    private int[] searchLine(final String line) {
+        final Matcher matcher = pattern.matcher(line);
+        int[] positions = NO_MATCHES;
+        int count = 0;
 
         while (matcher.find()) {
-            matches.add(new LinePosition(lineNum, matcher.start(), lineNum, matcher.end()));
+            if (matcher.end() == matcher.start()) {
+                continue;
+            }
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(4, count * 2));
+            }
+            positions[count++] = matcher.start();
+            positions[count++] = matcher.end();
         }
 
-        return matches;
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
     }
 
 }
@@ -19,40 +19,40 @@ package com.dmdirc.ui.messages;
 
 import com.dmdirc.events.DisplayProperty;
 import com.dmdirc.events.DisplayPropertyMap;
-import java.util.Arrays;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Represents a line of text in IRC.
+ *
+ * <p>Settings that are common to all lines in a document, such as the default font and the
+ * timestamp format, are held in a shared {@link IRCLineContext}, which also formats timestamps.
  */
 public class IRCLine implements Line {
 
-    private final String timestamp;
+    private final IRCLineContext context;
+    private final long timestamp;
     private final String text;
-    private final Styliser styliser;
-    private final StyledMessageUtils styleUtils = new StyledMessageUtils(); // TODO: Inject
     private final DisplayPropertyMap displayProperties;
+    /** The font size for this line, or 0 to use the document's default. */
     private int fontSize;
+    /** The font name for this line, or null to use the document's default. */
     private String fontName;
 
     /**
-     * Creates a new line with a specified height.
+     * Creates a new line.
      *
-     * @param styliser  The styliser to use to style this line
-     * @param timestamp The textual timestamp to use for the line
+     * @param context   The document-wide context for this line
+     * @param timestamp The timestamp of the line, in milliseconds since the epoch
      * @param text      The textual content of the line
      * @param displayProperties The properties to use when displaying the line.
-     * @param fontSize  The height for this line
-     * @param fontName  The name of the font to use for this line
      */
-    public IRCLine(final Styliser styliser, final String timestamp, final String text,
-            final DisplayPropertyMap displayProperties, final int fontSize, final String fontName) {
-        this.styliser = styliser;
-        this.timestamp = timestamp; // TODO: Make this a long and convert further down the line
+    public IRCLine(final IRCLineContext context, final long timestamp, final String text,
+            final DisplayPropertyMap displayProperties) {
+        this.context = context;
+        this.timestamp = timestamp;
         this.text = text;
         this.displayProperties = displayProperties;
-        this.fontName = fontName;
-        this.fontSize = fontSize;
     }
 
     /**
@@ -61,21 +61,47 @@ public class IRCLine implements Line {
      * @return Lines parts
      */
     private String[] getLineParts() {
-        if (displayProperties.get(DisplayProperty.NO_TIMESTAMPS).orElse(false)) {
+        if (hasNoTimestamp()) {
             return new String[] { text };
         } else {
-            return new String[] { timestamp, text };
+            return new String[] { getFormattedTimestamp(), text };
         }
     }
 
+    /**
+     * Returns the timestamp of this line formatted with the context's current format.
+     *
+     * @return The formatted timestamp
+     */
+    private String getFormattedTimestamp() {
+        return context.formatTimestamp(timestamp);
+    }
+
+    private boolean hasNoTimestamp() {
+        return displayProperties.get(DisplayProperty.NO_TIMESTAMPS).orElse(false);
+    }
+
+    private String getFontName() {
+        return fontName == null ? context.getFontName() : fontName;
+    }
+
+    /**
+     * Returns the timestamp of this line.
+     *
+     * @return The timestamp of the line, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
     @Override
     public int getLength() {
-        return timestamp.length() + text.length();
+        return getFormattedTimestamp().length() + text.length();
     }
 
     @Override
     public int getFontSize() {
-        return fontSize;
+        return fontSize > 0 ? fontSize : context.getFontSize();
     }
 
     @Override
@@ -90,32 +116,39 @@ public class IRCLine implements Line {
 
     @Override
     public String getText() {
-        return styleUtils.stripControlCodes(timestamp + text);
+        return context.getStyleUtils().stripControlCodes(getStyledText());
     }
 
     @Override
     public String getStyledText() {
-        return timestamp + text;
+        return getFormattedTimestamp() + text;
     }
 
     @Override
     public <T> T getStyled(final StyledMessageMaker<T> maker) {
-        maker.setDefaultFont(fontName, fontSize);
-        styliser.addStyledString(maker, getLineParts());
+        maker.setDefaultFont(getFontName(), getFontSize());
+        context.getStyliser().addStyledString(maker, getLineParts());
         final T styledString = maker.getStyledMessage();
-        fontSize = maker.getMaximumFontSize();
+        final int maximumFontSize = maker.getMaximumFontSize();
+        fontSize = maximumFontSize == context.getFontSize() ? 0 : maximumFontSize;
         maker.clear();
         return styledString;
     }
 
     @Override
     public boolean equals(final Object obj) {
-        return obj instanceof Line && Arrays.equals(((IRCLine) obj).getLineParts(), getLineParts());
+        if (!(obj instanceof IRCLine)) {
+            return false;
+        }
+        final IRCLine other = (IRCLine) obj;
+        return hasNoTimestamp() == other.hasNoTimestamp()
+                && (hasNoTimestamp() || timestamp == other.timestamp)
+                && text.equals(other.text);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(getLineParts());
+        return hasNoTimestamp() ? text.hashCode() : Objects.hash(timestamp, text);
     }
 
     @Override
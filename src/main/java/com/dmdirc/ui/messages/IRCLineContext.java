@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.config.provider.AggregateConfigProvider;
+
+import java.util.regex.Pattern;
+
+/**
+ * Document-wide state shared by every {@link IRCLine} in a document, so that individual lines
+ * don't need to carry their own copies of it.
+ */
+public class IRCLineContext {
+
+    /** Matches date conversions in a format string that depend on more than the second. */
+    private static final Pattern SUB_SECOND_CONVERSION =
+            Pattern.compile("%(\\d+\\$)?[-#]?[tT][LNQ]");
+
+    /** The styliser to use to style lines. */
+    private final Styliser styliser;
+    /** Config provider to read the timestamp format from. */
+    private final AggregateConfigProvider configManager;
+    /** Utilities to use when stripping styles from lines. */
+    private final StyledMessageUtils styleUtils = new StyledMessageUtils();
+    /** The default font name for lines. */
+    private volatile String fontName;
+    /** The default font size for lines. */
+    private volatile int fontSize;
+    /** Counter incremented whenever the timestamp format changes. */
+    private volatile int timestampGeneration;
+    /** The most recently formatted timestamp, or null if none has been formatted yet. */
+    private volatile FormattedTimestamp lastTimestamp;
+
+    public IRCLineContext(final Styliser styliser, final AggregateConfigProvider configManager) {
+        this.styliser = styliser;
+        this.configManager = configManager;
+    }
+
+    public Styliser getStyliser() {
+        return styliser;
+    }
+
+    public StyledMessageUtils getStyleUtils() {
+        return styleUtils;
+    }
+
+    public String getFontName() {
+        return fontName;
+    }
+
+    public void setFontName(final String fontName) {
+        this.fontName = fontName;
+    }
+
+    public int getFontSize() {
+        return fontSize;
+    }
+
+    public void setFontSize(final int fontSize) {
+        this.fontSize = fontSize;
+    }
+
+    /**
+     * Gets the current generation of the timestamp format. Formatted timestamps can be cached for
+     * as long as this value is unchanged.
+     *
+     * @return The current timestamp format generation.
+     */
+    public int getTimestampGeneration() {
+        return timestampGeneration;
+    }
+
+    /**
+     * Indicates that the timestamp format has changed, and any cached timestamps are stale.
+     */
+    public synchronized void timestampFormatChanged() {
+        timestampGeneration++;
+    }
+
+    /**
+     * Formats the given timestamp using the user's current timestamp format.
+     *
+     * <p>Consecutive lines are usually stamped within the same second, so the most recent result
+     * is reused for any timestamp in the same second (or the same millisecond, if the format
+     * shows fractions of a second) until the format changes.
+     *
+     * @param timestamp The timestamp to format, in milliseconds since the epoch.
+     *
+     * @return The formatted timestamp
+     */
+    public String formatTimestamp(final long timestamp) {
+        final int generation = timestampGeneration;
+        final FormattedTimestamp last = lastTimestamp;
+        final boolean current = last != null && last.generation == generation;
+        final boolean subSecond = current ? last.subSecond : hasSubSecondFormat();
+        final long key = subSecond ? timestamp : Math.floorDiv(timestamp, 1000L);
+        if (current && last.key == key) {
+            return last.text;
+        }
+        final String text = Formatter.formatMessage(configManager, "timestamp", timestamp);
+        lastTimestamp = new FormattedTimestamp(generation, subSecond, key, text);
+        return text;
+    }
+
+    private boolean hasSubSecondFormat() {
+        return configManager.hasOptionString("formatter", "timestamp")
+                && SUB_SECOND_CONVERSION.matcher(configManager.getOption("formatter", "timestamp"))
+                        .find();
+    }
+
+    /**
+     * A formatted timestamp, along with the format generation and time it was produced for.
+     */
+    private static class FormattedTimestamp {
+
+        private final int generation;
+        private final boolean subSecond;
+        private final long key;
+        private final String text;
+
+        FormattedTimestamp(final int generation, final boolean subSecond, final long key,
+                final String text) {
+            this.generation = generation;
+            this.subSecond = subSecond;
+            this.key = key;
+            this.text = text;
+        }
+
+    }
+
+}
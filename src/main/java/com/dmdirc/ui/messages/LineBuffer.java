@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A circular store of lines which supports constant time appends and removal of lines from the
+ * start of the buffer.
+ *
+ * <p>Lines are addressed by their index relative to the oldest line currently held. Every line
+ * removed from the front of the buffer increments the buffer's offset, so that
+ * {@code getOffset() + index} gives a line number that remains stable for as long as the line is
+ * held.
+ *
+ * <p>The backing store starts small and doubles in size as lines are added, up to the buffer's
+ * capacity. Once it has reached the capacity, lines removed from the front free up slots that new
+ * lines wrap around into, so a buffer that is trimmed to its capacity never grows further.
+ *
+ * <p>This class is not thread safe; callers must provide their own synchronisation.
+ *
+ * @param <T> The type of line held in the buffer
+ */
+public class LineBuffer<T> {
+
+    /** The initial size of the backing store. */
+    private static final int INITIAL_SIZE = 16;
+    /** The backing array. */
+    private Object[] elements;
+    /** The size the backing store may grow to before it must wrap, or 0 for no limit. */
+    private int capacity;
+    /** The index in the backing array of the oldest line. */
+    private int head;
+    /** The number of lines currently held. */
+    private int size;
+    /** The number of lines that have ever been removed from the front of the buffer. */
+    private long offset;
+
+    /**
+     * Creates a new line buffer.
+     *
+     * @param capacity The number of lines the buffer is expected to hold at most. If this is not
+     *                 positive, the buffer's backing store will grow without limit.
+     */
+    public LineBuffer(final int capacity) {
+        this.capacity = Math.max(0, capacity);
+        elements = new Object[capacity > 0 ? Math.min(capacity, INITIAL_SIZE) : INITIAL_SIZE];
+    }
+
+    /**
+     * Returns the number of lines currently held in the buffer.
+     *
+     * @return The number of lines in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lines that have been removed from the front of this buffer over its
+     * lifetime.
+     *
+     * @return The absolute line number of the line at index 0
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the line at the specified index.
+     *
+     * @param index The index of the line, relative to the oldest line held
+     *
+     * @return The line at the given index
+     *
+     * @throws IndexOutOfBoundsException If the index is not within the buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) elements[(head + index) % elements.length];
+    }
+
+    /**
+     * Appends a line to the end of the buffer, growing the backing store if it is full.
+     *
+     * @param line The line to be added
+     */
+    public void add(final T line) {
+        if (size == elements.length) {
+            resize(getGrowthSize());
+        }
+        elements[(head + size) % elements.length] = line;
+        size++;
+    }
+
+    /**
+     * Removes the specified number of lines from the start of the buffer.
+     *
+     * @param count The number of lines to remove
+     */
+    public void removeFirst(final int count) {
+        final int removed = Math.min(count, size);
+        for (int i = 0; i < removed; i++) {
+            elements[(head + i) % elements.length] = null;
+        }
+        head = (head + removed) % elements.length;
+        size -= removed;
+        offset += removed;
+    }
+
+    /**
+     * Removes all lines from the buffer. The offset is advanced past the removed lines.
+     */
+    public void clear() {
+        removeFirst(size);
+        head = 0;
+    }
+
+    /**
+     * Sets the number of lines the buffer is expected to hold at most. If the backing store is
+     * larger than this, it is shrunk, but never below the number of lines currently held.
+     *
+     * @param capacity The new capacity. If this is not positive, the backing store will grow
+     *                 without limit.
+     */
+    public void setCapacity(final int capacity) {
+        this.capacity = Math.max(0, capacity);
+        final int target = Math.max(Math.max(size, INITIAL_SIZE), this.capacity);
+        if (this.capacity > 0 && elements.length > target) {
+            resize(target);
+        }
+    }
+
+    /**
+     * Performs the given action on each line in the buffer, from oldest to newest.
+     *
+     * @param action The action to be performed
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(final Consumer<? super T> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept((T) elements[(head + i) % elements.length]);
+        }
+    }
+
+    /**
+     * Returns the number of lines the backing store can currently hold without growing.
+     *
+     * @return The size of the backing store
+     */
+    @VisibleForTesting
+    int getStorageSize() {
+        return elements.length;
+    }
+
+    /**
+     * Gets the size to grow a full backing store to. The store doubles until it reaches the
+     * capacity; if lines are added past the capacity without being removed, it keeps doubling.
+     *
+     * @return The new size of the backing store
+     */
+    private int getGrowthSize() {
+        final int doubled = elements.length * 2;
+        return capacity > elements.length ? Math.min(capacity, doubled) : doubled;
+    }
+
+    private void resize(final int length) {
+        final Object[] newElements = new Object[length];
+        final int firstChunk = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, newElements, 0, firstChunk);
+        System.arraycopy(elements, 0, newElements, firstChunk, size - firstChunk);
+        Arrays.fill(elements, null);
+        elements = newElements;
+        head = 0;
+    }
+
+}
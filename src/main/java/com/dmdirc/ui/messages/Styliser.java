@@ -22,7 +22,12 @@ import com.dmdirc.config.provider.AggregateConfigProvider;
 import com.dmdirc.config.provider.ConfigChangeListener;
 import com.dmdirc.util.colours.Colour;
 import com.google.common.annotations.VisibleForTesting;
-import java.util.Locale;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
@@ -77,6 +82,18 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
     /** The regular expression to use for marking up channels. */
     private static final String URL_CHANNEL = "(?i)(?<![^\\s\\+@\\-<>\\(\"',])([\\Q%s\\E]"
             + RESERVED_CHARS + "+)";
+    /** Compiled form of {@link #URL_REGEXP}. */
+    private static final Pattern URL_PATTERN = Pattern.compile(URL_REGEXP);
+    /** Compiled form of {@link #URL_INT1}. */
+    private static final Pattern URL_INT1_PATTERN = Pattern.compile(URL_INT1);
+    /** Compiled form of {@link #URL_INT2}. */
+    private static final Pattern URL_INT2_PATTERN = Pattern.compile(URL_INT2);
+    /** Compiled form of {@link #URL_INT3}. */
+    private static final Pattern URL_INT3_PATTERN = Pattern.compile(URL_INT3);
+    /** Compiled form of {@link #URL_INT4}. */
+    private static final Pattern URL_INT4_PATTERN = Pattern.compile(URL_INT4);
+    /** Compiled channel patterns, keyed on the channel prefixes they match. */
+    private static final Map<String, Pattern> CHANNEL_PATTERNS = new ConcurrentHashMap<>();
     /** Whether or not we should style links. */
     private boolean styleURIs;
     /** Whether or not we should style channel names. */
@@ -92,6 +109,9 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
     private final AggregateConfigProvider configManager;
     /** Colour manager to use to parse colours. */
     private final ColourManager colourManager;
+    /** The smilies to mark up, or {@code null} if they need to be reloaded from the config. */
+    @Nullable
+    private volatile Smilies smilies;
 
     /**
      * Creates a new instance of Styliser.
@@ -113,6 +133,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         configManager.addChangeListener("ui", "channelcolour", this);
         configManager.addChangeListener("ui", "stylelinks", this);
         configManager.addChangeListener("ui", "stylechannels", this);
+        configManager.addChangeListener("icon", this);
         styleURIs = configManager.getOptionBool("ui", "stylelinks");
         styleChannels = configManager.getOptionBool("ui", "stylechannels");
         uriColour = colourManager.getColourFromString(
@@ -123,30 +144,40 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
 
     @Override
     public void addStyledString(final StyledMessageMaker<?> maker, final String... strings) {
+        addStyledString(maker, true, strings);
+    }
+
+    /**
+     * Styles the given strings, marking up links and smilies either with the single pass
+     * tokenizer in {@link #markUp(String)}, or with the regular expressions used by
+     * {@link #doLinks(String)}. Both produce the same output; the latter is only exposed so the
+     * two can be compared.
+     *
+     * @param maker    The maker to add the styled strings to
+     * @param tokenize True to use the tokenizer where possible, false to always use regexes
+     * @param strings  The strings to be styled
+     */
+    @VisibleForTesting
+    void addStyledString(final StyledMessageMaker<?> maker, final boolean tokenize,
+            final String... strings) {
         maker.resetAllStyles();
 
         for (String string : strings) {
-            final char[] chars = string.toCharArray();
-
-            for (int j = 0; j < chars.length; j++) {
-                if (chars[j] == 65533) {
-                    chars[j] = '?';
-                }
+            final String input = removeInternalChars(string.replace('\uFFFD', '?'));
+            String target = tokenize ? markUp(input) : null;
+            if (target == null) {
+                target = doSmilies(doLinks(input));
             }
-
-            int position = 0;
-
-            final String target =
-                    doSmilies(doLinks(new String(chars).replaceAll(INTERNAL_CHARS, "")));
             final StyliserState state = new StyliserState();
 
+            int position = 0;
             while (position < target.length()) {
-                final String next = readUntilControl(target.substring(position));
-                maker.appendString(next);
-                position += next.length();
+                final int next = findNextControl(target, position);
+                maker.appendString(target.substring(position, next));
+                position = next;
 
                 if (position < target.length()) {
-                    position += readControlChars(target.substring(position), state, maker);
+                    position += readControlChars(target, position, state, maker);
                 }
             }
         }
@@ -158,26 +189,429 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         final String prefixes = connection == null ? null
                 : connection.getGroupChatManager().getChannelPrefixes();
 
-        String target2 = target;
-        target = target.replaceAll(URL_REGEXP, CODE_HYPERLINK + "$0" + CODE_HYPERLINK);
+        String previous = target;
+        if (mayContainUrl(target)) {
+            target = URL_PATTERN.matcher(target)
+                    .replaceAll(CODE_HYPERLINK + "$0" + CODE_HYPERLINK);
+        }
 
-        if (prefixes != null) {
-            target = target.replaceAll(String.format(URL_CHANNEL, prefixes),
-                    CODE_CHANNEL + "$0" + CODE_CHANNEL);
+        if (prefixes != null && containsAny(target, prefixes)) {
+            target = CHANNEL_PATTERNS
+                    .computeIfAbsent(prefixes, p -> Pattern.compile(String.format(URL_CHANNEL, p)))
+                    .matcher(target)
+                    .replaceAll(CODE_CHANNEL + "$0" + CODE_CHANNEL);
         }
 
-        for (int j = 0; j < 5 && !target.equals(target2); j++) {
-            target2 = target;
-            target = target
-                    .replaceAll(URL_INT1, "$1$3$2")
-                    .replaceAll(URL_INT2, "$1$2$3$5$4")
-                    .replaceAll(URL_INT3, "$1$2$4$3")
-                    .replaceAll(URL_INT4, "$1$3$2");
+        for (int j = 0; j < 5 && !target.equals(previous); j++) {
+            previous = target;
+            target = URL_INT1_PATTERN.matcher(target).replaceAll("$1$3$2");
+            target = URL_INT2_PATTERN.matcher(target).replaceAll("$1$2$3$5$4");
+            target = URL_INT3_PATTERN.matcher(target).replaceAll("$1$2$4$3");
+            target = URL_INT4_PATTERN.matcher(target).replaceAll("$1$3$2");
         }
 
         return target;
     }
 
+    /**
+     * Removes the sequence of all internal control characters from the given string.
+     *
+     * @param string The string to remove the sequence from
+     *
+     * @return The string without the sequence, or the string itself if it did not contain it
+     */
+    private static String removeInternalChars(final String string) {
+        return string.indexOf(INTERNAL_CHARS) == -1 ? string : string.replace(INTERNAL_CHARS, "");
+    }
+
+    /**
+     * Marks up the URLs, channel names and smilies in the given string, producing the same output
+     * as {@code doSmilies(doLinks(string))} without using any regular expressions.
+     *
+     * <p>Links and smilies never contain whitespace, so the string is scanned once, one
+     * whitespace separated token at a time. URLs are found first, then channel names in what
+     * remains of the token, and the token is checked for a smilie only if it holds no links.
+     * Trailing punctuation is moved out of links in the same way as by {@link #URL_INT4}. The
+     * other intelligent linking rules only apply to links containing brackets or single quotes,
+     * or to a first link that repeats the text before a quote; rather than reproduce them, such
+     * strings are left to {@link #doLinks(String)}, as are strings that already contain link
+     * markers or have channel names running into URLs.
+     *
+     * @param string The string to be marked up
+     *
+     * @return The marked up string, or {@code null} if it must be marked up using regexes
+     */
+    @Nullable
+    private String markUp(final String string) {
+        if (containsAny(string, HYPERLINK_CHARS)) {
+            return null;
+        }
+
+        final String prefixes = connection == null ? null
+                : connection.getGroupChatManager().getChannelPrefixes();
+        final Smilies known = getSmilies();
+        final int length = string.length();
+        final Links links = new Links();
+        StringBuilder res = null;
+        boolean linked = false;
+        int copied = 0;
+        int start = 0;
+        while (start < length) {
+            if (isWhitespace(string.charAt(start))) {
+                start++;
+                continue;
+            }
+
+            int end = start + 1;
+            while (end < length && !isWhitespace(string.charAt(end))) {
+                end++;
+            }
+
+            links.clear();
+            findUrls(string, start, end, links);
+            if (prefixes != null && !prefixes.isEmpty()
+                    && !findChannels(string, start, end, prefixes, links)) {
+                return null;
+            }
+
+            for (int i = 0; i < links.count; i++) {
+                if (!linked && hasQuotedPrefix(string, links.starts[i], links.ends[i])) {
+                    return null;
+                }
+                linked = true;
+                if (!trimLink(string, links, i)) {
+                    return null;
+                }
+                if (res == null) {
+                    res = new StringBuilder(length + 8);
+                }
+                res.append(string, copied, links.starts[i]).append(links.types[i])
+                        .append(string, links.starts[i], links.ends[i]).append(links.types[i]);
+                copied = links.ends[i];
+            }
+
+            final int tokenLength = end - start;
+            if (links.count == 0 && tokenLength >= known.minLength
+                    && tokenLength <= known.maxLength
+                    && known.tokens.contains(string.substring(start, end))) {
+                if (res == null) {
+                    res = new StringBuilder(length + 8);
+                }
+                res.append(string, copied, start).append(CODE_SMILIE)
+                        .append(string, start, end).append(CODE_SMILIE);
+                copied = end;
+            }
+            start = end;
+        }
+
+        if (res == null) {
+            return string;
+        }
+        return res.append(string, copied, length).toString();
+    }
+
+    /**
+     * Finds the URLs matched by {@link #URL_REGEXP} within a token, and adds them to the links.
+     *
+     * @param string The string containing the token
+     * @param start  The index of the start of the token
+     * @param end    The index of the end of the token
+     * @param links  The links to add the URLs to
+     */
+    private static void findUrls(final String string, final int start, final int end,
+            final Links links) {
+        // Every position in a run of scheme characters shares the run's end, so if a scheme
+        // starting at the front of a run doesn't match, nothing else in that run will.
+        int schemeChecked = start;
+        int i = start;
+        while (i < end) {
+            int urlEnd = -1;
+            if (i >= schemeChecked && isSchemeChar(string, i)) {
+                int schemeEnd = i + 1;
+                while (schemeEnd < end && isSchemeChar(string, schemeEnd)) {
+                    schemeEnd++;
+                }
+                if (string.startsWith("://", schemeEnd)) {
+                    urlEnd = findUrlEnd(string, schemeEnd + 3, end);
+                }
+                schemeChecked = schemeEnd;
+            }
+            if (urlEnd == -1 && string.regionMatches(true, i, "www.", 0, 4)
+                    && (i == 0 || !isUrlPrefixChar(string.charAt(i - 1)))) {
+                urlEnd = findUrlEnd(string, i + 4, end);
+            }
+
+            if (urlEnd == -1) {
+                i++;
+            } else {
+                links.add(i, urlEnd, CODE_HYPERLINK);
+                i = urlEnd;
+            }
+        }
+    }
+
+    /**
+     * Finds the end of the characters matched by {@link #URL_CHARS} at the given index.
+     *
+     * @param string The string to search
+     * @param from   The index to start from
+     * @param end    The index of the end of the token
+     *
+     * @return The index after the last URL character, or -1 if there are no URL characters
+     * other than punctuation
+     */
+    private static int findUrlEnd(final String string, final int from, final int end) {
+        boolean matched = false;
+        int i = from;
+        while (i < end && isUrlChar(string.charAt(i))) {
+            matched |= !isUrlPunctuation(string.charAt(i));
+            i++;
+        }
+        return matched ? i : -1;
+    }
+
+    /**
+     * Finds the channel names matched by {@link #URL_CHANNEL} within a token, and adds them to
+     * the links. Channel names are found in the string after URLs have been marked up, so a URL
+     * marker before a channel prefix stops it being linked.
+     *
+     * @param string   The string containing the token
+     * @param start    The index of the start of the token
+     * @param end      The index of the end of the token
+     * @param prefixes The channel prefixes to look for
+     * @param links    The links to add the channels to, which already contain the token's URLs
+     *
+     * @return False if a possible channel name starts within or runs into a URL, true otherwise
+     */
+    private static boolean findChannels(final String string, final int start, final int end,
+            final String prefixes, final Links links) {
+        int i = start;
+        while (i < end) {
+            if (prefixes.indexOf(string.charAt(i)) != -1 && !links.hasBoundary(i)
+                    && (i == start || isChannelPrefixChar(string.charAt(i - 1)))) {
+                int channelEnd = i + 1;
+                while (channelEnd < end && isChannelChar(string.charAt(channelEnd))) {
+                    channelEnd++;
+                }
+                if (links.overlaps(i, channelEnd + 1)) {
+                    // The URL's markers would end up inside the channel name
+                    return false;
+                }
+                if (channelEnd > i + 1) {
+                    links.add(i, channelEnd, CODE_CHANNEL);
+                    i = channelEnd;
+                    continue;
+                }
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Determines if {@link #URL_INT2} may apply to the first link in a string. It does when the
+     * start of the string up to a quote before the link reappears at the end of the link.
+     *
+     * @param string The string containing the link
+     * @param start  The index of the start of the first link in the string
+     * @param end    The index of the end of the first link in the string
+     *
+     * @return True if the start of the string before a quote appears within the link
+     */
+    private static boolean hasQuotedPrefix(final String string, final int start, final int end) {
+        for (int i = 1; i < start; i++) {
+            final char c = string.charAt(i);
+            if (c == '\'' || c == '"') {
+                final int index = string.indexOf(string.substring(0, i), start);
+                if (index != -1 && index + i <= end) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves up to five trailing punctuation characters out of the specified link, as repeated
+     * applications of {@link #URL_INT4} would.
+     *
+     * @param string The string containing the link
+     * @param links  The links found in the current token
+     * @param index  The index of the link to trim
+     *
+     * @return False if the link contains a bracket or quote, true otherwise
+     */
+    private static boolean trimLink(final String string, final Links links, final int index) {
+        final int start = links.starts[index];
+        for (int i = start; i < links.ends[index]; i++) {
+            final char c = string.charAt(i);
+            if (c == '(' || c == ')' || c == '\'') {
+                return false;
+            }
+        }
+
+        int end = links.ends[index];
+        for (int i = 0; i < 5 && end - start > 1 && isUrlPunctuation(string.charAt(end - 1)); i++) {
+            end--;
+        }
+        links.ends[index] = end;
+        return true;
+    }
+
+    /**
+     * Determines if the character at the given index can be part of a URL scheme, as matched by
+     * the first part of {@link #URL_REGEXP}. Hex digits immediately following a hex colour code
+     * are not.
+     *
+     * @param string The string to check
+     * @param index  The index of the character to check
+     *
+     * @return True if the character can be part of a scheme, false otherwise
+     */
+    private static boolean isSchemeChar(final String string, final int index) {
+        final char c = toLowerCase(string.charAt(index));
+        if (c >= 'g' && c <= 'z' || c == '+') {
+            return true;
+        }
+        if (c < 'a' || c > 'f') {
+            return false;
+        }
+        if (index < 6 || string.charAt(index - 6) != IRCControlCodes.COLOUR_HEX) {
+            return true;
+        }
+        for (int i = index - 5; i < index; i++) {
+            final char hex = toLowerCase(string.charAt(i));
+            if (!isInt(hex) && (hex < 'a' || hex > 'f')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts an ASCII letter to lower case, as case insensitive regular expressions do.
+     *
+     * @param c The character to convert
+     *
+     * @return The lower case form of the character if it is an ASCII letter, otherwise the
+     * character itself
+     */
+    private static char toLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c;
+    }
+
+    /**
+     * Determines if the specified character stops a following "www." being treated as a URL.
+     *
+     * @param c The character to check
+     *
+     * @return True if the character is a letter, digit, colon or slash, false otherwise
+     */
+    private static boolean isUrlPrefixChar(final char c) {
+        final char lower = toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' || isInt(c) || c == ':' || c == '/';
+    }
+
+    /**
+     * Determines if the specified character is allowed in a URL, as matched by {@link #URL_CHARS}.
+     *
+     * @param c The character to check
+     *
+     * @return True if the character is allowed in URLs, false otherwise
+     */
+    private static boolean isUrlChar(final char c) {
+        final char lower = toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' || isInt(c) || isUrlPunctuation(c)
+                || "$-_@&+*()=/#%~|".indexOf(c) != -1;
+    }
+
+    /**
+     * Determines if the specified character is punctuation that may trail a URL.
+     *
+     * @param c The character to check
+     *
+     * @return True if the character is trailing punctuation, false otherwise
+     */
+    private static boolean isUrlPunctuation(final char c) {
+        return "';:!,.?".indexOf(c) != -1;
+    }
+
+    /**
+     * Determines if the specified character may precede a channel name.
+     *
+     * @param c The character to check
+     *
+     * @return True if a channel name may follow the character, false otherwise
+     */
+    private static boolean isChannelPrefixChar(final char c) {
+        return isWhitespace(c) || "+@-<>(\"',".indexOf(c) != -1;
+    }
+
+    /**
+     * Determines if the specified character may be part of a channel name, as matched by
+     * {@link #RESERVED_CHARS}.
+     *
+     * @param c The character to check
+     *
+     * @return True if the character may be part of a channel name, false otherwise
+     */
+    private static boolean isChannelChar(final char c) {
+        switch (c) {
+            case IRCControlCodes.BOLD:
+            case IRCControlCodes.COLOUR:
+            case IRCControlCodes.STOP:
+            case IRCControlCodes.COLOUR_HEX:
+            case IRCControlCodes.FIXED:
+            case IRCControlCodes.ITALIC:
+            case IRCControlCodes.UNDERLINE:
+            case IRCControlCodes.NEGATE:
+            case CODE_CHANNEL:
+            case CODE_NICKNAME:
+            case '"':
+            case ',':
+                return false;
+            default:
+                return !isWhitespace(c);
+        }
+    }
+
+    /**
+     * Determines whether the given string could match {@link #URL_REGEXP}, which requires either
+     * a "://" or a (case insensitive) "www.".
+     *
+     * @param string The string to check
+     *
+     * @return False if the string definitely contains no URLs, true otherwise
+     */
+    private static boolean mayContainUrl(final String string) {
+        if (string.contains("://")) {
+            return true;
+        }
+        for (int i = string.indexOf('.', 3); i != -1; i = string.indexOf('.', i + 1)) {
+            if (string.regionMatches(true, i - 3, "www", 0, 3)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether the given string contains any of the specified characters.
+     *
+     * @param string     The string to check
+     * @param characters The characters to look for
+     *
+     * @return True if any of the characters are present in the string, false otherwise
+     */
+    private static boolean containsAny(final String string, final String characters) {
+        for (int i = 0; i < characters.length(); i++) {
+            if (string.indexOf(characters.charAt(i)) != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Applies the smilie styles to the target.
      *
@@ -189,21 +623,74 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
      */
     private String doSmilies(final String string) {
         // TODO: Check if they're enabled.
-        // TODO: Store the list instead of building it every line
+        final Smilies known = getSmilies();
+        if (known.tokens.isEmpty()) {
+            return string;
+        }
 
-        final StringBuilder smilies = new StringBuilder();
+        final int length = string.length();
+        StringBuilder res = null;
+        int copied = 0;
+        int start = 0;
+        while (start < length) {
+            if (isWhitespace(string.charAt(start))) {
+                start++;
+                continue;
+            }
 
-        configManager.getOptions("icon").entrySet().stream()
-                .filter(icon -> icon.getKey().startsWith("smilie-")).forEach(icon -> {
-            if (smilies.length() > 0) {
-                smilies.append('|');
+            int end = start + 1;
+            while (end < length && !isWhitespace(string.charAt(end))) {
+                end++;
             }
 
-            smilies.append(Pattern.quote(icon.getKey().substring(7)));
-        });
+            final int tokenLength = end - start;
+            if (tokenLength >= known.minLength && tokenLength <= known.maxLength
+                    && known.tokens.contains(string.substring(start, end))) {
+                if (res == null) {
+                    res = new StringBuilder(length + 8);
+                }
+                res.append(string, copied, start).append(CODE_SMILIE)
+                        .append(string, start, end).append(CODE_SMILIE);
+                copied = end;
+            }
+            start = end;
+        }
 
-        return string.replaceAll("(\\s|^)(" + smilies + ")(?=\\s|$)",
-                "$1" + CODE_SMILIE + "$2" + CODE_SMILIE);
+        if (res == null) {
+            return string;
+        }
+        return res.append(string, copied, length).toString();
+    }
+
+    /**
+     * Returns the smilies that should be marked up, loading them from the config if they have not
+     * been loaded since the icon settings last changed.
+     *
+     * @return The current smilies
+     */
+    private Smilies getSmilies() {
+        Smilies known = smilies;
+        if (known == null) {
+            final Set<String> tokens = new HashSet<>();
+            configManager.getOptions("icon").keySet().stream()
+                    .filter(key -> key.startsWith("smilie-"))
+                    .forEach(key -> tokens.add(key.substring(7)));
+            known = new Smilies(tokens);
+            smilies = known;
+        }
+        return known;
+    }
+
+    /**
+     * Determines if the specified character is whitespace, as matched by the regular expression
+     * character class {@code \s}.
+     *
+     * @param c The character to check
+     *
+     * @return True if the character is whitespace, false otherwise
+     */
+    private static boolean isWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     /**
@@ -217,54 +704,72 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
      */
     @VisibleForTesting
     static String readUntilControl(final String input) {
-        int pos = input.length();
-
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.BOLD));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.UNDERLINE));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.STOP));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.COLOUR));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.COLOUR_HEX));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.ITALIC));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.FIXED));
-        pos = checkChar(pos, input.indexOf(CODE_HYPERLINK));
-        pos = checkChar(pos, input.indexOf(CODE_NICKNAME));
-        pos = checkChar(pos, input.indexOf(CODE_CHANNEL));
-        pos = checkChar(pos, input.indexOf(CODE_SMILIE));
-        pos = checkChar(pos, input.indexOf(IRCControlCodes.NEGATE));
-        pos = checkChar(pos, input.indexOf(CODE_TOOLTIP));
+        return input.substring(0, findNextControl(input, 0));
+    }
 
-        return input.substring(0, pos);
+    /**
+     * Finds the index of the first control character in the input at or after the given offset.
+     *
+     * @param input The string to read from
+     * @param from  The offset to start searching from
+     *
+     * @return The index of the next control character, or the length of the input if there are
+     * none
+     */
+    private static int findNextControl(final String input, final int from) {
+        final int length = input.length();
+        for (int i = from; i < length; i++) {
+            if (isControlChar(input.charAt(i))) {
+                return i;
+            }
+        }
+        return length;
     }
 
     /**
-     * Helper function used in readUntilControl. Checks if i is a valid index of the string (i.e.,
-     * it's not -1), and then returns the minimum of pos and i.
+     * Determines if the specified character is an IRC or internal control code.
      *
-     * @param pos The current position in the string
-     * @param i   The index of the first occurrence of some character
+     * @param c The character to check
      *
-     * @return The new position (see implementation)
+     * @return True if the character is a control code, false otherwise
      */
-    private static int checkChar(final int pos, final int i) {
-        if (i < pos && i != -1) {
-            return i;
+    private static boolean isControlChar(final char c) {
+        switch (c) {
+            case IRCControlCodes.BOLD:
+            case IRCControlCodes.UNDERLINE:
+            case IRCControlCodes.STOP:
+            case IRCControlCodes.COLOUR:
+            case IRCControlCodes.COLOUR_HEX:
+            case IRCControlCodes.ITALIC:
+            case IRCControlCodes.FIXED:
+            case IRCControlCodes.NEGATE:
+            case CODE_HYPERLINK:
+            case CODE_NICKNAME:
+            case CODE_CHANNEL:
+            case CODE_SMILIE:
+            case CODE_TOOLTIP:
+                return true;
+            default:
+                return false;
         }
-        return pos;
     }
 
     /**
-     * Reads the first control character from the input string (and any arguments it takes), and
-     * applies it to the specified attribute set.
+     * Reads the control character at the given offset of the input string (and any arguments it
+     * takes), and applies it to the specified attribute set.
      *
      * @return The number of characters read as control characters
-     * @param string  The string to read from
-     * @param maker The attribute set that new attributes will be applied to
+     * @param string The string to read from
+     * @param offset The offset of the control character within the string
+     * @param maker  The attribute set that new attributes will be applied to
      */
-    private int readControlChars(final String string, final StyliserState state, final StyledMessageMaker<?> maker) {
+    private int readControlChars(final String string, final int offset, final StyliserState state,
+            final StyledMessageMaker<?> maker) {
         final boolean isNegated = state.isNegated;
+        final char code = string.charAt(offset);
 
         // Bold
-        if (string.charAt(0) == IRCControlCodes.BOLD) {
+        if (code == IRCControlCodes.BOLD) {
             if (!isNegated) {
                 maker.toggleBold();
             }
@@ -273,7 +778,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Underline
-        if (string.charAt(0) == IRCControlCodes.UNDERLINE) {
+        if (code == IRCControlCodes.UNDERLINE) {
             if (!isNegated) {
                 maker.toggleUnderline();
             }
@@ -282,7 +787,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Italic
-        if (string.charAt(0) == IRCControlCodes.ITALIC) {
+        if (code == IRCControlCodes.ITALIC) {
             if (!isNegated) {
                 maker.toggleItalic();
             }
@@ -291,7 +796,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Hyperlinks
-        if (string.charAt(0) == CODE_HYPERLINK) {
+        if (code == CODE_HYPERLINK) {
             if (!isNegated && styleURIs) {
                 maker.toggleHyperlinkStyle(uriColour);
             }
@@ -299,7 +804,8 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
             if (state.isInLink) {
                 maker.endHyperlink();
             } else {
-                maker.startHyperlink(readUntilControl(string.substring(1)));
+                maker.startHyperlink(string.substring(offset + 1,
+                        findNextControl(string, offset + 1)));
             }
             state.isInLink = !state.isInLink;
 
@@ -307,7 +813,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Channel links
-        if (string.charAt(0) == CODE_CHANNEL) {
+        if (code == CODE_CHANNEL) {
             if (!isNegated && styleChannels) {
                 maker.toggleChannelLinkStyle(channelColour);
             }
@@ -315,7 +821,8 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
             if (state.isInLink) {
                 maker.endChannelLink();
             } else {
-                maker.startChannelLink(readUntilControl(string.substring(1)));
+                maker.startChannelLink(string.substring(offset + 1,
+                        findNextControl(string, offset + 1)));
             }
             state.isInLink = !state.isInLink;
 
@@ -323,14 +830,20 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Nickname links
-        if (string.charAt(0) == CODE_NICKNAME) {
+        if (code == CODE_NICKNAME) {
             int count = 1;
             if (state.isInLink) {
                 maker.endNicknameLink();
             } else {
-                int next = string.indexOf(CODE_NICKNAME, 1);
-                maker.startNicknameLink(string.substring(1, next));
-                count += next;
+                final int index = string.indexOf(CODE_NICKNAME, offset + 1);
+
+                if (index == -1) {
+                    // Unterminated nickname, ignore it like an unterminated tooltip
+                    return 1;
+                }
+
+                maker.startNicknameLink(string.substring(offset + 1, index));
+                count += index - offset;
             }
             state.isInLink = !state.isInLink;
 
@@ -338,7 +851,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Fixed pitch
-        if (string.charAt(0) == IRCControlCodes.FIXED) {
+        if (code == IRCControlCodes.FIXED) {
             if (!isNegated) {
                 maker.toggleFixedWidth();
             }
@@ -347,7 +860,7 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Stop formatting
-        if (string.charAt(0) == IRCControlCodes.STOP) {
+        if (code == IRCControlCodes.STOP) {
             if (!isNegated) {
                 maker.resetAllStyles();
             }
@@ -356,15 +869,16 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Colours
-        if (string.charAt(0) == IRCControlCodes.COLOUR) {
-            int count = 1;
+        if (code == IRCControlCodes.COLOUR) {
+            final int length = string.length();
+            int pos = offset + 1;
             // This isn't too nice!
-            if (string.length() > count && isInt(string.charAt(count))) {
-                int foreground = string.charAt(count) - '0';
-                count++;
-                if (string.length() > count && isInt(string.charAt(count))) {
-                    foreground = foreground * 10 + string.charAt(count) - '0';
-                    count++;
+            if (length > pos && isInt(string.charAt(pos))) {
+                int foreground = string.charAt(pos) - '0';
+                pos++;
+                if (length > pos && isInt(string.charAt(pos))) {
+                    foreground = foreground * 10 + string.charAt(pos) - '0';
+                    pos++;
                 }
                 foreground %= 16;
 
@@ -374,14 +888,14 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
                 }
 
                 // Now background
-                if (string.length() > count && string.charAt(count) == ','
-                        && string.length() > count + 1
-                        && isInt(string.charAt(count + 1))) {
-                    int background = string.charAt(count + 1) - '0';
-                    count += 2; // Comma and first digit
-                    if (string.length() > count && isInt(string.charAt(count))) {
-                        background = background * 10 + string.charAt(count) - '0';
-                        count++;
+                if (length > pos && string.charAt(pos) == ','
+                        && length > pos + 1
+                        && isInt(string.charAt(pos + 1))) {
+                    int background = string.charAt(pos + 1) - '0';
+                    pos += 2; // Comma and first digit
+                    if (length > pos && isInt(string.charAt(pos))) {
+                        background = background * 10 + string.charAt(pos) - '0';
+                        pos++;
                     }
                     background %= 16;
 
@@ -393,53 +907,53 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
             } else if (!isNegated) {
                 maker.resetColours();
             }
-            return count;
+            return pos - offset;
         }
 
         // Hex colours
-        if (string.charAt(0) == IRCControlCodes.COLOUR_HEX) {
-            int count = 1;
-            if (hasHexString(string, 1)) {
+        if (code == IRCControlCodes.COLOUR_HEX) {
+            int pos = offset + 1;
+            if (hasHexString(string, pos)) {
                 if (!isNegated) {
-                    maker.setForeground(
-                            colourManager.getColourFromString(string.substring(1, 7).toUpperCase(),
-                                    Colour.WHITE));
+                    maker.setForeground(colourManager.getColourFromString(
+                            string.substring(pos, pos + 6).toUpperCase(), Colour.WHITE));
                 }
 
-                count += 6;
+                pos += 6;
 
-                if (string.length() == count) {
-                    return count;
+                if (string.length() == pos) {
+                    return pos - offset;
                 }
                 // Now for background
-                if (string.charAt(count) == ',' && hasHexString(string, count + 1)) {
-                    count++;
+                if (string.charAt(pos) == ',' && hasHexString(string, pos + 1)) {
+                    pos++;
 
                     if (!isNegated) {
                         maker.setBackground(colourManager.getColourFromString(
-                                string.substring(count, count + 6).toUpperCase(), Colour.WHITE));
+                                string.substring(pos, pos + 6).toUpperCase(), Colour.WHITE));
                     }
 
-                    count += 6;
+                    pos += 6;
                 }
             } else if (!isNegated) {
                 maker.resetColours();
             }
-            return count;
+            return pos - offset;
         }
 
         // Control code negation
-        if (string.charAt(0) == IRCControlCodes.NEGATE) {
+        if (code == IRCControlCodes.NEGATE) {
             state.isNegated = !state.isNegated;
             return 1;
         }
 
         // Smilies!!
-        if (string.charAt(0) == CODE_SMILIE) {
+        if (code == CODE_SMILIE) {
             if (state.isInSmilie) {
                 maker.endSmilie();
             } else {
-                maker.startSmilie("smilie-" + readUntilControl(string.substring(1)));
+                maker.startSmilie("smilie-" + string.substring(offset + 1,
+                        findNextControl(string, offset + 1)));
             }
             state.isInSmilie = !state.isInSmilie;
 
@@ -447,18 +961,18 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
 
         // Tooltips
-        if (string.charAt(0) == CODE_TOOLTIP) {
+        if (code == CODE_TOOLTIP) {
             if (state.isInToolTip) {
                 maker.endToolTip();
             } else {
-                final int index = string.indexOf(CODE_TOOLTIP, 1);
+                final int index = string.indexOf(CODE_TOOLTIP, offset + 1);
 
                 if (index == -1) {
                     // Doesn't make much sense, let's ignore it!
                     return 1;
                 }
 
-                final String tooltip = string.substring(1, index);
+                final String tooltip = string.substring(offset + 1, index);
 
                 maker.startToolTip(tooltip);
 
@@ -508,16 +1022,24 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         if (input.length() < offset + 6) {
             return false;
         }
-        boolean res = true;
         for (int i = offset; i < 6 + offset; i++) {
-            res = res && isHex(input.toUpperCase(Locale.getDefault()).charAt(i));
+            if (!isHex(Character.toUpperCase(input.charAt(i)))) {
+                return false;
+            }
         }
 
-        return res;
+        return true;
     }
 
     @Override
     public void configChanged(final String domain, final String key) {
+        if ("icon".equals(domain)) {
+            if (key.startsWith("smilie-")) {
+                smilies = null;
+            }
+            return;
+        }
+
         switch (key) {
             case "stylelinks":
                 styleURIs = configManager.getOptionBool("ui", "stylelinks");
@@ -536,6 +1058,80 @@ public class Styliser implements ConfigChangeListener, StyleApplier {
         }
     }
 
+    /**
+     * An immutable set of smilie tokens, along with the range of their lengths.
+     */
+    private static class Smilies {
+
+        final Set<String> tokens;
+        final int minLength;
+        final int maxLength;
+
+        Smilies(final Set<String> tokens) {
+            this.tokens = Collections.unmodifiableSet(tokens);
+            this.minLength = tokens.stream().mapToInt(String::length).min().orElse(0);
+            this.maxLength = tokens.stream().mapToInt(String::length).max().orElse(0);
+        }
+
+    }
+
+    /**
+     * The links found within a single token, in order.
+     */
+    private static class Links {
+
+        int[] starts = {};
+        int[] ends = {};
+        char[] types = {};
+        int count;
+
+        void clear() {
+            count = 0;
+        }
+
+        void add(final int start, final int end, final char type) {
+            if (count == starts.length) {
+                final int size = Math.max(4, count * 2);
+                starts = Arrays.copyOf(starts, size);
+                ends = Arrays.copyOf(ends, size);
+                types = Arrays.copyOf(types, size);
+            }
+            int index = count++;
+            while (index > 0 && starts[index - 1] > start) {
+                starts[index] = starts[index - 1];
+                ends[index] = ends[index - 1];
+                types[index] = types[index - 1];
+                index--;
+            }
+            starts[index] = start;
+            ends[index] = end;
+            types[index] = type;
+        }
+
+        /**
+         * Determines if a link starts or ends at the given index, and so would be marked up
+         * immediately before it.
+         */
+        boolean hasBoundary(final int index) {
+            for (int i = 0; i < count; i++) {
+                if (starts[i] == index || ends[i] == index) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean overlaps(final int start, final int end) {
+            for (int i = 0; i < count; i++) {
+                if (starts[i] < end && start < ends[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
     private static class StyliserState {
 
         boolean isNegated;
@@ -29,7 +29,6 @@ import com.dmdirc.interfaces.WindowModel;
 import com.dmdirc.util.colours.Colour;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
-import net.engio.mbassy.listener.Handler;
 
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -60,37 +59,23 @@ public class UnreadStatusManagerImpl implements UnreadStatusManager {
                 .subscribe(unreadStatusChangedEvent -> container.getEventBus().publish(unreadStatusChangedEvent));
     }
 
-    @Handler
-    public void handleDisplayableEvent(final DisplayableEvent event) {
-        if (includeEvent(event)) {
-            updateStatus(miscellaneousColour, unreadLines + 1);
+    /**
+     * Updates the unread status in response to a displayable event in this manager's window.
+     *
+     * @param event The event that was displayed.
+     */
+    public void handleEvent(final DisplayableEvent event) {
+        if (!includeEvent(event)) {
+            return;
         }
-    }
 
-    @Handler
-    public void handleChannelTextEvent(final BaseChannelTextEvent event) {
-        if (includeEvent(event)) {
-            updateStatus(messageColour);
-        }
-    }
+        updateStatus(miscellaneousColour, unreadLines + 1);
 
-    @Handler
-    public void handleQueryTextEvent(final BaseQueryTextEvent event) {
-        if (includeEvent(event)) {
+        if (event instanceof BaseChannelTextEvent || event instanceof BaseQueryTextEvent) {
             updateStatus(messageColour);
         }
-    }
-
-    @Handler
-    public void handleChannelHighlightEvent(final ChannelHighlightEvent event) {
-        if (includeEvent(event)) {
-            updateStatus(highlightColour);
-        }
-    }
 
-    @Handler
-    public void handleQueryHighlightEvent(final QueryHighlightEvent event) {
-        if (includeEvent(event)) {
+        if (event instanceof ChannelHighlightEvent || event instanceof QueryHighlightEvent) {
             updateStatus(highlightColour);
         }
     }
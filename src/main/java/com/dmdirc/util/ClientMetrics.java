@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import com.dmdirc.util.system.SystemLifecycleComponent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides access to the counters and gauges the client keeps about its own behaviour.
+ *
+ * <p>Config lookups are counted from startup, as they always have been; counting can be switched
+ * off at runtime via {@link #getConfigLookups()}. Components with values worth watching (such as
+ * queue depths or timings) register gauges, which are sampled whenever a snapshot is taken. A
+ * snapshot of everything can be viewed at runtime with the metrics command, and is logged when the
+ * client shuts down.
+ */
+@Singleton
+public class ClientMetrics implements SystemLifecycleComponent {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClientMetrics.class);
+
+    /** Counts config lookups, grouped by domain. */
+    private final CounterRegistry configLookups = new CounterRegistry(true);
+    /** The registered gauges, keyed on name. */
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Inject
+    public ClientMetrics() {
+    }
+
+    /**
+     * Gets the registry used to count config lookups. Counters are grouped by config domain and
+     * named after the option being looked up.
+     *
+     * @return The config lookup counter registry.
+     */
+    public CounterRegistry getConfigLookups() {
+        return configLookups;
+    }
+
+    /**
+     * Registers a gauge, replacing any existing gauge with the same name.
+     *
+     * @param name  The name of the gauge, for example "eventbus.queue.depth".
+     * @param gauge Supplier to call to read the gauge's current value.
+     */
+    public void registerGauge(final String name, final LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Reads the current value of every registered gauge.
+     *
+     * @return A sorted map of gauge names to their current values.
+     */
+    public Map<String, Long> getGauges() {
+        final Map<String, Long> res = new TreeMap<>();
+        gauges.forEach((name, gauge) -> res.put(name, gauge.getAsLong()));
+        return res;
+    }
+
+    @Override
+    public void startUp() {
+        // Do nothing
+    }
+
+    @Override
+    public void shutDown() {
+        LOG.info("Client gauges: {}", getGauges());
+        LOG.debug("Config lookups: {}", configLookups.getCounts());
+    }
+
+}
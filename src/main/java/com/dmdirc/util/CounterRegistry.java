@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A set of named counters that can be incremented concurrently without contention.
+ *
+ * <p>Counters are identified by a group and a name (for example a config domain and option), and
+ * are created the first time they are incremented. Counting can be switched on and off at
+ * runtime; while disabled, incrementing a counter does nothing beyond reading a flag.
+ */
+public class CounterRegistry {
+
+    /** The counters, keyed on group and then name. */
+    private final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counters =
+            new ConcurrentHashMap<>();
+    /** Whether counting is enabled. */
+    private volatile boolean enabled;
+
+    /**
+     * Creates a new counter registry.
+     *
+     * @param enabled Whether counting should initially be enabled.
+     */
+    public CounterRegistry(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Determines whether counting is enabled.
+     *
+     * @return True if counters are being incremented, false otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables counting. Existing counts are retained.
+     *
+     * @param enabled True to enable counting, false to disable it.
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Increments the specified counter, if counting is enabled.
+     *
+     * @param group The group the counter belongs to.
+     * @param name  The name of the counter within its group.
+     */
+    public void increment(final String group, final String name) {
+        if (!enabled) {
+            return;
+        }
+
+        ConcurrentMap<String, LongAdder> groupCounters = counters.get(group);
+        if (groupCounters == null) {
+            groupCounters = counters.computeIfAbsent(group, k -> new ConcurrentHashMap<>());
+        }
+
+        LongAdder counter = groupCounters.get(name);
+        if (counter == null) {
+            counter = groupCounters.computeIfAbsent(name, k -> new LongAdder());
+        }
+
+        counter.increment();
+    }
+
+    /**
+     * Gets the current value of the specified counter.
+     *
+     * @param group The group the counter belongs to.
+     * @param name  The name of the counter within its group.
+     * @return The number of times the counter has been incremented.
+     */
+    public long getCount(final String group, final String name) {
+        final Map<String, LongAdder> groupCounters = counters.get(group);
+        if (groupCounters == null) {
+            return 0;
+        }
+        final LongAdder counter = groupCounters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Takes a snapshot of all counters.
+     *
+     * @return A sorted map of "group.name" to the counter's value.
+     */
+    public Map<String, Long> getCounts() {
+        final Map<String, Long> res = new TreeMap<>();
+        counters.forEach((group, groupCounters) -> groupCounters.forEach(
+                (name, counter) -> res.put(group + '.' + name, counter.sum())));
+        return res;
+    }
+
+    /**
+     * Removes all counters.
+     */
+    public void reset() {
+        counters.clear();
+    }
+
+}
@@ -27,6 +27,9 @@ public final class EventUtils {
     /** Default priority for normal listeners. */
     public static final int PRIORITY_NORMAL = 0;
 
+    /** The highest possible priority. */
+    public static final int PRIORITY_HIGHEST = Integer.MAX_VALUE;
+
     /** The lowest possible priority. */
     public static final int PRIORITY_LOWEST = Integer.MIN_VALUE;
 
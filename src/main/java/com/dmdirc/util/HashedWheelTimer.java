@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.dmdirc.util.LogUtils.APP_ERROR;
+
+/**
+ * A low resolution timer for large numbers of short timeouts, such as typing notifications.
+ *
+ * <p>Timeouts are placed into the buckets of a fixed size wheel according to when they expire. A
+ * single thread advances one bucket every tick and runs the timeouts in that bucket that are due,
+ * so scheduling and cancelling are constant time operations and only one thread is used however
+ * many timeouts are pending. Timeouts may run up to one tick late.
+ *
+ * <p>Tasks are run on the timer thread, so should be short. Any exception thrown by a task is
+ * logged and does not affect other timeouts.
+ */
+public class HashedWheelTimer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    /** The length of a tick, in nanoseconds. */
+    private final long tickDuration;
+    /** The buckets of the wheel. Only accessed by the worker thread. */
+    private final List<Set<Timeout>> wheel;
+    /** Timeouts that have been scheduled but not yet placed in the wheel. */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    /** Timeouts that have been cancelled but not yet removed from the wheel. */
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    /** Whether the worker thread has been started. */
+    private final AtomicBoolean started = new AtomicBoolean();
+    /** The thread that advances the wheel. */
+    private final Thread worker;
+    /** The time the timer was created, in nanoseconds. All deadlines are relative to this. */
+    private final long startTime;
+    /** Whether the timer has been stopped. */
+    private volatile boolean stopped;
+
+    /**
+     * Creates a new timer. The worker thread is not started until the first timeout is scheduled.
+     *
+     * @param tickDuration The length of each tick
+     * @param unit         The unit of the tick duration
+     * @param wheelSize    The number of buckets in the wheel
+     * @param name         The name of the timer thread
+     */
+    public HashedWheelTimer(final long tickDuration, final TimeUnit unit, final int wheelSize,
+            final String name) {
+        if (tickDuration <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+        }
+
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new HashSet<>());
+        }
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+    }
+
+    /**
+     * Schedules a task to be run after the given delay.
+     *
+     * @param task  The task to run
+     * @param delay The time from now after which the task should run
+     * @param unit  The unit of the delay
+     *
+     * @return A timeout which can be used to cancel the task
+     */
+    public Timeout schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        final Timeout timeout = new Timeout(task,
+                System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)));
+        pendingTimeouts.add(timeout);
+        if (started.compareAndSet(false, true)) {
+            worker.start();
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops the timer. Pending timeouts will not be run.
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = (System.nanoTime() - startTime) / tickDuration;
+        while (!stopped) {
+            final long sleep = (tick + 1) * tickDuration - (System.nanoTime() - startTime);
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException ex) {
+                    continue;
+                }
+            }
+
+            removeCancelledTimeouts();
+            addPendingTimeouts(tick);
+            expireTimeouts(wheel.get((int) (tick % wheel.size())));
+            tick++;
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void addPendingTimeouts(final long currentTick) {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            final long expiryTick = Math.max(timeout.deadline / tickDuration, currentTick);
+            timeout.remainingRounds = (expiryTick - currentTick) / wheel.size();
+            timeout.bucket = wheel.get((int) (expiryTick % wheel.size()));
+            timeout.bucket.add(timeout);
+        }
+    }
+
+    private void expireTimeouts(final Set<Timeout> bucket) {
+        final Iterator<Timeout> iterator = bucket.iterator();
+        final List<Timeout> expired = new ArrayList<>();
+        while (iterator.hasNext()) {
+            final Timeout timeout = iterator.next();
+            if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                timeout.bucket = null;
+                expired.add(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+        expired.forEach(Timeout::expire);
+    }
+
+    /**
+     * A task scheduled on a {@link HashedWheelTimer}.
+     */
+    public final class Timeout {
+
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        /** The task to run. */
+        private final Runnable task;
+        /** The time the task should run, in nanoseconds relative to the timer's start time. */
+        private final long deadline;
+        /** The current state of this timeout. */
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        /** The number of full turns of the wheel remaining before this timeout expires. */
+        private long remainingRounds;
+        /** The bucket this timeout is in, if any. Only accessed by the worker thread. */
+        private Set<Timeout> bucket;
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels this timeout, if it has not already run.
+         *
+         * @return True if the timeout was cancelled, false if it had already run or been cancelled
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                cancelledTimeouts.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Determines whether this timeout has been cancelled.
+         *
+         * @return True if the timeout was cancelled, false otherwise
+         */
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        /**
+         * Determines whether this timeout has run.
+         *
+         * @return True if the task has been run, false otherwise
+         */
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    LOG.error(APP_ERROR, "Error running scheduled task", ex);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import com.dmdirc.events.SourcedEvent;
+import com.dmdirc.events.eventbus.BaseEvent;
+import com.dmdirc.events.eventbus.EventBus;
+import com.dmdirc.interfaces.WindowModel;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.dmdirc.util.LogUtils.APP_ERROR;
+
+/**
+ * An event bus that dispatches asynchronous events on a pool of single-threaded shards.
+ *
+ * <p>Events that are published asynchronously are assigned to a shard based on the connection of
+ * their source window (or the window itself if it has no connection), so events from the same
+ * source are always delivered in the order they were published, while a busy connection does not
+ * hold up delivery of events from any other connection. Events without a source all share one
+ * shard. Synchronous publication, subscription and unsubscription are passed straight to the
+ * delegate bus.
+ *
+ * <p>With more than one shard, a subscriber may be invoked concurrently for events from different
+ * connections, so subscribers that keep state shared between connections must be safe to call from
+ * several threads at once. Events without a source are still delivered one at a time, so
+ * subscribers that only listen for client-wide events (errors, plugins, profiles and the like) do
+ * not need to worry about this. With a single shard, asynchronous events are delivered one at a
+ * time exactly as they would be by a bus with one dispatcher thread.
+ */
+public class ShardedEventBus implements EventBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedEventBus.class);
+
+    /** The bus that events are actually published on. */
+    private final EventBus delegate;
+    /** The single-threaded executors that asynchronous events are dispatched on. */
+    private final ThreadPoolExecutor[] shards;
+    /** The number of asynchronous events that have been dispatched. */
+    private final LongAdder dispatchedEvents = new LongAdder();
+    /** The total time spent dispatching asynchronous events, in nanoseconds. */
+    private final LongAdder dispatchTime = new LongAdder();
+    /** The longest time spent dispatching a single asynchronous event, in nanoseconds. */
+    private final LongAccumulator maxDispatchTime = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a new sharded event bus.
+     *
+     * @param delegate   The bus to publish events on.
+     * @param shardCount The number of dispatcher threads to use. Values greater than one require
+     *                   thread-safe subscribers.
+     */
+    public ShardedEventBus(final EventBus delegate, final int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1");
+        }
+
+        this.delegate = delegate;
+        this.shards = new ThreadPoolExecutor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("Event dispatcher " + i)
+                            .setDaemon(true)
+                            .build());
+        }
+    }
+
+    @Override
+    public void subscribe(final Object listener) {
+        delegate.subscribe(listener);
+    }
+
+    @Override
+    public void unsubscribe(final Object listener) {
+        delegate.unsubscribe(listener);
+    }
+
+    @Override
+    public <T extends BaseEvent> void publish(final T event) {
+        delegate.publish(event);
+    }
+
+    @Override
+    public <T extends BaseEvent> void publishAsync(final T event) {
+        shards[getShard(event)].execute(() -> dispatch(event));
+    }
+
+    /**
+     * Gets the number of shards that asynchronous events are dispatched on.
+     *
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Gets the number of asynchronous events that are waiting to be dispatched.
+     *
+     * @return The total number of queued events across all shards.
+     */
+    public int getQueueDepth() {
+        return Arrays.stream(shards).mapToInt(s -> s.getQueue().size()).sum();
+    }
+
+    /**
+     * Gets the number of asynchronous events that have been dispatched.
+     *
+     * @return The number of dispatched events.
+     */
+    public long getDispatchedEventCount() {
+        return dispatchedEvents.sum();
+    }
+
+    /**
+     * Gets the mean time taken for subscribers to handle an asynchronous event.
+     *
+     * @return The mean dispatch time, in nanoseconds.
+     */
+    public long getMeanDispatchTime() {
+        final long count = dispatchedEvents.sum();
+        return count == 0 ? 0 : dispatchTime.sum() / count;
+    }
+
+    /**
+     * Gets the longest time taken for subscribers to handle an asynchronous event.
+     *
+     * @return The maximum dispatch time, in nanoseconds.
+     */
+    public long getMaxDispatchTime() {
+        return maxDispatchTime.get();
+    }
+
+    private int getShard(final BaseEvent event) {
+        if (shards.length == 1 || !(event instanceof SourcedEvent)) {
+            return 0;
+        }
+
+        final WindowModel source = ((SourcedEvent) event).getSource();
+        if (source == null) {
+            return 0;
+        }
+
+        final Object key = source.getConnection().map(Object.class::cast).orElse(source);
+        return Math.floorMod(key.hashCode(), shards.length);
+    }
+
+    private void dispatch(final BaseEvent event) {
+        final long start = System.nanoTime();
+        try {
+            delegate.publish(event);
+        } catch (RuntimeException ex) {
+            LOG.error(APP_ERROR, "Unable to dispatch event", ex);
+        } finally {
+            final long time = System.nanoTime() - start;
+            dispatchedEvents.increment();
+            dispatchTime.add(time);
+            maxDispatchTime.accumulate(time);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A bounded scheduled executor that is shared between many owners, such as connections.
+ *
+ * <p>Each owner schedules its tasks through a task group obtained from {@link #newTaskGroup()}.
+ * A task group is itself a {@link ScheduledExecutorService}, but shutting it down only cancels the
+ * tasks scheduled through that group, leaving the shared threads running for everyone else.
+ *
+ * <p>The time between when each one-shot task was due and when it actually started is recorded,
+ * so that {@link #getLateTaskCount()} and {@link #getMaxLateness()} can show whether the pool is
+ * keeping up.
+ */
+public class SharedScheduledExecutorService extends LoggingScheduledExecutorService {
+
+    /** The lateness above which a task is counted as late, in nanoseconds. */
+    private final long lateThreshold;
+    /** The number of tasks that started later than the threshold. */
+    private final LongAdder lateTasks = new LongAdder();
+    /** The greatest lateness of any task, in nanoseconds. */
+    private final LongAccumulator maxLateness = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Creates a new shared scheduled executor.
+     *
+     * @param coreSize      The number of threads to use
+     * @param lateThreshold The lateness above which a task is counted as late
+     * @param unit          The unit of the late threshold
+     * @param poolName      The naming format to use when naming threads
+     */
+    public SharedScheduledExecutorService(final int coreSize, final long lateThreshold,
+            final TimeUnit unit, final String poolName) {
+        super(coreSize, poolName);
+        this.lateThreshold = unit.toNanos(lateThreshold);
+        setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Creates a new group of tasks on this executor.
+     *
+     * @return A scheduled executor service whose tasks run on this executor
+     */
+    public ScheduledExecutorService newTaskGroup() {
+        return new TaskGroup();
+    }
+
+    /**
+     * Gets the number of tasks waiting to run.
+     *
+     * @return The number of queued tasks
+     */
+    public int getPendingTaskCount() {
+        return getQueue().size();
+    }
+
+    /**
+     * Gets the number of one-shot tasks that started later than the late threshold.
+     *
+     * @return The number of late tasks
+     */
+    public long getLateTaskCount() {
+        return lateTasks.sum();
+    }
+
+    /**
+     * Gets the greatest delay between when a one-shot task was due and when it started.
+     *
+     * @return The maximum lateness, in nanoseconds
+     */
+    public long getMaxLateness() {
+        return maxLateness.get();
+    }
+
+    private void recordStart(final long dueTime) {
+        final long lateness = System.nanoTime() - dueTime;
+        maxLateness.accumulate(lateness);
+        if (lateness > lateThreshold) {
+            lateTasks.increment();
+        }
+    }
+
+    /**
+     * A group of tasks scheduled on the shared executor, which can be shut down independently.
+     */
+    private class TaskGroup extends AbstractExecutorService implements ScheduledExecutorService {
+
+        /** Tasks scheduled through this group that may not have completed. */
+        private final Set<ScheduledFuture<?>> tasks = ConcurrentHashMap.newKeySet();
+        /** Whether this group has been shut down. */
+        private volatile boolean shutdown;
+
+        @Override
+        public ScheduledFuture<?> schedule(final Runnable command, final long delay,
+                final TimeUnit unit) {
+            final long dueTime = System.nanoTime() + unit.toNanos(delay);
+            return track(() -> SharedScheduledExecutorService.this.schedule(() -> {
+                recordStart(dueTime);
+                command.run();
+            }, delay, unit));
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay,
+                final TimeUnit unit) {
+            final long dueTime = System.nanoTime() + unit.toNanos(delay);
+            return track(() -> SharedScheduledExecutorService.this.schedule(() -> {
+                recordStart(dueTime);
+                return callable.call();
+            }, delay, unit));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command,
+                final long initialDelay, final long period, final TimeUnit unit) {
+            return track(() -> SharedScheduledExecutorService.this.scheduleAtFixedRate(command,
+                    initialDelay, period, unit));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command,
+                final long initialDelay, final long delay, final TimeUnit unit) {
+            return track(() -> SharedScheduledExecutorService.this.scheduleWithFixedDelay(
+                    command, initialDelay, delay, unit));
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            schedule(command, 0, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+            tasks.forEach(task -> task.cancel(false));
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            tasks.forEach(task -> task.cancel(true));
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            if (shutdown) {
+                tasks.removeIf(ScheduledFuture::isDone);
+            }
+            return shutdown && tasks.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit)
+                throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (ScheduledFuture<?> task : tasks) {
+                try {
+                    task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException | RuntimeException ex) {
+                    // The task has finished, one way or another.
+                } catch (TimeoutException ex) {
+                    return false;
+                }
+            }
+            return isTerminated();
+        }
+
+        private <T extends ScheduledFuture<?>> T track(final Supplier<T> scheduler) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Task group has been shut down");
+            }
+            tasks.removeIf(ScheduledFuture::isDone);
+            final T task = scheduler.get();
+            tasks.add(task);
+            if (shutdown) {
+                task.cancel(false);
+            }
+            return task;
+        }
+
+    }
+
+}
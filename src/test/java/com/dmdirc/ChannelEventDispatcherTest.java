@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc;
+
+import com.dmdirc.events.eventbus.EventBus;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.GroupChatUser;
+import com.dmdirc.parser.common.CallbackManager;
+import com.dmdirc.parser.events.ChannelMessageEvent;
+import com.dmdirc.parser.events.OtherAwayStateEvent;
+import com.dmdirc.parser.interfaces.ChannelClientInfo;
+import com.dmdirc.parser.interfaces.ChannelInfo;
+import com.dmdirc.parser.interfaces.Parser;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ChannelEventDispatcherTest {
+
+    @Mock private Connection connection;
+    @Mock private Parser parser;
+    @Mock private Parser newParser;
+    @Mock private CallbackManager callbackManager;
+    @Mock private CallbackManager newCallbackManager;
+    @Mock private Channel channel1;
+    @Mock private Channel channel2;
+    @Mock private ChannelEventHandler handler1;
+    @Mock private ChannelEventHandler handler2;
+    @Mock private ChannelInfo channelInfo1;
+    @Mock private ChannelInfo channelInfo2;
+    @Mock private ChannelInfo otherChannelInfo;
+    @Mock private ChannelClientInfo channelClient;
+    @Mock private GroupChatUser user;
+    @Mock private GroupChatUserManager groupChatUserManager;
+    @Mock private EventBus eventBus;
+    @Mock private ChannelMessageEvent event1;
+    @Mock private ChannelMessageEvent event2;
+    @Mock private ChannelMessageEvent otherEvent;
+    @Mock private OtherAwayStateEvent awayEvent;
+    private ChannelMap channels;
+    private ChannelEventDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        when(connection.getParser()).thenReturn(Optional.of(parser));
+        when(parser.getCallbackManager()).thenReturn(callbackManager);
+        when(newParser.getCallbackManager()).thenReturn(newCallbackManager);
+
+        when(channel1.getName()).thenReturn("#one");
+        when(channel1.getEventHandler()).thenReturn(handler1);
+        when(channel1.getChannelInfo()).thenReturn(channelInfo1);
+        when(channel1.getConnection()).thenReturn(Optional.of(connection));
+        when(channel2.getName()).thenReturn("#two");
+        when(channel2.getEventHandler()).thenReturn(handler2);
+        when(channel2.getChannelInfo()).thenReturn(channelInfo2);
+        when(channel2.getConnection()).thenReturn(Optional.of(connection));
+
+        when(channelInfo1.getName()).thenReturn("#one");
+        when(channelInfo2.getName()).thenReturn("#two");
+        when(otherChannelInfo.getName()).thenReturn("#other");
+        when(event1.getChannel()).thenReturn(channelInfo1);
+        when(event2.getChannel()).thenReturn(channelInfo2);
+        when(otherEvent.getChannel()).thenReturn(otherChannelInfo);
+
+        channels = new ChannelMap();
+        channels.add(channel1);
+        channels.add(channel2);
+        dispatcher = new ChannelEventDispatcher(connection, channels);
+    }
+
+    @Test
+    public void testRoutesEventsToMatchingChannel() {
+        dispatcher.onChannelMessage(event1);
+        verify(handler1).onChannelMessage(event1);
+        verify(handler2, never()).onChannelMessage(any());
+
+        dispatcher.onChannelMessage(event2);
+        verify(handler2).onChannelMessage(event2);
+        verify(handler1, never()).onChannelMessage(event2);
+    }
+
+    @Test
+    public void testIgnoresEventsForUnknownChannels() {
+        dispatcher.onChannelMessage(otherEvent);
+        verify(handler1, never()).onChannelMessage(any());
+        verify(handler2, never()).onChannelMessage(any());
+    }
+
+    @Test
+    public void testRoutesAwayStateToAllChannels() {
+        dispatcher.onAwayStateOther(awayEvent);
+        verify(handler1).onAwayStateOther(awayEvent);
+        verify(handler2).onAwayStateOther(awayEvent);
+    }
+
+    @Test
+    public void testRegistersWithParser() {
+        dispatcher.registerCallbacks();
+        verify(callbackManager).subscribe(dispatcher);
+    }
+
+    @Test
+    public void testUnregistersFromParser() {
+        dispatcher.registerCallbacks();
+        dispatcher.unregisterCallbacks();
+        verify(callbackManager).unsubscribe(dispatcher);
+    }
+
+    @Test
+    public void testReconnectMovesSubscriptionToNewParser() {
+        dispatcher.registerCallbacks();
+        dispatcher.unregisterCallbacks();
+        when(connection.getParser()).thenReturn(Optional.of(newParser));
+        dispatcher.registerCallbacks();
+
+        verify(callbackManager, times(1)).subscribe(dispatcher);
+        verify(callbackManager).unsubscribe(dispatcher);
+        verify(newCallbackManager).subscribe(dispatcher);
+    }
+
+    @Test
+    public void testRegisteredHandlerPublishesEvents() {
+        final ChannelEventHandler handler = createHandler();
+        handler.registerCallbacks();
+        new ChannelEventDispatcher(connection, singleChannel(handler)).onChannelMessage(event1);
+        verify(eventBus).publishAsync(any(com.dmdirc.events.ChannelMessageEvent.class));
+    }
+
+    @Test
+    public void testNothingDeliveredAfterUnregister() {
+        final ChannelEventHandler handler = createHandler();
+        handler.registerCallbacks();
+        handler.unregisterCallbacks();
+        new ChannelEventDispatcher(connection, singleChannel(handler)).onChannelMessage(event1);
+        verify(eventBus, never()).publishAsync(any());
+    }
+
+    @Test
+    public void testEventsFromOldParserIgnoredAfterReconnect() {
+        final ChannelEventHandler handler = createHandler();
+        handler.registerCallbacks();
+        handler.unregisterCallbacks();
+
+        // After reconnecting, the channel is backed by a new ChannelInfo from the new parser.
+        final ChannelInfo newChannelInfo = otherChannelInfo;
+        when(newChannelInfo.getName()).thenReturn("#one");
+        when(channel1.getChannelInfo()).thenReturn(newChannelInfo);
+        handler.registerCallbacks();
+
+        new ChannelEventDispatcher(connection, singleChannel(handler)).onChannelMessage(event1);
+        verify(eventBus, never()).publishAsync(any());
+    }
+
+    private ChannelEventHandler createHandler() {
+        when(event1.getDate()).thenReturn(LocalDateTime.now());
+        when(event1.getClient()).thenReturn(channelClient);
+        when(event1.getMessage()).thenReturn("Hello");
+        when(groupChatUserManager.getUserFromClient(channelClient, channel1)).thenReturn(user);
+        return new ChannelEventHandler(channel1, eventBus, groupChatUserManager);
+    }
+
+    private ChannelMap singleChannel(final ChannelEventHandler handler) {
+        when(channel1.getEventHandler()).thenReturn(handler);
+        final ChannelMap map = new ChannelMap();
+        map.add(channel1);
+        return map;
+    }
+
+}
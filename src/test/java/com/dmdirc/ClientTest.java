@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc;
+
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.parser.interfaces.ClientInfo;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClientTest {
+
+    @Mock private Connection connection1;
+    @Mock private Connection connection2;
+    @Mock private ClientInfo clientInfo1;
+    @Mock private ClientInfo clientInfo2;
+
+    @Test
+    public void testClientsForSameClientInfoAreEqual() {
+        final Client client = new Client(connection1, clientInfo1);
+        final Client recreated = new Client(connection1, clientInfo1);
+        assertEquals(client, recreated);
+        assertEquals(client.hashCode(), recreated.hashCode());
+    }
+
+    @Test
+    public void testClientsForDifferentClientInfoAreNotEqual() {
+        assertNotEquals(new Client(connection1, clientInfo1), new Client(connection1, clientInfo2));
+    }
+
+    @Test
+    public void testClientsForDifferentConnectionsAreNotEqual() {
+        assertNotEquals(new Client(connection1, clientInfo1), new Client(connection2, clientInfo1));
+    }
+
+}
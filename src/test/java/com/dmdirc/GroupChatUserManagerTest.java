@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc;
+
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.GroupChat;
+import com.dmdirc.interfaces.GroupChatUser;
+import com.dmdirc.interfaces.User;
+import com.dmdirc.parser.interfaces.ChannelClientInfo;
+import com.dmdirc.parser.interfaces.ClientInfo;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GroupChatUserManagerTest {
+
+    @Mock private UserFactory userFactory;
+    @Mock private GroupChatUserFactory groupChatUserFactory;
+    @Mock private Connection connection;
+    @Mock private GroupChat groupChat1;
+    @Mock private GroupChat groupChat2;
+    @Mock private ClientInfo clientInfo;
+    @Mock private ChannelClientInfo channelClient1;
+    @Mock private ChannelClientInfo channelClient2;
+    private UserManager userManager;
+    private GroupChatUserManager manager;
+
+    @Before
+    public void setup() {
+        when(userFactory.getUser(any(), any())).thenAnswer(i -> mock(User.class));
+
+        userManager = new UserManager(userFactory);
+        manager = new GroupChatUserManager(groupChatUserFactory, userManager);
+    }
+
+    @Test
+    public void testUsersAreCreatedOnce() {
+        setupGroupChats();
+        final GroupChatUser user = manager.getUserFromClient(channelClient1, groupChat1);
+        assertSame(user, manager.getUserFromClient(channelClient1, groupChat1));
+        verify(groupChatUserFactory, times(1)).getGroupChatUser(any(), any(), any());
+        verify(userFactory, times(1)).getUser(any(), any());
+        assertEquals(1, manager.getCacheHits());
+        assertEquals(1, manager.getCacheMisses());
+        assertEquals(1, manager.getCacheSize());
+    }
+
+    @Test
+    public void testRemovedUsersAreRecreated() {
+        setupGroupChats();
+        final GroupChatUser user = manager.getUserFromClient(channelClient1, groupChat1);
+        manager.removeUser(channelClient1, groupChat1);
+        assertEquals(0, manager.getCacheSize());
+        assertNotSame(user, manager.getUserFromClient(channelClient1, groupChat1));
+    }
+
+    @Test
+    public void testUserReleasedAfterLastGroupChat() {
+        setupGroupChats();
+        manager.getUserFromClient(channelClient1, groupChat1);
+        manager.getUserFromClient(channelClient2, groupChat2);
+        assertEquals(1, userManager.getCacheSize());
+
+        manager.removeUser(channelClient1, groupChat1);
+        assertEquals(1, userManager.getCacheSize());
+
+        manager.removeUsers(groupChat2);
+        assertEquals(0, userManager.getCacheSize());
+    }
+
+    @Test
+    public void testRemovingUserTwiceOnlyReleasesOnce() {
+        setupGroupChats();
+        manager.getUserFromClient(channelClient1, groupChat1);
+        manager.getUserFromClient(channelClient2, groupChat2);
+        manager.removeUser(channelClient2, groupChat2);
+        manager.removeUser(channelClient2, groupChat2);
+        assertEquals(1, userManager.getCacheSize());
+    }
+
+    @Test
+    public void testUsersReleasedWithConnection() {
+        userManager.getUserFromClientInfo(clientInfo, connection);
+        userManager.removeUsers(connection);
+        assertEquals(0, userManager.getCacheSize());
+    }
+
+    @Test
+    public void testGroupChatCountsReleasedWithConnection() {
+        setupGroupChats();
+        manager.getUserFromClient(channelClient1, groupChat1);
+        userManager.removeUsers(connection);
+
+        manager.getUserFromClient(channelClient2, groupChat2);
+        assertEquals(1, userManager.getCacheSize());
+
+        manager.removeUsers(groupChat2);
+        assertEquals(0, userManager.getCacheSize());
+    }
+
+    private void setupGroupChats() {
+        when(groupChat1.getConnection()).thenReturn(Optional.of(connection));
+        when(groupChat2.getConnection()).thenReturn(Optional.of(connection));
+        when(channelClient1.getClient()).thenReturn(clientInfo);
+        when(channelClient2.getClient()).thenReturn(clientInfo);
+        when(groupChatUserFactory.getGroupChatUser(any(), any(), any()))
+                .thenAnswer(i -> mock(GroupChatUser.class));
+    }
+
+}
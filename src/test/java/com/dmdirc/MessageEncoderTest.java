@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc;
+
+import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.config.provider.ConfigChangeListener;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.GroupChat;
+import com.dmdirc.interfaces.GroupChatManager;
+import com.dmdirc.interfaces.WindowModel;
+import com.dmdirc.parser.common.DefaultStringConverter;
+import com.dmdirc.parser.interfaces.Parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MessageEncoderTest {
+
+    private static final byte[] MESSAGE = "café".getBytes(StandardCharsets.UTF_8);
+
+    @Mock private Connection connection;
+    @Mock private Parser parser;
+    @Mock private WindowModel connectionWindow;
+    @Mock private AggregateConfigProvider connectionConfig;
+    @Mock private GroupChatManager groupChatManager;
+    @Mock private GroupChat channel;
+    @Mock private WindowModel channelWindow;
+    @Mock private AggregateConfigProvider channelConfig;
+    private MessageEncoder encoder;
+
+    @Before
+    public void setup() {
+        when(connection.getWindowModel()).thenReturn(connectionWindow);
+        when(connectionWindow.getConfigManager()).thenReturn(connectionConfig);
+        when(parser.getStringConverter()).thenReturn(new DefaultStringConverter());
+        encoder = new MessageEncoder(connection, parser);
+    }
+
+    @Test
+    public void testUsesConnectionEncoding() {
+        when(connectionConfig.getOption("general", "encoding")).thenReturn("UTF-8");
+        assertEquals("café", encoder.encode(null, null, MESSAGE, 0, MESSAGE.length));
+    }
+
+    @Test
+    public void testConnectionEncodingIsCached() {
+        when(connectionConfig.getOption("general", "encoding")).thenReturn("UTF-8");
+        encoder.encode(null, null, MESSAGE, 0, MESSAGE.length);
+        encoder.encode(null, null, MESSAGE, 0, MESSAGE.length);
+        verify(connectionConfig, times(1)).getOption("general", "encoding");
+    }
+
+    @Test
+    public void testConnectionEncodingChange() {
+        when(connectionConfig.getOption("general", "encoding")).thenReturn("UTF-8");
+        final ArgumentCaptor<ConfigChangeListener> listener =
+                ArgumentCaptor.forClass(ConfigChangeListener.class);
+        verify(connectionConfig).addChangeListener(
+                eq("general"), eq("encoding"),
+                listener.capture());
+
+        encoder.encode(null, null, MESSAGE, 0, MESSAGE.length);
+        when(connectionConfig.getOption("general", "encoding")).thenReturn("ISO-8859-1");
+        listener.getValue().configChanged("general", "encoding");
+
+        assertEquals("cafÃ©", encoder.encode(null, null, MESSAGE, 0, MESSAGE.length));
+    }
+
+    @Test
+    public void testUsesChannelEncoding() {
+        setupChannel();
+        assertEquals("cafÃ©",
+                encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length));
+    }
+
+    @Test
+    public void testChannelEncodingIsCached() {
+        setupChannel();
+        encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length);
+        encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length);
+        verify(parser, times(1)).isValidChannelName("#channel");
+        verify(channelConfig, times(1)).getOption("general", "encoding");
+    }
+
+    @Test
+    public void testChannelEncodingChange() {
+        setupChannel();
+        encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length);
+
+        final ArgumentCaptor<ConfigChangeListener> listener =
+                ArgumentCaptor.forClass(ConfigChangeListener.class);
+        verify(channelConfig).addChangeListener(
+                eq("general"), eq("encoding"),
+                listener.capture());
+        when(channelConfig.getOption("general", "encoding")).thenReturn("UTF-8");
+        listener.getValue().configChanged("general", "encoding");
+
+        assertEquals("café", encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length));
+    }
+
+    @Test
+    public void testChannelEncodingIsCachedCaseInsensitively() {
+        setupChannel();
+        encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length);
+        assertEquals("cafÃ©",
+                encoder.encode(null, "#CHANNEL", MESSAGE, 0, MESSAGE.length));
+        verify(parser, never()).isValidChannelName("#CHANNEL");
+        verify(channelConfig, times(1)).addChangeListener(
+                eq("general"), eq("encoding"), any(ConfigChangeListener.class));
+    }
+
+    @Test
+    public void testCloseRemovesListeners() {
+        setupChannel();
+        encoder.encode(null, "#channel", MESSAGE, 0, MESSAGE.length);
+
+        final ArgumentCaptor<ConfigChangeListener> connectionListener =
+                ArgumentCaptor.forClass(ConfigChangeListener.class);
+        verify(connectionConfig).addChangeListener(
+                eq("general"), eq("encoding"), connectionListener.capture());
+        final ArgumentCaptor<ConfigChangeListener> channelListener =
+                ArgumentCaptor.forClass(ConfigChangeListener.class);
+        verify(channelConfig).addChangeListener(
+                eq("general"), eq("encoding"), channelListener.capture());
+
+        encoder.close();
+
+        verify(connectionConfig).removeListener(connectionListener.getValue());
+        verify(channelConfig).removeListener(channelListener.getValue());
+    }
+
+    @Test
+    public void testReconnectDoesNotGrowListeners() {
+        setupChannel();
+        final Set<ConfigChangeListener> connectionListeners = trackListeners(connectionConfig);
+        final Set<ConfigChangeListener> channelListeners = trackListeners(channelConfig);
+
+        for (int i = 0; i < 3; i++) {
+            // Each connection attempt gets a new encoder, which is closed on disconnect.
+            final MessageEncoder reconnected = new MessageEncoder(connection, parser);
+            reconnected.encode(null, "#channel", MESSAGE, 0, MESSAGE.length);
+            assertEquals(1, connectionListeners.size());
+            assertEquals(1, channelListeners.size());
+            reconnected.close();
+        }
+
+        assertEquals(0, connectionListeners.size());
+        assertEquals(0, channelListeners.size());
+    }
+
+    private Set<ConfigChangeListener> trackListeners(final AggregateConfigProvider config) {
+        final Set<ConfigChangeListener> listeners = new HashSet<>();
+        doAnswer(i -> listeners.add(i.getArgument(2))).when(config).addChangeListener(
+                eq("general"), eq("encoding"), any(ConfigChangeListener.class));
+        doAnswer(i -> listeners.remove(i.getArgument(0))).when(config).removeListener(
+                any(ConfigChangeListener.class));
+        return listeners;
+    }
+
+    private void setupChannel() {
+        when(parser.isValidChannelName("#channel")).thenReturn(true);
+        when(connection.getGroupChatManager()).thenReturn(groupChatManager);
+        when(groupChatManager.getChannel("#channel")).thenReturn(Optional.of(channel));
+        when(channel.getWindowModel()).thenReturn(channelWindow);
+        when(channel.isOnChannel()).thenReturn(true);
+        when(channelWindow.getConfigManager()).thenReturn(channelConfig);
+        when(channelConfig.getOption("general", "encoding")).thenReturn("ISO-8859-1");
+    }
+
+}
@@ -31,6 +31,7 @@ import com.dmdirc.config.provider.ConfigProviderMigrator;
 import com.dmdirc.interfaces.config.IdentityFactory;
 import com.dmdirc.parser.common.ChannelJoinRequest;
 import com.dmdirc.ui.WindowManager;
+import com.dmdirc.util.SharedScheduledExecutorService;
 import java.net.URI;
 import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
@@ -43,10 +44,13 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +68,8 @@ public class ServerManagerTest {
     @Mock private GroupChatManager groupChatManager;
     @Mock private EventBus eventBus;
     @Mock private Channel channel;
+    @Mock private SharedScheduledExecutorService scheduler;
+    @Mock private ScheduledExecutorService taskGroup;
 
     @Captor private ArgumentCaptor<URI> uriCaptor;
 
@@ -71,7 +77,9 @@ public class ServerManagerTest {
 
     @Before
     public void setUp() throws Exception {
-        serverManager = new ServerManager(profileManager, identityFactory, windowManager, serverFactoryImpl, eventBus);
+        when(scheduler.newTaskGroup()).thenReturn(taskGroup);
+        serverManager = new ServerManager(profileManager, identityFactory, windowManager,
+                serverFactoryImpl, eventBus, scheduler);
 
         when(server.getState()).thenReturn(ServerState.DISCONNECTED);
         when(server.getWindowModel()).thenReturn(windowModel);
@@ -206,4 +214,26 @@ public class ServerManagerTest {
         verify(windowManager).addWindow(windowModel);
     }
 
+    @Test
+    public void testDoesNotCreateServerForExistingConnection() {
+        final URI uri = URI.create("irc://server.example.com/#channel");
+        when(server.compareURI(uri)).thenReturn(true);
+        serverManager.registerServer(server);
+
+        assertSame(server, serverManager.connectToAddress(uri));
+        verify(serverFactoryImpl, never()).getServer(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testReusesServerCreatedForEquivalentUri() {
+        final URI uri = URI.create("irc://server.example.com/#channel");
+        final URI other = URI.create("IRC://Server.Example.com:6667/#other");
+        when(server.compareURI(other)).thenReturn(true);
+
+        serverManager.connectToAddress(uri);
+        assertSame(server, serverManager.connectToAddress(other));
+        verify(serverFactoryImpl, times(1)).getServer(any(), any(), any(), any());
+        assertEquals(1, serverManager.getConnectionCount());
+    }
+
 }
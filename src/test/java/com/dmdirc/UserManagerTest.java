@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc;
+
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.GroupChat;
+package com.dmdirc;
+
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.User;
+import com.dmdirc.parser.interfaces.ClientInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserManagerTest {
+
+    @Mock private UserFactory userFactory;
+    @Mock private Connection connection;
+    @Mock private ClientInfo client1;
+    @Mock private ClientInfo client2;
+    @Mock private ClientInfo client3;
+    private UserManager manager;
+
+    @Before
+    public void setup() {
+        when(userFactory.getUser(any(), any())).thenAnswer(i -> mock(User.class));
+        manager = new UserManager(userFactory, 2);
+    }
+
+    @Test
+    public void testUnretainedUsersAreBounded() {
+        final User user = manager.getUserFromClientInfo(client1, connection);
+        manager.getUserFromClientInfo(client2, connection);
+        manager.getUserFromClientInfo(client3, connection);
+
+        assertEquals(2, manager.getCacheSize());
+        assertNotSame(user, manager.getUserFromClientInfo(client1, connection));
+    }
+
+    @Test
+    public void testRecentlyUsedUnretainedUsersAreKept() {
+        final User user = manager.getUserFromClientInfo(client1, connection);
+        manager.getUserFromClientInfo(client2, connection);
+        manager.getUserFromClientInfo(client1, connection);
+        manager.getUserFromClientInfo(client3, connection);
+
+        assertSame(user, manager.getUserFromClientInfo(client1, connection));
+    }
+
+    @Test
+    public void testRetainedUsersAreNotBounded() {
+        manager.retainUser(client1, connection);
+        final User user = manager.getUserFromClientInfo(client1, connection);
+        manager.getUserFromClientInfo(client2, connection);
+        manager.getUserFromClientInfo(client3, connection);
+
+        assertEquals(3, manager.getCacheSize());
+        assertSame(user, manager.getUserFromClientInfo(client1, connection));
+    }
+
+    @Test
+    public void testUsersRetainedAfterLookupAreNotEvicted() {
+        final User user = manager.getUserFromClientInfo(client1, connection);
+        manager.retainUser(client1, connection);
+        manager.getUserFromClientInfo(client2, connection);
+        manager.getUserFromClientInfo(client3, connection);
+
+        assertSame(user, manager.getUserFromClientInfo(client1, connection));
+    }
+
+}
@@ -25,15 +25,13 @@ package com.dmdirc;
 import com.dmdirc.commandparser.CommandManager;
 import com.dmdirc.config.binding.ConfigBinder;
 import com.dmdirc.harness.TestWritableFrameContainer;
-import com.dmdirc.interfaces.ConnectionManager;
 import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.ui.input.TabCompleterFactory;
 import com.dmdirc.ui.messages.BackBufferFactory;
 
 import java.util.Arrays;
 
-import javax.inject.Provider;
-
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -47,10 +45,9 @@ public class WritableFrameContainerTest {
 
     @Mock private AggregateConfigProvider acp;
     @Mock private ConfigBinder configBinder;
-    @Mock private ConnectionManager connectionManager;
     @Mock private EventBus eventBus;
     @Mock private BackBufferFactory backBufferFactory;
-    @Mock private Provider<GlobalWindow> globalWindowProvider;
+    @Mock private TabCompleterFactory tabCompleterFactory;
     private CommandManager commands;
 
     @Before
@@ -59,7 +56,7 @@ public class WritableFrameContainerTest {
         when(acp.getOption("general", "silencechar")).thenReturn(".");
         when(acp.getOption("general", "commandchar")).thenReturn("/");
         when(acp.getBinder()).thenReturn(configBinder);
-        commands = new CommandManager(connectionManager, globalWindowProvider);
+        commands = new CommandManager(tabCompleterFactory);
     }
 
     // TODO: Move this test to DefaultInputModel.
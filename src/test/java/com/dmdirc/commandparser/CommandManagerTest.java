@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.commandparser;
+
+import com.dmdirc.commandparser.commands.Command;
+import com.dmdirc.ui.input.TabCompleterFactory;
+
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CommandManagerTest {
+
+    @Mock private TabCompleterFactory tabCompleterFactory;
+    @Mock private Command command;
+    private CommandInfo info;
+    private CommandManager manager;
+
+    @Before
+    public void setUp() {
+        info = new BaseCommandInfo("Test", "help", CommandType.TYPE_CHANNEL);
+        manager = new CommandManager(tabCompleterFactory);
+    }
+
+    @Test
+    public void testGetCommandIsCaseInsensitive() {
+        manager.registerCommand(command, info);
+        final Map.Entry<CommandInfo, Command> entry =
+                manager.getCommand(CommandType.TYPE_CHANNEL, "tEsT");
+        assertSame(info, entry.getKey());
+        assertSame(command, entry.getValue());
+    }
+
+    @Test
+    public void testGetCommandWithoutType() {
+        manager.registerCommand(command, info);
+        assertSame(info, manager.getCommand("test").getKey());
+    }
+
+    @Test
+    public void testGetCommandWithWrongType() {
+        manager.registerCommand(command, info);
+        assertNull(manager.getCommand(CommandType.TYPE_SERVER, "test"));
+    }
+
+    @Test
+    public void testGetCommandWithNullName() {
+        manager.registerCommand(command, info);
+        assertNull(manager.getCommand(CommandType.TYPE_CHANNEL, null));
+        assertNull(manager.getCommand(null));
+    }
+
+    @Test
+    public void testGetCommandIsLocaleIndependent() {
+        final Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            final CommandInfo quit = new BaseCommandInfo("QUIT", "help", CommandType.TYPE_CHANNEL);
+            manager.registerCommand(command, quit);
+            assertSame(quit, manager.getCommand(CommandType.TYPE_CHANNEL, "quit").getKey());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void testUnregisterCommand() {
+        manager.registerCommand(command, info);
+        manager.unregisterCommand(info);
+        assertNull(manager.getCommand("test"));
+        assertTrue(manager.getCommands(CommandType.TYPE_CHANNEL).isEmpty());
+    }
+
+    @Test
+    public void testIsChannelCommand() {
+        assertFalse(manager.isChannelCommand("test"));
+        manager.registerCommand(command, info);
+        assertTrue(manager.isChannelCommand("test"));
+    }
+
+    @Test
+    public void testGetCommandsByType() {
+        manager.registerCommand(command, info);
+        assertEquals(1, manager.getCommands(CommandType.TYPE_CHANNEL).size());
+        assertEquals(1, manager.getCommands(null).size());
+        assertTrue(manager.getCommands(CommandType.TYPE_GLOBAL).isEmpty());
+    }
+
+    @Test
+    public void testRegisterAddsTabCompletions() {
+        manager.registerCommand(command, info);
+        verify(tabCompleterFactory).addCommandName(CommandType.TYPE_CHANNEL, "\0Test");
+    }
+
+    @Test
+    public void testUnregisterRemovesTabCompletions() {
+        manager.registerCommand(command, info);
+        manager.unregisterCommand(info);
+        verify(tabCompleterFactory).removeCommandName(CommandType.TYPE_CHANNEL, "\0Test");
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.dmdirc.commandparser.commands.global;
+
+import com.dmdirc.commandparser.CommandArguments;
+import com.dmdirc.commandparser.commands.context.CommandContext;
+import com.dmdirc.events.CommandErrorEvent;
+import com.dmdirc.events.CommandOutputEvent;
+import com.dmdirc.events.eventbus.EventBus;
+import com.dmdirc.interfaces.CommandController;
+import com.dmdirc.interfaces.WindowModel;
+import com.dmdirc.util.ClientMetrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetricsTest {
+
+    @Mock private CommandController controller;
+    @Mock private WindowModel tiw;
+    @Mock private EventBus eventbus;
+    @Captor private ArgumentCaptor<CommandOutputEvent> outputEventCaptor;
+    private ClientMetrics metrics;
+    private Metrics command;
+
+    @Before
+    public void setUp() {
+        when(tiw.getEventBus()).thenReturn(eventbus);
+        metrics = new ClientMetrics();
+        command = new Metrics(controller, metrics);
+    }
+
+    @Test
+    public void testShowsGauges() {
+        metrics.registerGauge("eventbus.queue.depth", () -> 42L);
+        command.execute(tiw, new CommandArguments(controller, "/metrics"),
+                new CommandContext(null, Metrics.INFO));
+        verify(eventbus).publishAsync(outputEventCaptor.capture());
+        assertTrue(outputEventCaptor.getValue().getMessage()
+                .matches("(?s).*eventbus\\.queue\\.depth +42.*"));
+    }
+
+    @Test
+    public void testShowsLookups() {
+        metrics.getConfigLookups().increment("ui", "foreground");
+        command.execute(tiw, new CommandArguments(controller, "/metrics lookups"),
+                new CommandContext(null, Metrics.INFO));
+        verify(eventbus).publishAsync(outputEventCaptor.capture());
+        assertTrue(outputEventCaptor.getValue().getMessage()
+                .matches("(?s).*ui\\.foreground +1.*"));
+    }
+
+    @Test
+    public void testDisablesLookups() {
+        command.execute(tiw, new CommandArguments(controller, "/metrics lookups off"),
+                new CommandContext(null, Metrics.INFO));
+        assertFalse(metrics.getConfigLookups().isEnabled());
+    }
+
+    @Test
+    public void testResetsLookups() {
+        metrics.getConfigLookups().increment("ui", "foreground");
+        command.execute(tiw, new CommandArguments(controller, "/metrics lookups reset"),
+                new CommandContext(null, Metrics.INFO));
+        assertEquals(0, metrics.getConfigLookups().getCount("ui", "foreground"));
+    }
+
+    @Test
+    public void testUsageWithUnknownArgument() {
+        command.execute(tiw, new CommandArguments(controller, "/metrics foo"),
+                new CommandContext(null, Metrics.INFO));
+        verify(eventbus).publishAsync(isA(CommandErrorEvent.class));
+    }
+
+}
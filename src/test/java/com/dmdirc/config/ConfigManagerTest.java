@@ -23,44 +23,60 @@
 package com.dmdirc.config;
 
 import com.dmdirc.config.provider.ConfigChangeListener;
+import com.dmdirc.util.CounterRegistry;
+import com.dmdirc.util.validators.NumericalValidator;
 import com.dmdirc.util.validators.PermissiveValidator;
+import com.google.common.collect.Sets;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ConfigManagerTest {
 
     @Mock private IdentityManager identityManager;
+    private final CounterRegistry stats = new CounterRegistry(true);
 
     @Test
     public void testNonExistantOption() {
-        assertNull(new ConfigManager(identityManager, "", "", "", "")
+        assertNull(new ConfigManager(identityManager, stats, "", "", "", "")
                 .getOption("unit-test123", "foobar"));
     }
 
     @Test
     public void testStats() {
-        final ConfigManager cm = new ConfigManager(identityManager, "", "", "", "");
-        assertNull(ConfigManager.getStats().get("unit-test123.baz"));
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
+        assertEquals(0, cm.getStats().getCount("unit-test123", "baz"));
         cm.hasOption("unit-test123", "baz", new PermissiveValidator<>());
-        assertNotNull(ConfigManager.getStats().get("unit-test123.baz"));
-        assertEquals(1, (int) ConfigManager.getStats().get("unit-test123.baz"));
+        assertEquals(1, cm.getStats().getCount("unit-test123", "baz"));
+        assertEquals(1L, (long) cm.getStats().getCounts().get("unit-test123.baz"));
+    }
+
+    @Test
+    public void testStatsDisabled() {
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
+        stats.setEnabled(false);
+        cm.hasOption("unit-test123", "qux", new PermissiveValidator<>());
+        assertEquals(0, cm.getStats().getCount("unit-test123", "qux"));
     }
 
     @Test
     public void testDomainListener() {
         final ConfigChangeListener listener = mock(ConfigChangeListener.class);
-        final ConfigManager cm = new ConfigManager(identityManager, "", "", "", "");
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
         cm.addChangeListener("unit-test", listener);
 
         cm.configChanged("foo", "bar");
@@ -73,7 +89,7 @@ public class ConfigManagerTest {
     @Test
     public void testDomainKeyListener() {
         final ConfigChangeListener listener = mock(ConfigChangeListener.class);
-        final ConfigManager cm = new ConfigManager(identityManager, "", "", "", "");
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
         cm.addChangeListener("unit-test", "foo", listener);
 
         cm.configChanged("foo", "bar");
@@ -86,4 +102,75 @@ public class ConfigManagerTest {
         verify(listener).configChanged("unit-test", "foo");
     }
 
+    @Test
+    public void testOptionsFromSources() {
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
+        cm.checkIdentity(getProvider("bar"));
+
+        assertEquals("bar", cm.getOption("unit-test", "foo"));
+        assertFalse(cm.hasOption("unit-test", "foo", new NumericalValidator(0, 100)));
+        assertNull(cm.getOption("unit-test", "foo", new NumericalValidator(0, 100)));
+    }
+
+    @Test
+    public void testOptionsUpdatedWhenSourceChanges() {
+        final ConfigChangeListener listener = mock(ConfigChangeListener.class);
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
+        final ConfigFileBackedConfigProvider provider = getProvider("bar");
+        cm.checkIdentity(provider);
+        cm.addChangeListener("unit-test", "foo", listener);
+
+        when(provider.getOption("unit-test", "foo")).thenReturn("baz");
+        cm.configChanged("unit-test", "foo");
+
+        assertEquals("baz", cm.getOption("unit-test", "foo"));
+        verify(listener).configChanged("unit-test", "foo");
+    }
+
+    @Test
+    public void testOptionsRemovedWithSource() {
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
+        final ConfigFileBackedConfigProvider provider = getProvider("bar");
+        cm.checkIdentity(provider);
+        cm.removeIdentity(provider);
+
+        assertNull(cm.getOption("unit-test", "foo"));
+    }
+
+    @Test
+    public void testOnlyAffectedDomainsRebuiltWhenSourcesChange() {
+        final ConfigManager cm = new ConfigManager(identityManager, stats, "", "", "", "");
+        final ConfigFileBackedConfigProvider provider = getProvider("bar");
+        final ConfigFileBackedConfigProvider other = getProvider("other-domain", "baz");
+        cm.checkIdentity(provider);
+        clearInvocations(provider);
+
+        cm.checkIdentity(other);
+        assertEquals("baz", cm.getOption("other-domain", "foo"));
+        cm.removeIdentity(other);
+
+        assertEquals("bar", cm.getOption("unit-test", "foo"));
+        assertNull(cm.getOption("other-domain", "foo"));
+        verify(provider, never()).getOptions("unit-test");
+    }
+
+    private ConfigFileBackedConfigProvider getProvider(final String value) {
+        return getProvider("unit-test", value);
+    }
+
+    private ConfigFileBackedConfigProvider getProvider(final String domain, final String value) {
+        final ConfigTarget target = new ConfigTarget();
+        target.setGlobal();
+
+        final Map<String, String> options = new HashMap<>();
+        options.put("foo", value);
+
+        final ConfigFileBackedConfigProvider provider = mock(ConfigFileBackedConfigProvider.class);
+        when(provider.getTarget()).thenReturn(target);
+        when(provider.getDomains()).thenReturn(Sets.newHashSet(domain));
+        when(provider.getOptions(domain)).thenReturn(options);
+        when(provider.hasOptionString(domain, "foo")).thenReturn(true);
+        return provider;
+    }
+
 }
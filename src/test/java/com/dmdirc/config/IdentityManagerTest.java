@@ -24,6 +24,7 @@ package com.dmdirc.config;
 
 import com.dmdirc.config.provider.ConfigProvider;
 import com.dmdirc.tests.JimFsRule;
+import com.dmdirc.util.CounterRegistry;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
@@ -52,7 +53,8 @@ public class IdentityManagerTest {
 
     @Test
     public void testLoadsVersionIdentity() throws InvalidIdentityFileException {
-        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory);
+        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory,
+                new CounterRegistry(true));
         identityManager.initialise();
 
         final ConfigFileBackedConfigProvider versionSettings =
@@ -64,7 +66,8 @@ public class IdentityManagerTest {
 
     @Test
     public void testUsesSystemUsernameForProfileNickname() throws InvalidIdentityFileException {
-        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory);
+        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory,
+                new CounterRegistry(true));
         identityManager.initialise();
 
         System.setProperty("user.name", "Awesome User");
@@ -78,7 +81,8 @@ public class IdentityManagerTest {
         Files.copy(getClass().getResourceAsStream("profile-new"),
                 identitiesDirectory.resolve("profile"));
 
-        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory);
+        final IdentityManager identityManager = new IdentityManager(baseDirectory, identitiesDirectory,
+                new CounterRegistry(true));
         identityManager.initialise();
 
         final Collection<ConfigProvider> profiles = identityManager.getProvidersByType("profile");
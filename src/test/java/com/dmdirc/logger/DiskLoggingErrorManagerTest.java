@@ -23,6 +23,7 @@
 package com.dmdirc.logger;
 
 import com.dmdirc.config.binding.ConfigBinder;
+import com.dmdirc.events.ClientClosedEvent;
 import com.dmdirc.events.ProgramErrorEvent;
 import com.dmdirc.events.eventbus.EventBus;
 import com.dmdirc.config.provider.AggregateConfigProvider;
@@ -40,6 +41,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.verify;
@@ -90,6 +92,7 @@ public class DiskLoggingErrorManagerTest {
         final String logName = error.getTimestamp() + "-" + error.getError().getLevel() + ".log";
         assertFalse(Files.exists(jimFsRule.getPath("/errors", logName)));
         instance.handleErrorEvent(error);
+        instance.flush();
         final Path errorPath = jimFsRule.getPath("/errors", logName);
         assertTrue(Files.exists(errorPath));
         assertTrue(Files.readAllLines(errorPath).contains("Level: Medium"));
@@ -102,9 +105,31 @@ public class DiskLoggingErrorManagerTest {
         final String logName = error.getTimestamp() + "-" + error.getError().getLevel() + ".log";
         assertFalse(Files.exists(jimFsRule.getPath("/errors", logName)));
         instance.handleErrorEvent(error);
+        instance.flush();
         assertFalse(Files.exists(jimFsRule.getPath("/errors", logName)));
     }
 
+    @Test
+    public void testQueuedErrorsWrittenOnClose() throws Exception {
+        instance.initialise(config);
+        instance.handleLoggingSetting(true);
+        final String logName = error.getTimestamp() + "-" + error.getError().getLevel() + ".log";
+        instance.handleErrorEvent(error);
+        instance.handleClientClosed(new ClientClosedEvent());
+        assertTrue(Files.exists(jimFsRule.getPath("/errors", logName)));
+    }
+
+    @Test
+    public void testErrorsDroppedAfterClose() throws Exception {
+        instance.initialise(config);
+        instance.handleLoggingSetting(true);
+        final String logName = error.getTimestamp() + "-" + error.getError().getLevel() + ".log";
+        instance.handleClientClosed(new ClientClosedEvent());
+        instance.handleErrorEvent(error);
+        assertFalse(Files.exists(jimFsRule.getPath("/errors", logName)));
+        assertEquals(1, instance.getDroppedCount());
+    }
+
     @Test
     public void testHandledErrorWriting() throws Exception {
         // TODO: Test error condition on write
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.logger;
+
+import com.dmdirc.config.binding.ConfigBinder;
+import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.events.NonFatalProgramErrorEvent;
+import com.dmdirc.events.ProgramErrorDeletedEvent;
+import com.dmdirc.events.ProgramErrorStatusEvent;
+import com.dmdirc.events.eventbus.EventBus;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.time.LocalDateTime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ProgramErrorManagerTest {
+
+    @Mock private EventBus eventBus;
+    @Mock private AggregateConfigProvider config;
+    @Mock private ConfigBinder configBinder;
+    @Mock private ProgramErrorFactory programErrorFactory;
+    @Mock private ILoggingEvent loggingEvent;
+    private ProgramErrorManager instance;
+
+    @Before
+    public void setUp() {
+        when(config.getBinder()).thenReturn(configBinder);
+        instance = new ProgramErrorManager(eventBus, programErrorFactory);
+    }
+
+    @Test
+    public void testInitialiseBindsConfig() {
+        instance.initialise(config);
+        verify(configBinder).bind(instance, ProgramErrorManager.class);
+        verify(eventBus).subscribe(instance);
+    }
+
+    @Test
+    public void testRepeatedErrorsAreCounted() {
+        final Exception exception = new IllegalStateException("test");
+        final ProgramError first = createError("message", exception);
+        final ProgramError second = createError("message", exception);
+        assertSame(first, instance.addError(first));
+        assertSame(first, instance.addError(second));
+        assertEquals(1, instance.getErrors().size());
+        assertEquals(2, first.getOccurrences());
+    }
+
+    @Test
+    public void testDifferentErrorsAreKept() {
+        final ProgramError first = createError("message 1", null);
+        final ProgramError second = createError("message 2", null);
+        instance.addError(first);
+        instance.addError(second);
+        assertEquals(2, instance.getErrors().size());
+    }
+
+    @Test
+    public void testLeastRecentErrorIsEvicted() {
+        instance.handleMaxErrorsSetting(2);
+        final ProgramError first = createError("message 1", null);
+        final ProgramError second = createError("message 2", null);
+        final ProgramError third = createError("message 3", null);
+        instance.addError(first);
+        instance.addError(second);
+        instance.addError(createError("message 1", null));
+        instance.addError(third);
+        assertEquals(2, instance.getErrors().size());
+        assertTrue(instance.getErrors().contains(first));
+        assertFalse(instance.getErrors().contains(second));
+        verify(eventBus).publishAsync(any(ProgramErrorDeletedEvent.class));
+    }
+
+    @Test
+    public void testLoweringLimitEvictsErrors() {
+        final ProgramError first = createError("message 1", null);
+        final ProgramError second = createError("message 2", null);
+        final ProgramError third = createError("message 3", null);
+        instance.addError(first);
+        instance.addError(second);
+        instance.addError(third);
+
+        instance.handleMaxErrorsSetting(1);
+
+        assertEquals(1, instance.getErrors().size());
+        assertTrue(instance.getErrors().contains(third));
+        verify(eventBus, times(2)).publishAsync(any(ProgramErrorDeletedEvent.class));
+    }
+
+    @Test
+    public void testDeleteError() {
+        final ProgramError error = createError("message", null);
+        instance.addError(error);
+        instance.deleteError(error);
+        assertTrue(instance.getErrors().isEmpty());
+    }
+
+    @Test
+    public void testRepeatedErrorsRaiseStatusEvents() {
+        when(loggingEvent.getLevel()).thenReturn(Level.WARN);
+        when(loggingEvent.getFormattedMessage()).thenReturn("message");
+        when(programErrorFactory.create(any(), anyString(), any(), any(), anyBoolean()))
+                .thenAnswer(i -> createError("message", null));
+
+        instance.handle(loggingEvent);
+        instance.handle(loggingEvent);
+
+        verify(eventBus).publish(any(NonFatalProgramErrorEvent.class));
+        verify(eventBus).publishAsync(any(ProgramErrorStatusEvent.class));
+    }
+
+    @Test
+    public void testStatusEventsAreCoalescedUntilDelivered() {
+        when(loggingEvent.getLevel()).thenReturn(Level.WARN);
+        when(loggingEvent.getFormattedMessage()).thenReturn("message");
+        when(programErrorFactory.create(any(), anyString(), any(), any(), anyBoolean()))
+                .thenAnswer(i -> createError("message", null));
+
+        instance.handle(loggingEvent);
+        instance.handle(loggingEvent);
+        instance.handle(loggingEvent);
+        verify(eventBus).publishAsync(any(ProgramErrorStatusEvent.class));
+
+        instance.handleErrorStatusChanged(new ProgramErrorStatusEvent(
+                instance.getErrors().iterator().next()));
+        instance.handle(loggingEvent);
+        verify(eventBus, times(2)).publishAsync(any(ProgramErrorStatusEvent.class));
+        assertEquals(4, instance.getErrors().iterator().next().getOccurrences());
+    }
+
+    private ProgramError createError(final String message, final Throwable throwable) {
+        return new ProgramError(ErrorLevel.MEDIUM, message, throwable, LocalDateTime.now(),
+                null, false);
+    }
+
+}
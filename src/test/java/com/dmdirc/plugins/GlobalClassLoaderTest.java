@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.plugins;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GlobalClassLoaderTest {
+
+    private static final String CLASS_NAME = "com.example.plugin.Missing";
+
+    @Mock private PluginInfo pluginInfo;
+    @Mock private PluginClassLoader pluginClassLoader;
+    private GlobalClassLoader instance;
+
+    @Before
+    public void setUp() throws ClassNotFoundException {
+        when(pluginInfo.getClassList()).thenReturn(Collections.singletonList(CLASS_NAME));
+        when(pluginInfo.getPluginClassLoader()).thenReturn(pluginClassLoader);
+        when(pluginClassLoader.loadClass(CLASS_NAME, false)).then(i -> Object.class);
+        instance = new GlobalClassLoader();
+    }
+
+    @Test
+    public void testLoadsParentClasses() throws ClassNotFoundException {
+        assertSame(String.class, instance.loadClass("java.lang.String"));
+    }
+
+    @Test
+    public void testLoadsIndexedPluginClass() throws ClassNotFoundException {
+        instance.addPlugin(pluginInfo);
+        assertSame(Object.class, instance.loadClass(CLASS_NAME));
+        verify(pluginClassLoader).loadClass(CLASS_NAME, false);
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void testUnindexedClassNotFound() throws ClassNotFoundException {
+        instance.loadClass(CLASS_NAME);
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void testRemovedPluginClassNotFound() throws ClassNotFoundException {
+        instance.addPlugin(pluginInfo);
+        instance.removePlugin(pluginInfo);
+        instance.loadClass(CLASS_NAME);
+    }
+
+    @Test
+    public void testRepeatedMissesStillFindPluginClass() throws ClassNotFoundException {
+        try {
+            instance.loadClass(CLASS_NAME);
+        } catch (ClassNotFoundException ex) {
+            // Expected: the plugin hasn't been indexed yet.
+        }
+        instance.addPlugin(pluginInfo);
+        assertSame(Object.class, instance.loadClass(CLASS_NAME));
+    }
+
+}
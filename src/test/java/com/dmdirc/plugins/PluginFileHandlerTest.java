@@ -27,6 +27,7 @@ import com.dmdirc.tests.JimFsRule;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -35,7 +36,10 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -83,4 +87,42 @@ public class PluginFileHandlerTest {
         assertTrue(Files.size(directory.resolve("plugin.jar")) > 0);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testReusesMetaDataForUnchangedJar() throws IOException {
+        final Path jar = copyPlugin();
+
+        final PluginMetaData metaData = fileHandler.getMetaData(jar, pluginManager);
+
+        assertSame(metaData, fileHandler.getMetaData(jar, pluginManager));
+    }
+
+    @Test
+    public void testRereadsMetaDataForTouchedJar() throws IOException {
+        final Path jar = copyPlugin();
+        final PluginMetaData metaData = fileHandler.getMetaData(jar, pluginManager);
+
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(
+                Files.getLastModifiedTime(jar).toMillis() + 60000));
+
+        assertNotSame(metaData, fileHandler.getMetaData(jar, pluginManager));
+    }
+
+    @Test
+    public void testEvictsMetaDataForRemovedJar() throws IOException {
+        copyPlugin();
+        fileHandler.refresh(pluginManager);
+        assertEquals(1, fileHandler.getCacheSize());
+
+        Files.delete(directory.resolve("plugin.jar"));
+        fileHandler.refresh(pluginManager);
+
+        assertEquals(0, fileHandler.getCacheSize());
+    }
+
+    private Path copyPlugin() throws IOException {
+        final Path jar = directory.resolve("plugin.jar").toAbsolutePath();
+        Files.copy(getClass().getResource("plugin.jar").openStream(), jar);
+        return jar;
+    }
+
+}
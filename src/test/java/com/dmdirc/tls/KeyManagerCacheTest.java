@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.tls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.KeyManager;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link KeyManagerCache}.
+ *
+ * <p>These tests use a PKCS12 file containing a single client certificate. It was generated
+ * using:
+ *
+ * <pre>
+ * keytool -J-Dkeystore.pkcs12.legacy -genkeypair -keyalg RSA -keysize 2048 -validity 18250 -storetype pkcs12 -keystore "clientcert.p12" -storepass "dmdirc" -keypass "dmdirc" -alias "client" -dname "CN=Client, O=DMDirc, C=GB"
+ * </pre>
+ */
+public class KeyManagerCacheTest {
+
+    private static final char[] PASSWORD = "dmdirc".toCharArray();
+
+    @Rule
+    public TemporaryFolder tempFolderRule = new TemporaryFolder();
+
+    private Path certPath;
+    private KeyManagerCache cache;
+
+    @Before
+    public void setup() throws IOException {
+        certPath = tempFolderRule.getRoot().toPath().resolve("clientcert.p12");
+        try (InputStream is = getClass().getResourceAsStream("clientcert.p12")) {
+            Files.copy(is, certPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        cache = new KeyManagerCache();
+    }
+
+    @Test
+    public void testReusesKeyManagersForUnchangedFile()
+            throws IOException, GeneralSecurityException {
+        final KeyManager[] first = cache.getKeyManagers(certPath, PASSWORD);
+        final KeyManager[] second = cache.getKeyManagers(certPath, PASSWORD);
+        assertNotSame(first, second);
+        assertSame(first[0], second[0]);
+    }
+
+    @Test
+    public void testReloadsModifiedFile() throws IOException, GeneralSecurityException {
+        final KeyManager[] first = cache.getKeyManagers(certPath, PASSWORD);
+        Files.setLastModifiedTime(certPath, FileTime.fromMillis(
+                Files.getLastModifiedTime(certPath).toMillis() + 10000));
+        final KeyManager[] second = cache.getKeyManagers(certPath, PASSWORD);
+        assertNotSame(first[0], second[0]);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsChangedPassword() throws IOException, GeneralSecurityException {
+        cache.getKeyManagers(certPath, PASSWORD);
+        cache.getKeyManagers(certPath, "wrong".toCharArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException, GeneralSecurityException {
+        cache.getKeyManagers(certPath.resolveSibling("missing.p12"), PASSWORD);
+    }
+
+}
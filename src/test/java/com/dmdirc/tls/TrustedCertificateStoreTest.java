@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.tls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TrustedCertificateStoreTest {
+
+    private X509Certificate trusted;
+    private X509Certificate untrusted;
+    private AtomicInteger loads;
+    private TrustedCertificateStore store;
+
+    @Before
+    public void setup() throws GeneralSecurityException, IOException {
+        trusted = getCertificate("name_cn_only");
+        untrusted = getCertificate("name_cn_wildcard");
+        loads = new AtomicInteger();
+        store = new TrustedCertificateStore(() -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(trusted);
+        });
+    }
+
+    @Test
+    public void testLoadsLazilyAndOnce() {
+        assertEquals(0, loads.get());
+        store.find(trusted);
+        store.find(untrusted);
+        store.getCertificates();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testFindsTrustedCertificate() {
+        assertSame(trusted, store.find(trusted).get());
+    }
+
+    @Test
+    public void testDoesNotFindUntrustedCertificate() {
+        assertFalse(store.find(untrusted).isPresent());
+    }
+
+    @Test
+    public void testGetCertificates() {
+        assertArrayEquals(new X509Certificate[]{trusted}, store.getCertificates());
+    }
+
+    @Test
+    public void testVerifiedChains() {
+        assertFalse(store.isVerified("test.example.com", trusted));
+        store.setVerified("test.example.com", trusted);
+        assertTrue(store.isVerified("test.example.com", trusted));
+        assertTrue(store.isVerified("TEST.example.com", trusted));
+        assertFalse(store.isVerified("test.example.com", untrusted));
+        assertFalse(store.isVerified("test.example.com", trusted, untrusted));
+        assertFalse(store.isVerified("other.example.com", trusted));
+    }
+
+    @Test
+    public void testVerifiedChainReplacedForHost() {
+        store.setVerified("test.example.com", trusted);
+        store.setVerified("test.example.com", untrusted);
+        assertFalse(store.isVerified("test.example.com", trusted));
+        assertTrue(store.isVerified("test.example.com", untrusted));
+    }
+
+    private X509Certificate getCertificate(final String name) throws GeneralSecurityException, IOException {
+        try (InputStream is = getClass().getResourceAsStream("keystore.ks")) {
+            final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(is, "dmdirc".toCharArray());
+            return (X509Certificate) keyStore.getCertificate(name);
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.input;
+
+import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.parser.interfaces.StringConverter;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TabCompleterImplTest {
+
+    @Mock private AggregateConfigProvider configManager;
+    @Mock private StringConverter converter;
+    private TabCompleterImpl completer;
+
+    @Before
+    public void setup() {
+        completer = new TabCompleterImpl(configManager);
+        completer.addEntries(TabCompletionType.CHANNEL_NICK,
+                Arrays.asList("Alice", "alan", "Bob", "albert"));
+        completer.addEntry(TabCompletionType.COMMAND, "/alias");
+    }
+
+    @Test
+    public void testCaseInsensitivePrefixMatch() {
+        assertEquals(Arrays.asList("alan", "albert", "Alice"), completer.complete("al", null));
+    }
+
+    @Test
+    public void testCaseSensitivePrefixMatch() {
+        when(configManager.getOptionBool("tabcompletion", "casesensitive")).thenReturn(true);
+        assertEquals(Arrays.asList("alan", "albert"), completer.complete("al", null));
+    }
+
+    @Test
+    public void testEmptyPartialNotAllowed() {
+        assertTrue(completer.complete("", null).isEmpty());
+    }
+
+    @Test
+    public void testEmptyPartialAllowed() {
+        when(configManager.getOptionBool("tabcompletion", "allowempty")).thenReturn(true);
+        assertEquals(5, completer.complete("", null).size());
+    }
+
+    @Test
+    public void testRemoveEntry() {
+        completer.removeEntry(TabCompletionType.CHANNEL_NICK, "alan");
+        assertEquals(Arrays.asList("albert", "Alice"), completer.complete("al", null));
+    }
+
+    @Test
+    public void testDuplicateEntries() {
+        completer.addEntry(TabCompletionType.CHANNEL_NICK, "Bob");
+        completer.removeEntry(TabCompletionType.CHANNEL_NICK, "Bob");
+        assertEquals(Collections.singletonList("Bob"), completer.complete("b", null));
+    }
+
+    @Test
+    public void testClearType() {
+        completer.clear(TabCompletionType.CHANNEL_NICK);
+        assertEquals(Collections.singletonList("/alias"), completer.complete("/a", null));
+        assertTrue(completer.complete("a", null).isEmpty());
+    }
+
+    @Test
+    public void testAdditionalTargets() {
+        final AdditionalTabTargets additionals = new AdditionalTabTargets();
+        additionals.excludeAll();
+        additionals.add("alfred");
+        assertEquals(Collections.singletonList("alfred"), completer.complete("al", additionals));
+    }
+
+    @Test
+    public void testParentResultsAreMerged() {
+        final TabCompleterImpl child = new TabCompleterImpl(configManager, completer);
+        child.addEntry(TabCompletionType.CHANNEL_NICK, "alfred");
+        child.addEntry(TabCompletionType.CHANNEL_NICK, "alan");
+        assertEquals(Arrays.asList("alan", "alfred", "albert", "Alice"),
+                child.complete("al", null));
+    }
+
+    @Test
+    public void testUsesStringConverter() {
+        when(converter.toLowerCase(anyString())).thenAnswer(
+                i -> ((String) i.getArguments()[0]).toLowerCase().replace('[', '{'));
+        completer.addEntry(TabCompletionType.CHANNEL_NICK, "{foo}");
+        completer.setStringConverter(converter);
+        assertEquals(Collections.singletonList("{foo}"), completer.complete("[f", null));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingDocumentTest {
+
+    @Mock private Document document;
+    @Mock private StyledMessageMaker<String> maker;
+    @Mock private Line line1;
+    @Mock private Line line2;
+    private CachingDocument<String> instance;
+
+    @Before
+    public void setUp() {
+        when(document.getLine(0)).thenReturn(line1);
+        when(document.getLine(1)).thenReturn(line2);
+        when(line1.getStyled(maker)).thenReturn("line 1");
+        when(line2.getStyled(maker)).thenReturn("line 2");
+        instance = CachingDocument.create(document, maker);
+    }
+
+    @Test
+    public void testCreateRegistersAsListener() {
+        verify(document).addIRCDocumentListener(instance);
+    }
+
+    @Test
+    public void testConstructorDoesNotRegisterAsListener() {
+        final CachingDocument<String> unregistered = new CachingDocument<>(document, maker);
+        verify(document, never()).addIRCDocumentListener(unregistered);
+    }
+
+    @Test
+    public void testDisposeRemovesListener() {
+        instance.dispose();
+        verify(document).removeIRCDocumentListener(instance);
+    }
+
+    @Test
+    public void testDisposeClearsCache() {
+        instance.getStyledLine(0);
+        instance.dispose();
+        instance.getStyledLine(0);
+        verify(line1, times(2)).getStyled(maker);
+    }
+
+    @Test
+    public void testCachesStyledLines() {
+        assertEquals("line 1", instance.getStyledLine(0));
+        assertEquals("line 1", instance.getStyledLine(0));
+        verify(line1, times(1)).getStyled(maker);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        instance.setCacheSize(1);
+        instance.getStyledLine(0);
+        instance.getStyledLine(1);
+        instance.getStyledLine(0);
+        verify(line1, times(2)).getStyled(maker);
+    }
+
+    @Test
+    public void testTrimmedLinesAreRestyled() {
+        instance.getStyledLine(0);
+        when(document.getLineOffset()).thenReturn(1L);
+        when(document.getLine(0)).thenReturn(line2);
+        instance.trimmed(1, 1);
+        assertEquals("line 2", instance.getStyledLine(0));
+    }
+
+    @Test
+    public void testRepaintClearsCache() {
+        instance.getStyledLine(0);
+        instance.repaintNeeded();
+        instance.getStyledLine(0);
+        verify(line1, times(2)).getStyled(maker);
+    }
+
+    @Test
+    public void testClearClearsCache() {
+        instance.getStyledLine(0);
+        instance.cleared();
+        instance.getStyledLine(0);
+        verify(line1, times(2)).getStyled(maker);
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.events.DisplayLocation;
+import com.dmdirc.events.DisplayProperty;
+import com.dmdirc.events.DisplayPropertyMap;
+import com.dmdirc.events.DisplayableEvent;
+import com.dmdirc.events.eventbus.EventBus;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.WindowModel;
+
+import java.util.Optional;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DisplayableEventRouterTest {
+
+    @Mock private EventBus eventBus;
+    @Mock private EventFormatter formatter;
+    @Mock private EventFormatProvider formatProvider;
+    @Mock private Connection connection;
+    @Mock private Connection otherConnection;
+    @Mock private WindowModel window1;
+    @Mock private WindowModel window2;
+    @Mock private WindowModel window3;
+    @Mock private BackBufferImpl backBuffer1;
+    @Mock private BackBufferImpl backBuffer2;
+    @Mock private BackBufferImpl backBuffer3;
+    @Mock private UnreadStatusManagerImpl unreadStatusManager;
+    @Mock private DisplayableEvent event;
+    private DisplayableEventRouter router;
+
+    @Before
+    public void setup() {
+        when(window1.getConnection()).thenReturn(Optional.of(connection));
+        when(window2.getConnection()).thenReturn(Optional.of(connection));
+        when(window3.getConnection()).thenReturn(Optional.of(otherConnection));
+
+        router = new DisplayableEventRouter(eventBus, formatter);
+        router.addBackBuffer(window1, backBuffer1);
+        router.addBackBuffer(window2, backBuffer2);
+        router.addBackBuffer(window3, backBuffer3);
+    }
+
+    @Test
+    public void testSubscribesToEventBus() {
+        verify(eventBus).subscribe(router);
+    }
+
+    @Test
+    public void testRoutesToSourceByDefault() {
+        when(event.getSource()).thenReturn(window1);
+        when(formatter.getEventFormatProvider()).thenReturn(formatProvider);
+        when(formatProvider.getFormat(any())).thenReturn(Optional.empty());
+        router.routeToBackBuffers(event);
+        verify(backBuffer1).addEvent(event);
+        verify(backBuffer2, never()).addEvent(event);
+        verify(backBuffer3, never()).addEvent(event);
+    }
+
+    @Test
+    public void testRoutesToSameConnection() {
+        when(event.getSource()).thenReturn(window1);
+        setDisplayLocation(DisplayLocation.SAME_CONNECTION);
+        router.routeToBackBuffers(event);
+        verify(backBuffer1).addEvent(event);
+        verify(backBuffer2).addEvent(event);
+        verify(backBuffer3, never()).addEvent(event);
+    }
+
+    @Test
+    public void testRoutesCustomLocationsToAllMatchingWindows() {
+        setDisplayLocation((model, e) -> model != window2);
+        router.routeToBackBuffers(event);
+        verify(backBuffer1).addEvent(event);
+        verify(backBuffer2, never()).addEvent(event);
+        verify(backBuffer3).addEvent(event);
+    }
+
+    @Test
+    public void testDoesNotRouteToRemovedBackBuffers() {
+        when(event.getSource()).thenReturn(window1);
+        setDisplayLocation(DisplayLocation.SAME_CONNECTION);
+        router.removeBackBuffer(window2);
+        router.routeToBackBuffers(event);
+        verify(backBuffer1).addEvent(event);
+        verify(backBuffer2, never()).addEvent(event);
+    }
+
+    @Test
+    public void testDoesNotRouteHiddenEvents() {
+        when(event.hasDisplayProperty(DisplayProperty.DO_NOT_DISPLAY)).thenReturn(true);
+        router.routeToBackBuffers(event);
+        verify(backBuffer1, never()).addEvent(event);
+    }
+
+    @Test
+    public void testRoutesToUnreadStatusManagerOfSource() {
+        when(event.getSource()).thenReturn(window1);
+        router.addUnreadStatusManager(window1, unreadStatusManager);
+        router.routeToUnreadStatusManager(event);
+        verify(unreadStatusManager).handleEvent(event);
+    }
+
+    @Test
+    public void testDoesNotRouteToRemovedUnreadStatusManager() {
+        router.addUnreadStatusManager(window1, unreadStatusManager);
+        router.removeUnreadStatusManager(window1);
+        when(event.getSource()).thenReturn(window1);
+        router.routeToUnreadStatusManager(event);
+        verify(unreadStatusManager, never()).handleEvent(event);
+    }
+
+    private void setDisplayLocation(final DisplayLocation location) {
+        final DisplayPropertyMap properties = new DisplayPropertyMap();
+        properties.put(DisplayProperty.DISPLAY_LOCATION, location);
+        when(formatter.getEventFormatProvider()).thenReturn(formatProvider);
+        when(formatProvider.getFormat(any())).thenReturn(Optional.of(EventFormat.create("",
+                Optional.empty(), Optional.empty(), Optional.empty(), properties)));
+    }
+
+}
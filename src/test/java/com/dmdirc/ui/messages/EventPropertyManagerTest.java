@@ -66,6 +66,22 @@ public class EventPropertyManagerTest {
         assertSame(client, manager.getProperty(event, ChannelMessageEvent.class, "client").get());
     }
 
+    @Test
+    public void testGetsPropertiesFromDifferentInstancesOfSameClass() {
+        final ChannelMessageEvent event1 = new ChannelMessageEvent(channel, client, "first");
+        final ChannelMessageEvent event2 = new ChannelMessageEvent(channel, client, "second");
+
+        assertEquals("first", manager.getProperty(event1, ChannelMessageEvent.class, "message").get());
+        assertEquals("second", manager.getProperty(event2, ChannelMessageEvent.class, "message").get());
+    }
+
+    @Test
+    public void testNonExistantPropertiesAreRepeatable() {
+        assertFalse(manager.getProperty(new Object(), Object.class, "foobar").isPresent());
+        assertFalse(manager.getProperty(new Object(), Object.class, "foobar").isPresent());
+        assertFalse(manager.getProperty(new Object(), Object.class, "").isPresent());
+    }
+
     @Test
     public void testNonExistantProperties() {
         assertFalse(manager.getProperty(new Object(), Object.class, "foobar").isPresent());
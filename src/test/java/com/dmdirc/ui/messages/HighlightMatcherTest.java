@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HighlightMatcherTest {
+
+    @Test
+    public void testEmptyMatcherMatchesNothing() {
+        assertFalse(HighlightMatcher.EMPTY.matches("anything at all"));
+        assertFalse(new HighlightMatcher("").matches(" "));
+    }
+
+    @Test
+    public void testMatchesWholeMessage() {
+        assertTrue(new HighlightMatcher("nick").matches("nick"));
+    }
+
+    @Test
+    public void testMatchesIgnoringCase() {
+        assertTrue(new HighlightMatcher("DMDirc").matches("I like dmdirc"));
+    }
+
+    @Test
+    public void testMatchesBetweenPunctuation() {
+        assertTrue(new HighlightMatcher("nick").matches("Hi,nick!"));
+        assertTrue(new HighlightMatcher("nick").matches("<nick>"));
+    }
+
+    @Test
+    public void testDoesNotMatchWithinWords() {
+        assertFalse(new HighlightMatcher("nick").matches("nickname"));
+        assertFalse(new HighlightMatcher("nick").matches("unick"));
+    }
+
+    @Test
+    public void testMatchesLaterOccurrenceAfterPartOfWord() {
+        assertTrue(new HighlightMatcher("nick").matches("nickname nick"));
+    }
+
+    @Test
+    public void testMatchesOverlappingTerms() {
+        final HighlightMatcher matcher = new HighlightMatcher("she", "he", "hers");
+        assertTrue(matcher.matches("ushers he"));
+        assertTrue(matcher.matches("is it hers?"));
+        assertFalse(matcher.matches("ushers"));
+    }
+
+    @Test
+    public void testMatchesTermsContainingRegexCharacters() {
+        assertTrue(new HighlightMatcher("n[i]ck").matches("hi n[i]ck"));
+        assertFalse(new HighlightMatcher("n.ck").matches("hi nick"));
+    }
+
+}
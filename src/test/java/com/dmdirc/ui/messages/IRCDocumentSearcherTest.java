@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.ui.messages.IRCDocumentSearcher.SearchMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IRCDocumentSearcherTest {
+
+    @Mock private Document document;
+    private final List<Line> lines = new ArrayList<>();
+    private long offset;
+
+    @Before
+    public void setUp() {
+        when(document.getNumLines()).then(i -> lines.size());
+        when(document.getLine(anyInt())).then(i -> lines.get((Integer) i.getArguments()[0]));
+        when(document.getLineOffset()).then(i -> offset);
+    }
+
+    @Test
+    public void testSearchUpFindsLastMatch() {
+        addLines("foo bar", "nothing", "bar foo foo", "nothing");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        assertEquals(new LinePosition(2, 8, 2, 11).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testSearchUpFromPosition() {
+        addLines("foo bar", "nothing", "bar foo foo", "nothing");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        searcher.setPosition(searcher.searchUp());
+        assertEquals(new LinePosition(2, 4, 2, 7).toString(), searcher.searchUp().toString());
+        searcher.setPosition(new LinePosition(2, 4, 2, 7));
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testSearchDownWraps() {
+        addLines("foo bar", "nothing", "bar foo");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        searcher.setPosition(new LinePosition(2, 4, 2, 7));
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(), searcher.searchDown().toString());
+    }
+
+    @Test
+    public void testCaseSensitive() {
+        addLines("FOO", "nothing");
+        assertNull(new IRCDocumentSearcher("foo", document, true).searchUp());
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(),
+                new IRCDocumentSearcher("foo", document, false).searchUp().toString());
+    }
+
+    @Test
+    public void testLiteralSearchIgnoresRegexCharacters() {
+        addLines("a.c", "abc");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("a.c", document, false);
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testWholeWordMode() {
+        addLines("foo", "foobar");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false,
+                SearchMode.WHOLE_WORD);
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testRegexMode() {
+        addLines("abc", "nothing");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("a.c", document, false,
+                SearchMode.REGEX);
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testNewLinesAreIndexed() {
+        addLines("foo", "nothing");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        searcher.searchUp();
+        addLines("bar foo");
+        searcher.setPosition(new LinePosition(2, 8, 2, 8));
+        assertEquals(new LinePosition(2, 4, 2, 7).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testTrimmedLinesAreDiscarded() {
+        addLines("foo", "nothing", "foo", "nothing");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        searcher.searchUp();
+        lines.subList(0, 2).clear();
+        offset += 2;
+        searcher.setPosition(new LinePosition(0, 0, 0, 0));
+        assertNull(searcher.searchUp());
+    }
+
+    @Test
+    public void testTrimmedLinesAreDiscardedWithoutOffset() {
+        addLines("foo", "nothing", "foo", "nothing");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        searcher.searchUp();
+        lines.subList(0, 2).clear();
+        addLines("bar", "nothing");
+        searcher.setPosition(new LinePosition(4, 0, 4, 0));
+        assertEquals(new LinePosition(0, 0, 0, 3).toString(), searcher.searchUp().toString());
+    }
+
+    @Test
+    public void testNoMatches() {
+        addLines("nothing", "here");
+        final IRCDocumentSearcher searcher = new IRCDocumentSearcher("foo", document, false);
+        assertNull(searcher.searchUp());
+        assertNull(searcher.searchDown());
+    }
+
+    private void addLines(final String... texts) {
+        Arrays.stream(texts).forEach(text -> {
+            final Line line = mock(Line.class);
+            when(line.getText()).thenReturn(text);
+            when(line.getLength()).thenReturn(text.length());
+            lines.add(line);
+        });
+    }
+
+}
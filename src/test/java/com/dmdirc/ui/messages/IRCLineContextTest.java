@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.config.provider.AggregateConfigProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IRCLineContextTest {
+
+    @Mock private AggregateConfigProvider config;
+    @Mock private Styliser styliser;
+    private IRCLineContext context;
+
+    @Before
+    public void setUp() {
+        when(config.hasOptionString("formatter", "timestamp")).thenReturn(true);
+        when(config.getOption("formatter", "timestamp")).thenReturn("[%1$s] ");
+        context = new IRCLineContext(styliser, config);
+    }
+
+    @Test
+    public void testFormatsTimestampWithConfiguredFormat() {
+        assertEquals("[1000] ", context.formatTimestamp(1000L));
+    }
+
+    @Test
+    public void testFormatChangeIncrementsGeneration() {
+        final int generation = context.getTimestampGeneration();
+        context.timestampFormatChanged();
+        assertNotEquals(generation, context.getTimestampGeneration());
+    }
+
+    @Test
+    public void testReusesTimestampWithinSameSecond() {
+        when(config.getOption("formatter", "timestamp")).thenReturn("%1$tS");
+        context.timestampFormatChanged();
+        assertEquals("01", context.formatTimestamp(1000L));
+        when(config.getOption("formatter", "timestamp")).thenReturn("changed");
+        assertEquals("01", context.formatTimestamp(1999L));
+        assertEquals("changed", context.formatTimestamp(2000L));
+    }
+
+    @Test
+    public void testReformatsTimestampWhenFormatChanges() {
+        when(config.getOption("formatter", "timestamp")).thenReturn("%1$tS");
+        context.timestampFormatChanged();
+        assertEquals("01", context.formatTimestamp(1000L));
+        when(config.getOption("formatter", "timestamp")).thenReturn("changed");
+        context.timestampFormatChanged();
+        assertEquals("changed", context.formatTimestamp(1000L));
+    }
+
+    @Test
+    public void testDoesNotReuseTimestampWithSubSecondFormat() {
+        when(config.getOption("formatter", "timestamp")).thenReturn("%1$tS.%1$tL");
+        context.timestampFormatChanged();
+        assertEquals("01.000", context.formatTimestamp(1000L));
+        assertEquals("01.500", context.formatTimestamp(1500L));
+    }
+
+    @Test
+    public void testFontSettings() {
+        context.setFontName("Monospaced");
+        context.setFontSize(12);
+        assertEquals("Monospaced", context.getFontName());
+        assertEquals(12, context.getFontSize());
+    }
+
+}
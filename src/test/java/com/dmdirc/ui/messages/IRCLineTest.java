@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import com.dmdirc.events.DisplayProperty;
+import com.dmdirc.events.DisplayPropertyMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IRCLineTest {
+
+    @Mock private IRCLineContext context;
+    @Mock private Styliser styliser;
+    @Mock private StyledMessageMaker<String> maker;
+    private DisplayPropertyMap noTimestamps;
+
+    @Before
+    public void setUp() {
+        when(context.getStyliser()).thenReturn(styliser);
+        when(context.getStyleUtils()).thenReturn(new StyledMessageUtils());
+        when(context.formatTimestamp(1000L)).thenReturn("[12:00] ");
+        when(context.formatTimestamp(2000L)).thenReturn("[12:01] ");
+        noTimestamps = new DisplayPropertyMap();
+        noTimestamps.put(DisplayProperty.NO_TIMESTAMPS, true);
+    }
+
+    @Test
+    public void testIncludesTimestampInText() {
+        final IRCLine line = new IRCLine(context, 1000L, "\u0002Hello", DisplayPropertyMap.EMPTY);
+        assertEquals("[12:00] \u0002Hello", line.getStyledText());
+        assertEquals("[12:00] Hello", line.getText());
+        assertEquals(14, line.getLength());
+    }
+
+    @Test
+    public void testLengthIncludesTimestampWhenHidden() {
+        final IRCLine line = new IRCLine(context, 1000L, "Hello", noTimestamps);
+        assertEquals("[12:00] Hello", line.getStyledText());
+        assertEquals(13, line.getLength());
+    }
+
+    @Test
+    public void testUsesCurrentTimestampFormat() {
+        final IRCLine line = new IRCLine(context, 1000L, "Hello", DisplayPropertyMap.EMPTY);
+        line.getStyledText();
+        when(context.formatTimestamp(1000L)).thenReturn("12:00 ");
+        assertEquals("12:00 Hello", line.getStyledText());
+    }
+
+    @Test
+    public void testStylesTimestampAndText() {
+        new IRCLine(context, 1000L, "Hello", DisplayPropertyMap.EMPTY).getStyled(maker);
+        verify(styliser).addStyledString(maker, "[12:00] ", "Hello");
+    }
+
+    @Test
+    public void testStylesOnlyTextWhenTimestampHidden() {
+        new IRCLine(context, 1000L, "Hello", noTimestamps).getStyled(maker);
+        verify(styliser).addStyledString(maker, "Hello");
+    }
+
+    @Test
+    public void testEquality() {
+        final IRCLine line = new IRCLine(context, 1000L, "Hello", DisplayPropertyMap.EMPTY);
+        final IRCLine same = new IRCLine(context, 1000L, "Hello", DisplayPropertyMap.EMPTY);
+        assertEquals(line, same);
+        assertEquals(line.hashCode(), same.hashCode());
+        assertNotEquals(line, new IRCLine(context, 2000L, "Hello", DisplayPropertyMap.EMPTY));
+        assertNotEquals(line, new IRCLine(context, 1000L, "Bye", DisplayPropertyMap.EMPTY));
+    }
+
+    @Test
+    public void testEqualityIgnoresHiddenTimestamps() {
+        final IRCLine line = new IRCLine(context, 1000L, "Hello", noTimestamps);
+        final IRCLine other = new IRCLine(context, 2000L, "Hello", noTimestamps);
+        assertEquals(line, other);
+        assertEquals(line.hashCode(), other.hashCode());
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.ui.messages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineBufferTest {
+
+    @Test
+    public void testAddAndGet() {
+        final LineBuffer<String> buffer = new LineBuffer<>(4);
+        buffer.add("one");
+        buffer.add("two");
+        assertEquals(2, buffer.size());
+        assertEquals("one", buffer.get(0));
+        assertEquals("two", buffer.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        final LineBuffer<String> buffer = new LineBuffer<>(4);
+        buffer.add("one");
+        buffer.get(1);
+    }
+
+    @Test
+    public void testRemoveFirstAdvancesOffset() {
+        final LineBuffer<String> buffer = new LineBuffer<>(4);
+        buffer.add("one");
+        buffer.add("two");
+        buffer.add("three");
+        buffer.removeFirst(2);
+        assertEquals(1, buffer.size());
+        assertEquals(2, buffer.getOffset());
+        assertEquals("three", buffer.get(0));
+    }
+
+    @Test
+    public void testWrapsAroundWithoutGrowing() {
+        final LineBuffer<Integer> buffer = new LineBuffer<>(3);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(i);
+            if (buffer.size() > 2) {
+                buffer.removeFirst(1);
+            }
+        }
+        assertEquals(2, buffer.size());
+        assertEquals(8, buffer.getOffset());
+        assertEquals(Integer.valueOf(8), buffer.get(0));
+        assertEquals(Integer.valueOf(9), buffer.get(1));
+    }
+
+    @Test
+    public void testGrowsWhenFull() {
+        final LineBuffer<Integer> buffer = new LineBuffer<>(2);
+        buffer.add(0);
+        buffer.add(1);
+        buffer.removeFirst(1);
+        buffer.add(2);
+        buffer.add(3);
+        buffer.add(4);
+        final List<Integer> contents = new ArrayList<>();
+        buffer.forEach(contents::add);
+        assertEquals(Arrays.asList(1, 2, 3, 4), contents);
+    }
+
+    @Test
+    public void testClear() {
+        final LineBuffer<String> buffer = new LineBuffer<>(4);
+        buffer.add("one");
+        buffer.add("two");
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(2, buffer.getOffset());
+        buffer.add("three");
+        assertEquals("three", buffer.get(0));
+    }
+
+    @Test
+    public void testSetCapacityRetainsLines() {
+        final LineBuffer<String> buffer = new LineBuffer<>(2);
+        buffer.add("one");
+        buffer.add("two");
+        buffer.setCapacity(1);
+        buffer.add("three");
+        assertEquals(3, buffer.size());
+        assertEquals("one", buffer.get(0));
+        assertEquals("three", buffer.get(2));
+    }
+
+    @Test
+    public void testStartsSmallAndGrowsToCapacity() {
+        final LineBuffer<Integer> buffer = new LineBuffer<>(25001);
+        assertEquals(16, buffer.getStorageSize());
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i);
+        }
+        assertEquals(128, buffer.getStorageSize());
+        for (int i = 100; i < 30000; i++) {
+            buffer.add(i);
+            if (buffer.size() > 25000) {
+                buffer.removeFirst(1);
+            }
+        }
+        assertEquals(25001, buffer.getStorageSize());
+        assertEquals(Integer.valueOf(5000), buffer.get(0));
+        assertEquals(Integer.valueOf(29999), buffer.get(24999));
+    }
+
+    @Test
+    public void testSetCapacityShrinksStorage() {
+        final LineBuffer<Integer> buffer = new LineBuffer<>(100);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i);
+        }
+        buffer.removeFirst(80);
+        buffer.setCapacity(30);
+        assertEquals(30, buffer.getStorageSize());
+        assertEquals(Integer.valueOf(80), buffer.get(0));
+    }
+
+}
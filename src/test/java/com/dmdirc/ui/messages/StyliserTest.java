@@ -23,11 +23,28 @@
 package com.dmdirc.ui.messages;
 
 import com.dmdirc.config.provider.AggregateConfigProvider;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.GroupChatManager;
+import com.dmdirc.util.colours.Colour;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class StyliserTest {
 
@@ -55,6 +72,41 @@ public class StyliserTest {
         assertEquals(expResult, result);
     }
 
+    @Test
+    public void testSmiliesAreMarkedUp() {
+        final AggregateConfigProvider manager = mock(AggregateConfigProvider.class);
+        when(manager.getOptions("icon")).thenReturn(ImmutableMap.of(
+                "smilie-:)", "smile.png", "smilie-:(", "sad.png", "other", "other.png"));
+        final Styliser styliser = new Styliser(null, manager, new ColourManagerImpl(manager));
+        final StyledMessageMaker<?> maker = mock(StyledMessageMaker.class);
+
+        styliser.addStyledString(maker, "hello :) there:( :(");
+
+        verify(maker).startSmilie("smilie-:)");
+        verify(maker).startSmilie("smilie-:(");
+        verify(maker, never()).startSmilie("smilie-other");
+    }
+
+    @Test
+    public void testSmiliesAreCachedUntilIconsChange() {
+        final AggregateConfigProvider manager = mock(AggregateConfigProvider.class);
+        when(manager.getOptions("icon")).thenReturn(ImmutableMap.of("smilie-:)", "smile.png"));
+        final Styliser styliser = new Styliser(null, manager, new ColourManagerImpl(manager));
+        final StyledMessageMaker<?> maker = mock(StyledMessageMaker.class);
+
+        styliser.addStyledString(maker, ":)");
+        styliser.addStyledString(maker, ":(");
+        verify(manager, times(1)).getOptions("icon");
+        verify(maker, never()).startSmilie("smilie-:(");
+
+        when(manager.getOptions("icon")).thenReturn(ImmutableMap.of("smilie-:(", "sad.png"));
+        styliser.configChanged("icon", "smilie-:(");
+        styliser.addStyledString(maker, ":(");
+        verify(manager, times(2)).getOptions("icon");
+        verify(maker).startSmilie("smilie-:(");
+        verify(maker, times(2)).startSmilie(anyString());
+    }
+
     @Test
     @Ignore("Doesn't work in a headless environment (initialises an IRCDocument)")
     public void testNegation() {
@@ -79,4 +131,325 @@ public class StyliserTest {
         }
     }
 
+    @Test
+    public void testStyledOutput() {
+        final Map<Colour, String> colourNames = new IdentityHashMap<>();
+        final Styliser styliser = createStyliser(colourNames);
+
+        for (String[] test : STYLED_OUTPUT) {
+            assertEquals(test[0], test[1], getCalls(styliser, colourNames, true, test[0]));
+        }
+    }
+
+    @Test
+    public void testTokenizerMatchesRegexes() {
+        final Map<Colour, String> colourNames = new IdentityHashMap<>();
+        final Styliser styliser = createStyliser(colourNames);
+
+        for (String[] test : STYLED_OUTPUT) {
+            assertEquals(test[0], getCalls(styliser, colourNames, false, test[0]),
+                    getCalls(styliser, colourNames, true, test[0]));
+        }
+    }
+
+    private static Styliser createStyliser(final Map<Colour, String> colourNames) {
+        final Map<String, Colour> colours = new HashMap<>();
+        final ColourManager colourManager = mock(ColourManager.class);
+        when(colourManager.getColourFromString(anyString(), any())).thenAnswer(
+                i -> getColour(colours, colourNames, i.getArgument(0)));
+        when(colourManager.getColourFromIrcCode(anyInt())).thenAnswer(
+                i -> getColour(colours, colourNames, "irc" + i.getArgument(0)));
+        when(colourManager.getColourFromHex(anyString())).thenAnswer(
+                i -> getColour(colours, colourNames, "hex" + i.getArgument(0)));
+
+        final AggregateConfigProvider manager = mock(AggregateConfigProvider.class);
+        when(manager.getOptionBool("ui", "stylelinks")).thenReturn(true);
+        when(manager.getOptionBool("ui", "stylechannels")).thenReturn(true);
+        when(manager.getOptionString("ui", "linkcolour")).thenReturn("linkcolour");
+        when(manager.getOptionString("ui", "channelcolour")).thenReturn("channelcolour");
+        when(manager.getOptions("icon")).thenReturn(ImmutableMap.of("smilie-:)", "smile.png",
+                "smilie-:(", "sad.png", "smilie-<3", "heart.png", "other", "other.png"));
+
+        final GroupChatManager groupChatManager = mock(GroupChatManager.class);
+        when(groupChatManager.getChannelPrefixes()).thenReturn("#&");
+        final Connection connection = mock(Connection.class);
+        when(connection.getGroupChatManager()).thenReturn(groupChatManager);
+
+        return new Styliser(connection, manager, colourManager);
+    }
+
+    private static String getCalls(final Styliser styliser, final Map<Colour, String> colourNames,
+            final boolean tokenize, final String input) {
+        final List<String> calls = new ArrayList<>();
+        final StyledMessageMaker<?> maker = mock(StyledMessageMaker.class, invocation -> {
+            final StringBuilder call = new StringBuilder(invocation.getMethod().getName());
+            final Object[] arguments = invocation.getArguments();
+            for (int i = 0; i < arguments.length; i++) {
+                call.append(i == 0 ? '(' : ',');
+                call.append(arguments[i] instanceof Colour
+                        ? colourNames.get(arguments[i]) : arguments[i]);
+            }
+            calls.add(arguments.length == 0 ? call.toString() : call.append(')').toString());
+            return Mockito.RETURNS_DEFAULTS.answer(invocation);
+        });
+
+        styliser.addStyledString(maker, tokenize, input);
+        return String.join(" ", calls);
+    }
+
+    private static Colour getColour(final Map<String, Colour> colours,
+            final Map<Colour, String> colourNames, final String name) {
+        return colours.computeIfAbsent(name, n -> {
+            final Colour colour = new Colour(0, 0, 0);
+            colourNames.put(colour, n);
+            return colour;
+        });
+    }
+
+    /**
+     * Inputs covering each control code, nested and unterminated codes, and the boundaries of
+     * URLs and channel names, along with the calls made to the {@link StyledMessageMaker}. The
+     * expected calls were recorded from the implementation that predated the cached link
+     * patterns, with the exception of the unterminated nickname, which used to throw. The
+     * tokenizer must produce the same calls as the regular expressions for every input.
+     */
+    private static final String[][] STYLED_OUTPUT = {
+            {"Blah blah blah",
+                    "resetAllStyles appendString(Blah blah blah)"},
+            {"Blah\u0002blah",
+                    "resetAllStyles appendString(Blah) toggleBold appendString(blah)"},
+            {"Blah\u0002b\u0002lah",
+                    "resetAllStyles appendString(Blah) toggleBold appendString(b) toggleBold "
+                    + "appendString(lah)"},
+            {"Blah\u001fb\u001flah",
+                    "resetAllStyles appendString(Blah) toggleUnderline appendString(b) "
+                    + "toggleUnderline appendString(lah)"},
+            {"Blah\u001db\u001dlah",
+                    "resetAllStyles appendString(Blah) toggleItalic appendString(b) "
+                    + "toggleItalic appendString(lah)"},
+            {"Blah\u0011b\u0011lah",
+                    "resetAllStyles appendString(Blah) toggleFixedWidth appendString(b) "
+                    + "toggleFixedWidth appendString(lah)"},
+            {"B\u001flah\u0002b\u001flah",
+                    "resetAllStyles appendString(B) toggleUnderline appendString(lah) "
+                    + "toggleBold appendString(b) toggleUnderline appendString(lah)"},
+            {"Blah\u001db\u0002lah\u001dblah\u0002blah",
+                    "resetAllStyles appendString(Blah) toggleItalic appendString(b) toggleBold "
+                    + "appendString(lah) toggleItalic appendString(blah) toggleBold "
+                    + "appendString(blah)"},
+            {"\u0002\u001f\u001dall\u000fnone",
+                    "resetAllStyles appendString() toggleBold appendString() toggleUnderline "
+                    + "appendString() toggleItalic appendString(all) resetAllStyles "
+                    + "appendString(none)"},
+            {"\u00034moo",
+                    "resetAllStyles appendString() setForeground(4) appendString(moo)"},
+            {"\u00034m\u0003oo",
+                    "resetAllStyles appendString() setForeground(4) appendString(m) "
+                    + "resetColours appendString(oo)"},
+            {"\u000304moo",
+                    "resetAllStyles appendString() setForeground(4) appendString(moo)"},
+            {"\u000320moo",
+                    "resetAllStyles appendString() setForeground(4) appendString(moo)"},
+            {"\u00034,2moo",
+                    "resetAllStyles appendString() setForeground(4) setBackground(2) "
+                    + "appendString(moo)"},
+            {"\u00034,moo",
+                    "resetAllStyles appendString() setForeground(4) appendString(,moo)"},
+            {"\u0003,2moo",
+                    "resetAllStyles appendString() resetColours appendString(,2moo)"},
+            {"\u00034m\u00030oo",
+                    "resetAllStyles appendString() setForeground(4) appendString(m) "
+                    + "setForeground(0) appendString(oo)"},
+            {"\u0003104moo",
+                    "resetAllStyles appendString() setForeground(10) appendString(4moo)"},
+            {"\u00034,12moo\u0003",
+                    "resetAllStyles appendString() setForeground(4) setBackground(12) "
+                    + "appendString(moo) resetColours"},
+            {"\u0003moo",
+                    "resetAllStyles appendString() resetColours appendString(moo)"},
+            {"moo\u0003",
+                    "resetAllStyles appendString(moo) resetColours"},
+            {"\u0004FF0000moo",
+                    "resetAllStyles appendString() setForeground(FF0000) appendString(moo)"},
+            {"\u0004FF0000m\u0004oo",
+                    "resetAllStyles appendString() setForeground(FF0000) appendString(m) "
+                    + "resetColours appendString(oo)"},
+            {"\u0004ff0000moo",
+                    "resetAllStyles appendString() setForeground(FF0000) appendString(moo)"},
+            {"\u0004QUXmoo",
+                    "resetAllStyles appendString() resetColours appendString(QUXmoo)"},
+            {"\u0004FFFFFQUXmoo",
+                    "resetAllStyles appendString() resetColours appendString(FFFFFQUXmoo)"},
+            {"\u0004FF0000,00FF00moo",
+                    "resetAllStyles appendString() setForeground(FF0000) setBackground(00FF00) "
+                    + "appendString(moo)"},
+            {"\u0004FF0000,moo",
+                    "resetAllStyles appendString() setForeground(FF0000) appendString(,moo)"},
+            {"x\u0004FF0000",
+                    "resetAllStyles appendString(x) setForeground(FF0000)"},
+            {"moo\u0004",
+                    "resetAllStyles appendString(moo) resetColours"},
+            {"\u0012Blah\u00034\u0004FF0000moo",
+                    "resetAllStyles appendString() appendString(Blah) appendString() "
+                    + "appendString(moo)"},
+            {"\u0012Blah\u0002\u00034moo\u0012\u0002foo",
+                    "resetAllStyles appendString() appendString(Blah) appendString() "
+                    + "appendString(moo) appendString() toggleBold appendString(foo)"},
+            {"Blah \u00034\u0012\u0002Blah\u000fBlah",
+                    "resetAllStyles appendString(Blah ) setForeground(4) appendString() "
+                    + "appendString() appendString(Blah) appendString(Blah)"},
+            {"Blah\u000f",
+                    "resetAllStyles appendString(Blah) resetAllStyles"},
+            {"\u0002unterminated bold",
+                    "resetAllStyles appendString() toggleBold appendString(unterminated bold)"},
+            {"\u001funterminated underline",
+                    "resetAllStyles appendString() toggleUnderline appendString(unterminated "
+                    + "underline)"},
+            {"\u0002\u0002\u0002odd bold",
+                    "resetAllStyles appendString() toggleBold appendString() toggleBold "
+                    + "appendString() toggleBold appendString(odd bold)"},
+            {"nick \u0010nickname\u0010 said",
+                    "resetAllStyles appendString(nick ) startNicknameLink(nickname) "
+                    + "appendString( said)"},
+            {"\u0010unterminated nickname",
+                    "resetAllStyles appendString() appendString(unterminated nickname)"},
+            {"tip \u0013tooltip text\u0013shown\u0013 after",
+                    "resetAllStyles appendString(tip ) startToolTip(tooltip text) "
+                    + "appendString(shown) endToolTip appendString( after)"},
+            {"\u0013unterminated tooltip",
+                    "resetAllStyles appendString() appendString(unterminated tooltip)"},
+            {"smile :) frown :( heart <3 other",
+                    "resetAllStyles appendString(smile ) startSmilie(smilie-:)) "
+                    + "appendString(:)) endSmilie appendString( frown ) startSmilie(smilie-:() "
+                    + "appendString(:() endSmilie appendString( heart ) startSmilie(smilie-<3) "
+                    + "appendString(<3) endSmilie appendString( other)"},
+            {":):(",
+                    "resetAllStyles appendString(:):()"},
+            {"http://www.example.com",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://www.example.com) "
+                    + "appendString(http://www.example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink"},
+            {"see http://www.example.com/path?a=b#frag, then",
+                    "resetAllStyles appendString(see ) toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://www.example.com/path?a=b#frag) "
+                    + "appendString(http://www.example.com/path?a=b#frag) "
+                    + "toggleHyperlinkStyle(linkcolour) endHyperlink appendString(, then)"},
+            {"(http://www.example.com)",
+                    "resetAllStyles appendString(() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://www.example.com) "
+                    + "appendString(http://www.example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString())"},
+            {"<http://www.example.com>",
+                    "resetAllStyles appendString(<) toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://www.example.com) "
+                    + "appendString(http://www.example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString(>)"},
+            {"\"http://www.example.com\"",
+                    "resetAllStyles appendString(\") toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://www.example.com) "
+                    + "appendString(http://www.example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString(\")"},
+            {"\u0002http://www.example.com\u0002",
+                    "resetAllStyles appendString() toggleBold appendString() "
+                    + "toggleHyperlinkStyle(linkcolour) startHyperlink(http://www.example.com) "
+                    + "appendString(http://www.example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString() toggleBold"},
+            {"http://www.example.com\u0002bold",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://www.example.com) "
+                    + "appendString(http://www.example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString() toggleBold appendString(bold)"},
+            {"www.example.com.",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(www.example.com) appendString(www.example.com) "
+                    + "toggleHyperlinkStyle(linkcolour) endHyperlink appendString(.)"},
+            {"foo://bar",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(foo://bar) appendString(foo://bar) "
+                    + "toggleHyperlinkStyle(linkcolour) endHyperlink"},
+            {"svn+ssh://user@host/path",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(svn+ssh://user@host/path) "
+                    + "appendString(svn+ssh://user@host/path) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink"},
+            {"join #channel now",
+                    "resetAllStyles appendString(join ) toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#channel) appendString(#channel) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink appendString( now)"},
+            {"join #channel, #other and &local",
+                    "resetAllStyles appendString(join ) toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#channel) appendString(#channel) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink appendString(, ) "
+                    + "toggleChannelLinkStyle(channelcolour) startChannelLink(#other) "
+                    + "appendString(#other) toggleChannelLinkStyle(channelcolour) endChannelLink "
+                    + "appendString( and ) toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(&local) appendString(&local) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink"},
+            {"(#channel)",
+                    "resetAllStyles appendString(() toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#channel) appendString(#channel) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink appendString())"},
+            {"#",
+                    "resetAllStyles appendString(#)"},
+            {"a#notchannel",
+                    "resetAllStyles appendString(a#notchannel)"},
+            {"#chan\u0002nel",
+                    "resetAllStyles appendString() toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#chan) appendString(#chan) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink appendString() "
+                    + "toggleBold appendString(nel)"},
+            {"\u0002#channel\u0002",
+                    "resetAllStyles appendString() toggleBold appendString(#channel) toggleBold"},
+            {"+mode #channel",
+                    "resetAllStyles appendString(+mode ) toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#channel) appendString(#channel) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink"},
+            {"http://example.com/#anchor",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(http://example.com/#anchor) "
+                    + "appendString(http://example.com/#anchor) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink"},
+            {"#channel http://example.com",
+                    "resetAllStyles appendString() toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#channel) appendString(#channel) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink appendString( ) "
+                    + "toggleHyperlinkStyle(linkcolour) startHyperlink(http://example.com) "
+                    + "appendString(http://example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink"},
+            {"\u00034http://example.com\u0003 #channel",
+                    "resetAllStyles appendString() setForeground(4) appendString() "
+                    + "toggleHyperlinkStyle(linkcolour) startHyperlink(http://example.com) "
+                    + "appendString(http://example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString() resetColours appendString( ) "
+                    + "toggleChannelLinkStyle(channelcolour) startChannelLink(#channel) "
+                    + "appendString(#channel) toggleChannelLinkStyle(channelcolour) "
+                    + "endChannelLink"},
+            {"www.example.com!!!!!!!",
+                    "resetAllStyles appendString() toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(www.example.com!!) appendString(www.example.com!!) "
+                    + "toggleHyperlinkStyle(linkcolour) endHyperlink appendString(!!!!!)"},
+            {"+www.example.com",
+                    "resetAllStyles appendString(+) toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(www.example.com) appendString(www.example.com) "
+                    + "toggleHyperlinkStyle(linkcolour) endHyperlink"},
+            {"\u0004abcdefhttp://example.com",
+                    "resetAllStyles appendString() setForeground(ABCDEF) appendString() "
+                    + "toggleHyperlinkStyle(linkcolour) startHyperlink(http://example.com) "
+                    + "appendString(http://example.com) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink"},
+            {"see #channel: http://example.com/a?b, ok :)",
+                    "resetAllStyles appendString(see ) toggleChannelLinkStyle(channelcolour) "
+                    + "startChannelLink(#channel) appendString(#channel) "
+                    + "toggleChannelLinkStyle(channelcolour) endChannelLink appendString(: ) "
+                    + "toggleHyperlinkStyle(linkcolour) startHyperlink(http://example.com/a?b) "
+                    + "appendString(http://example.com/a?b) toggleHyperlinkStyle(linkcolour) "
+                    + "endHyperlink appendString(, ok ) startSmilie(smilie-:)) appendString(:)) "
+                    + "endSmilie"},
+            {"x'www.example.com/x",
+                    "resetAllStyles appendString(x') toggleHyperlinkStyle(linkcolour) "
+                    + "startHyperlink(www.example.com/) appendString(www.example.com/) "
+                    + "toggleHyperlinkStyle(linkcolour) endHyperlink appendString(x)"},
+    };
+
 }
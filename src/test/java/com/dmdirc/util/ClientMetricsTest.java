@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClientMetricsTest {
+
+    @Test
+    public void testCountsConfigLookupsByDefault() {
+        final ClientMetrics metrics = new ClientMetrics();
+        assertTrue(metrics.getConfigLookups().isEnabled());
+    }
+
+    @Test
+    public void testInstancesDoNotShareCounters() {
+        final ClientMetrics first = new ClientMetrics();
+        final ClientMetrics second = new ClientMetrics();
+        first.getConfigLookups().increment("domain", "option");
+        assertEquals(0, second.getConfigLookups().getCount("domain", "option"));
+    }
+
+    @Test
+    public void testGaugesAreReadWhenSnapshotted() {
+        final ClientMetrics metrics = new ClientMetrics();
+        final AtomicLong value = new AtomicLong(3);
+        metrics.registerGauge("test.value", value::get);
+        assertEquals(3L, (long) metrics.getGauges().get("test.value"));
+        value.set(7);
+        assertEquals(7L, (long) metrics.getGauges().get("test.value"));
+    }
+
+    @Test
+    public void testRegisteringGaugeReplacesExisting() {
+        final ClientMetrics metrics = new ClientMetrics();
+        metrics.registerGauge("test.value", () -> 1);
+        metrics.registerGauge("test.value", () -> 2);
+        assertEquals(1, metrics.getGauges().size());
+        assertEquals(2L, (long) metrics.getGauges().get("test.value"));
+    }
+
+}
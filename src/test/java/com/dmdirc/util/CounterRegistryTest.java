@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CounterRegistryTest {
+
+    @Test
+    public void testIncrementWhenEnabled() {
+        final CounterRegistry registry = new CounterRegistry(true);
+        registry.increment("group", "name");
+        registry.increment("group", "name");
+        registry.increment("group", "other");
+        assertEquals(2, registry.getCount("group", "name"));
+        assertEquals(1, registry.getCount("group", "other"));
+        assertEquals(0, registry.getCount("group", "missing"));
+    }
+
+    @Test
+    public void testIncrementWhenDisabled() {
+        final CounterRegistry registry = new CounterRegistry(false);
+        registry.increment("group", "name");
+        assertEquals(0, registry.getCount("group", "name"));
+        assertTrue(registry.getCounts().isEmpty());
+    }
+
+    @Test
+    public void testGetCounts() {
+        final CounterRegistry registry = new CounterRegistry(true);
+        registry.increment("a", "b");
+        registry.increment("c", "d");
+        assertEquals(1L, (long) registry.getCounts().get("a.b"));
+        assertEquals(1L, (long) registry.getCounts().get("c.d"));
+    }
+
+    @Test
+    public void testReset() {
+        final CounterRegistry registry = new CounterRegistry(true);
+        registry.increment("group", "name");
+        registry.reset();
+        assertEquals(0, registry.getCount("group", "name"));
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import com.dmdirc.util.HashedWheelTimer.Timeout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, "Test timer");
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testRunsScheduledTask() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Timeout timeout = timer.schedule(latch::countDown, 20, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void testRunsTaskAfterMoreThanOneRotation() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        timer.schedule(latch::countDown, 200, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws InterruptedException {
+        final AtomicBoolean ran = new AtomicBoolean();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Timeout timeout = timer.schedule(() -> ran.set(true), 50, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        timer.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopTimer() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(() -> { throw new IllegalStateException("test"); },
+                10, TimeUnit.MILLISECONDS);
+        timer.schedule(latch::countDown, 30, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+}
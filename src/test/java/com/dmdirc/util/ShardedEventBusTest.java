@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import com.dmdirc.events.FrameClosingEvent;
+import com.dmdirc.events.eventbus.BaseEvent;
+import com.dmdirc.events.eventbus.EventBus;
+import com.dmdirc.interfaces.Connection;
+import com.dmdirc.interfaces.WindowModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ShardedEventBusTest {
+
+    @Mock private EventBus delegate;
+    @Mock private Connection connection;
+    @Mock private WindowModel window1;
+    @Mock private WindowModel window2;
+    private ShardedEventBus eventBus;
+
+    @Before
+    public void setup() {
+        eventBus = new ShardedEventBus(delegate, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiresAtLeastOneShard() {
+        new ShardedEventBus(delegate, 0);
+    }
+
+    @Test
+    public void testSubscribeIsDelegated() {
+        eventBus.subscribe(this);
+        verify(delegate).subscribe(this);
+    }
+
+    @Test
+    public void testUnsubscribeIsDelegated() {
+        eventBus.unsubscribe(this);
+        verify(delegate).unsubscribe(this);
+    }
+
+    @Test
+    public void testPublishIsDelegated() {
+        final FrameClosingEvent event = new FrameClosingEvent(window1);
+        eventBus.publish(event);
+        verify(delegate).publish(event);
+        assertEquals(0, eventBus.getDispatchedEventCount());
+    }
+
+    @Test
+    public void testAsyncEventsOnSameConnectionAreOrdered() throws InterruptedException {
+        when(window1.getConnection()).thenReturn(Optional.of(connection));
+        when(window2.getConnection()).thenReturn(Optional.of(connection));
+
+        final List<BaseEvent> received = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(100);
+        doAnswer(invocation -> {
+            received.add((BaseEvent) invocation.getArguments()[0]);
+            latch.countDown();
+            return null;
+        }).when(delegate).publish(any());
+
+        final List<BaseEvent> sent = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final FrameClosingEvent event = new FrameClosingEvent(i % 2 == 0 ? window1 : window2);
+            sent.add(event);
+            eventBus.publishAsync(event);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(sent, received);
+        assertEquals(100, eventBus.getDispatchedEventCount());
+    }
+
+}
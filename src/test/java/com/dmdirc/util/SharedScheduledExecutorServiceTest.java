@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2006-2017 DMDirc Developers
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ * documentation files (the "Software"), to deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all copies or substantial portions of the
+ * Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ * OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.dmdirc.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedScheduledExecutorServiceTest {
+
+    private SharedScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = new SharedScheduledExecutorService(1, 1, TimeUnit.HOURS, "test");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testRunsTasksFromGroup() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.newTaskGroup().schedule(latch::countDown, 10, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getLateTaskCount());
+    }
+
+    @Test
+    public void testShutdownCancelsOnlyGroupTasks() throws Exception {
+        final ScheduledExecutorService group1 = executor.newTaskGroup();
+        final ScheduledExecutorService group2 = executor.newTaskGroup();
+        final ScheduledFuture<?> task1 = group1.schedule(() -> {}, 1, TimeUnit.HOURS);
+        final ScheduledFuture<?> task2 = group2.schedule(() -> {}, 1, TimeUnit.HOURS);
+
+        group1.shutdown();
+
+        assertTrue(task1.isCancelled());
+        assertFalse(task2.isCancelled());
+        assertTrue(group1.isShutdown());
+        assertTrue(group1.isTerminated());
+        assertFalse(group2.isShutdown());
+        assertFalse(executor.isShutdown());
+        assertEquals(1, executor.getPendingTaskCount());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testRejectsTasksAfterGroupShutdown() {
+        final ScheduledExecutorService group = executor.newTaskGroup();
+        group.shutdown();
+        group.schedule(() -> {}, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testCountsLateTasks() throws Exception {
+        final SharedScheduledExecutorService strict =
+                new SharedScheduledExecutorService(1, 0, TimeUnit.NANOSECONDS, "strict");
+        try {
+            final CountDownLatch blocker = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(1);
+            final ScheduledExecutorService group = strict.newTaskGroup();
+            group.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            group.execute(done::countDown);
+            Thread.sleep(20);
+            blocker.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(strict.getLateTaskCount() >= 1);
+            assertTrue(strict.getMaxLateness() >= TimeUnit.MILLISECONDS.toNanos(20));
+        } finally {
+            strict.shutdownNow();
+        }
+    }
+
+}